@@ -9,6 +9,8 @@ import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -37,9 +39,9 @@ public class Main implements Callable<Integer> {
 
     @Option(
         names = {"-d", "--dir"},
-        description = "Working directory (default: current directory)"
+        description = "Working directory (default: current directory); repeat to add more workspace roots"
     )
-    private String workingDir;
+    private List<String> workingDirs;
 
     @Option(
         names = {"-v", "--verbose"},
@@ -62,7 +64,15 @@ public class Main implements Callable<Integer> {
             String finalProvider = config.getModelProvider();
             String finalApiKey = apiKey != null ? apiKey : config.getApiKey();
             String finalModelName = modelName != null ? modelName : config.getModelName();
-            String finalWorkingDir = workingDir != null ? workingDir : config.getWorkingDirectory();
+            // 第一个根目录是主工作目录，其余为多根工作区的附加根目录
+            List<String> workspaceRoots = new ArrayList<>();
+            if (workingDirs != null && !workingDirs.isEmpty()) {
+                workspaceRoots.addAll(workingDirs);
+            } else {
+                workspaceRoots.add(config.getWorkingDirectory());
+                workspaceRoots.addAll(config.getWorkspaceRoots());
+            }
+            String finalWorkingDir = workspaceRoots.get(0);
             double temperature = config.getTemperature();
             int maxTokens = config.getMaxTokens();
             String customUrl = config.getCustomUrl();
@@ -84,13 +94,16 @@ public class Main implements Callable<Integer> {
             System.setProperty("user.dir", finalWorkingDir);
 
             // 初始化路径验证器
-            PathValidator.initialize(finalWorkingDir);
+            PathValidator.initialize(workspaceRoots);
 
             if (verbose) {
                 System.out.println("正在启动 KejiCode (柯基Code)...");
                 System.out.println("提供商: " + finalProvider);
                 System.out.println("模型: " + finalModelName);
                 System.out.println("工作目录: " + finalWorkingDir);
+                if (workspaceRoots.size() > 1) {
+                    System.out.println("工作区根目录: " + String.join(", ", workspaceRoots));
+                }
             }
 
             // 初始化 agent
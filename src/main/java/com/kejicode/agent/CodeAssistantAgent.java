@@ -1,6 +1,8 @@
 package com.kejicode.agent;
 
 import com.kejicode.tools.*;
+import com.kejicode.utils.BackgroundJobs;
+import com.kejicode.utils.SnapshotJournal;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
@@ -25,6 +27,7 @@ public class CodeAssistantAgent {
     private final Map<String, Tool> tools;
     private final ObjectMapper objectMapper;
     private final List<ChatMessage> conversationHistory;
+    private final BackgroundJobs backgroundJobs = new BackgroundJobs();
 
     // 保存当前配置以支持模型切换
     private String currentProvider;
@@ -56,12 +59,18 @@ public class CodeAssistantAgent {
         registerTool(new ReadFileTool());
         registerTool(new WriteFileTool());
         registerTool(new EditFileTool());
+        registerTool(new ApplyPatchTool());
+        registerTool(new UndoTool());
         registerTool(new GlobTool());
         registerTool(new GrepTool());
-        registerTool(new BashTool());
+        registerTool(new ReplaceTool());
+        registerTool(new BashTool(backgroundJobs));
+        registerTool(new BashOutputTool(backgroundJobs));
+        registerTool(new KillBashTool(backgroundJobs));
         registerTool(new GitTool());
         registerTool(new NpmTool());
         registerTool(new MavenTool());
+        registerTool(new CompileCheckTool());
 
         // 添加系统消息
         conversationHistory.add(SystemMessage.from(getSystemPrompt()));
@@ -148,6 +157,9 @@ public class CodeAssistantAgent {
     public String processUserMessage(String userMessage) {
         log.info("处理用户消息: {}", userMessage);
 
+        // 新的一轮对话,之后的文件修改可以通过 /undo 整体撤销
+        SnapshotJournal.beginTurn();
+
         // 添加用户消息到历史
         conversationHistory.add(UserMessage.from(userMessage));
 
@@ -314,6 +326,12 @@ public class CodeAssistantAgent {
                     String editFile = params.has("file_path") ? params.get("file_path").asText() : "未知文件";
                     return "编辑文件: " + editFile;
 
+                case "ApplyPatch":
+                    return "应用补丁";
+
+                case "Undo":
+                    return "撤销文件修改";
+
                 case "Read":
                     String readFile = params.has("file_path") ? params.get("file_path").asText() : "未知文件";
                     return "读取文件: " + readFile;
@@ -322,6 +340,12 @@ public class CodeAssistantAgent {
                     String command = params.has("command") ? params.get("command").asText() : "未知命令";
                     return "执行命令: " + command;
 
+                case "BashOutput":
+                    return "读取后台任务输出: " + (params.has("id") ? params.get("id").asText() : "全部");
+
+                case "KillBash":
+                    return "终止后台任务: " + (params.has("id") ? params.get("id").asText() : "未知任务");
+
                 case "Git":
                     String gitCmd = params.has("command") ? params.get("command").asText() : "未知命令";
                     return "执行 Git: " + gitCmd;
@@ -334,6 +358,9 @@ public class CodeAssistantAgent {
                     String mvnCmd = params.has("command") ? params.get("command").asText() : "未知命令";
                     return "执行 Maven: " + mvnCmd;
 
+                case "CompileCheck":
+                    return "编译检查 Java 源文件";
+
                 case "Glob":
                     String pattern = params.has("pattern") ? params.get("pattern").asText() : "未知模式";
                     return "搜索文件: " + pattern;
@@ -342,6 +369,11 @@ public class CodeAssistantAgent {
                     String searchPattern = params.has("pattern") ? params.get("pattern").asText() : "未知模式";
                     return "搜索内容: " + searchPattern;
 
+                case "Replace":
+                    String replacePattern = params.has("pattern") ? params.get("pattern").asText() : "未知模式";
+                    boolean preview = params.has("dry_run") && params.get("dry_run").asBoolean();
+                    return (preview ? "预览批量替换: " : "批量替换: ") + replacePattern;
+
                 default:
                     return "执行工具: " + toolName;
             }
@@ -364,6 +396,23 @@ public class CodeAssistantAgent {
         return specs;
     }
 
+    /**
+     * 释放工具持有的资源 (持久 shell 会话、后台任务等)
+     */
+    public void shutdown() {
+        backgroundJobs.close();
+        for (Tool tool : tools.values()) {
+            if (tool instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("关闭工具 {} 失败: {}", tool.getName(), e.getMessage());
+                }
+            }
+        }
+        log.info("Agent 已关闭");
+    }
+
     public void clearHistory() {
         conversationHistory.clear();
         conversationHistory.add(SystemMessage.from(getSystemPrompt()));
@@ -481,12 +530,18 @@ public class CodeAssistantAgent {
             - Read: 从文件系统读取文件
             - Write: 创建或覆盖文件 (当用户要求创建文件时必须使用!)
             - Edit: 对现有文件进行精确编辑
-            - Glob: 查找匹配模式的文件
-            - Grep: 使用正则表达式搜索文件内容
+            - ApplyPatch: 应用 unified diff 补丁,一次修改多个文件 (大范围修改时优先使用)
+            - Undo: 撤销最近的 Write/Edit/ApplyPatch/Replace 文件修改 (无需 git)
+            - Glob: 查找匹配模式的文件 (多根工作区中不指定 path 时搜索所有根目录)
+            - Grep: 使用正则表达式搜索文件内容 (多根工作区中不指定 path 时搜索所有根目录)
+            - Replace: 在工作区内批量正则替换,一次修改所有匹配的文件 (跨文件重命名时优先使用,可先 dry_run 预览)
             - Bash: 执行 shell 命令
+            - BashOutput: 读取后台命令 (Bash run_in_background) 的增量输出和状态
+            - KillBash: 终止后台命令
             - Git: 执行 Git 版本管理操作
             - Npm: 执行 NPM 包管理操作
             - Maven: 执行 Maven 构建操作
+            - CompileCheck: 在进程内快速检查改动的 Java 源文件能否编译 (编辑后优先使用,无需完整 Maven 构建)
 
             工作流程:
             1. 理解用户需求
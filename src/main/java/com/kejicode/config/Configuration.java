@@ -7,6 +7,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -146,4 +148,27 @@ public class Configuration {
         }
         return workingDir != null ? workingDir : System.getProperty("user.dir");
     }
+
+    /**
+     * 额外的工作区根目录 (app.workspace.roots)，与工作目录一起构成多根工作区
+     */
+    public List<String> getWorkspaceRoots() {
+        Object value = getNestedValue("app", "workspace", "roots");
+        List<String> roots = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                if (item != null && !item.toString().isBlank()) {
+                    roots.add(item.toString().trim());
+                }
+            }
+        } else if (value != null && !value.toString().isBlank()) {
+            // 也支持逗号分隔的单个字符串
+            for (String item : value.toString().split(",")) {
+                if (!item.isBlank()) {
+                    roots.add(item.trim());
+                }
+            }
+        }
+        return roots;
+    }
 }
@@ -0,0 +1,225 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.AtomicFiles;
+import com.kejicode.utils.ChangedFiles;
+import com.kejicode.utils.PatchApplier;
+import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SnapshotJournal;
+import com.kejicode.utils.TextFiles;
+import com.kejicode.utils.UnifiedDiff;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 补丁工具 - 应用统一差异格式 (unified diff) 的多文件补丁
+ */
+@Slf4j
+public class ApplyPatchTool implements Tool {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public String getName() {
+        return "ApplyPatch";
+    }
+
+    @Override
+    public String getDescription() {
+        return """
+            应用统一差异格式 (unified diff, 与 git diff / diff -u 输出一致) 的补丁,可同时修改多个文件。
+            适合大范围修改,比整文件重写或多次 Edit 更省时省 token。
+            hunk 会在声明位置附近查找,允许行号偏移和少量上下文不一致 (fuzz)。
+            所有 hunk 都成功定位后才会写入,任何一个失败则所有文件保持不变。
+
+            参数:
+            - patch (必需): 补丁内容,每个文件以 "--- a/路径" 和 "+++ b/路径" 开头,新建文件使用 "--- /dev/null",删除文件使用 "+++ /dev/null"
+            - fuzz (可选): 允许忽略的首尾上下文行数 (默认: 2)
+            - dry_run (可选): true=只检查能否应用,不写入文件 (默认: false)
+
+            示例: {"patch": "--- a/src/Main.java\\n+++ b/src/Main.java\\n@@ -1,3 +1,3 @@\\n public class Main {\\n-    int a = 1;\\n+    int a = 2;\\n }\\n"}
+            """;
+    }
+
+    @Override
+    public ToolResult execute(String parameters) throws Exception {
+        try {
+            JsonNode params = MAPPER.readTree(parameters);
+            if (!params.has("patch")) {
+                return ToolResult.failure("缺少必需参数: patch (补丁内容)");
+            }
+            String patch = params.get("patch").asText();
+            int maxFuzz = params.has("fuzz") ? Math.max(0, params.get("fuzz").asInt()) : PatchApplier.DEFAULT_MAX_FUZZ;
+            boolean dryRun = params.has("dry_run") && params.get("dry_run").asBoolean();
+
+            List<UnifiedDiff.FilePatch> filePatches;
+            try {
+                filePatches = UnifiedDiff.parse(patch);
+            } catch (IllegalArgumentException e) {
+                return ToolResult.failure("补丁格式错误: " + e.getMessage());
+            }
+
+            // 在内存中依次应用所有文件补丁,同一文件多次出现时在前一次结果上继续应用
+            Map<Path, FileState> states = new LinkedHashMap<>();
+            StringBuilder report = new StringBuilder();
+            boolean allApplied = true;
+
+            for (UnifiedDiff.FilePatch filePatch : filePatches) {
+                Path path;
+                try {
+                    path = PathValidator.validateAndNormalize(filePatch.targetPath());
+                } catch (SecurityException e) {
+                    log.warn("路径安全检查失败: {}", e.getMessage());
+                    return ToolResult.failure("安全错误: " + e.getMessage());
+                }
+                String relativePath = PathValidator.toRelativePath(path);
+
+                FileState state = states.get(path);
+                if (state == null) {
+                    if (Files.isDirectory(path)) {
+                        return ToolResult.failure("路径是目录而非文件: " + relativePath);
+                    }
+                    boolean exists = Files.exists(path);
+                    if (filePatch.isCreate() && exists) {
+                        return ToolResult.failure("文件已存在,无法作为新文件创建: " + relativePath);
+                    }
+                    if (!filePatch.isCreate() && !exists) {
+                        return ToolResult.failure("文件不存在: " + relativePath);
+                    }
+                    state = exists ? FileState.read(path) : FileState.empty();
+                    if (state.encoding.binary()) {
+                        return ToolResult.failure("二进制文件无法应用文本补丁: " + relativePath);
+                    }
+                    states.put(path, state);
+                }
+
+                PatchApplier.Result result = PatchApplier.apply(state.lines, filePatch.hunks(), maxFuzz);
+                report.append(relativePath).append(" (").append(describeAction(filePatch)).append(")\n");
+                for (PatchApplier.HunkResult hunk : result.hunks()) {
+                    report.append("  ").append(hunk.describe()).append("\n");
+                }
+
+                if (!result.isSuccess()) {
+                    allApplied = false;
+                    continue;
+                }
+
+                state.lines = result.lines();
+                state.deleted = filePatch.isDelete();
+                for (UnifiedDiff.Hunk hunk : filePatch.hunks()) {
+                    if (hunk.noNewlineAtEndNew()) {
+                        state.trailingNewline = false;
+                    } else if (hunk.noNewlineAtEndOld()) {
+                        state.trailingNewline = true;
+                    }
+                }
+            }
+
+            if (!allApplied) {
+                log.debug("补丁应用失败:\n{}", report);
+                return ToolResult.failure("补丁未应用 (所有文件保持不变):\n" + report);
+            }
+
+            if (dryRun) {
+                return ToolResult.success("补丁检查通过 (dry_run,未写入文件):\n" + report);
+            }
+
+            Map<Path, byte[]> changes = new LinkedHashMap<>();
+            Map<Path, byte[]> originals = new LinkedHashMap<>();
+            for (Map.Entry<Path, FileState> entry : states.entrySet()) {
+                FileState state = entry.getValue();
+                originals.put(entry.getKey(), state.original);
+                try {
+                    changes.put(entry.getKey(), state.deleted ? null : state.render());
+                } catch (CharacterCodingException e) {
+                    return ToolResult.failure("补丁未应用 (所有文件保持不变): 新内容包含文件编码 "
+                        + state.encoding.describe() + " 无法表示的字符: " + PathValidator.toRelativePath(entry.getKey()));
+                }
+            }
+            AtomicFiles.writeAll(changes, originals);
+
+            // 全部写入成功后才记录撤销日志,写入失败回滚时不会留下无效的撤销条目
+            for (Map.Entry<Path, FileState> entry : states.entrySet()) {
+                SnapshotJournal.record(entry.getKey(), entry.getValue().original, changes.get(entry.getKey()));
+            }
+            changes.keySet().forEach(ChangedFiles::record);
+
+            log.debug("补丁已应用到 {} 个文件", changes.size());
+            return ToolResult.success(String.format("补丁已应用到 %d 个文件:\n", changes.size()) + report);
+
+        } catch (IOException e) {
+            log.error("应用补丁失败", e);
+            return ToolResult.failure("应用补丁失败: " + e.getMessage());
+        }
+    }
+
+    private String describeAction(UnifiedDiff.FilePatch filePatch) {
+        if (filePatch.isCreate()) {
+            return "新建";
+        }
+        if (filePatch.isDelete()) {
+            return "删除";
+        }
+        return "修改";
+    }
+
+    /**
+     * 补丁应用过程中单个文件的内存状态
+     */
+    private static class FileState {
+
+        private List<String> lines;
+        private String lineSeparator;
+        private boolean trailingNewline;
+        private boolean deleted;
+        /** 原始编码,写回时保持不变 (包括 BOM) */
+        private TextFiles.Encoding encoding;
+        /** 原始字节,文件不存在时为 null (用于撤销) */
+        private byte[] original;
+
+        static FileState read(Path path) throws IOException {
+            TextFiles.Text text = TextFiles.read(path);
+            String content = text.content();
+            FileState state = new FileState();
+            state.encoding = text.encoding();
+            state.original = text.bytes();
+            state.lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
+            String normalized = content.replace("\r\n", "\n");
+            state.trailingNewline = normalized.endsWith("\n");
+
+            String body = state.trailingNewline ? normalized.substring(0, normalized.length() - 1) : normalized;
+            state.lines = body.isEmpty() && !state.trailingNewline
+                ? new ArrayList<>()
+                : new ArrayList<>(Arrays.asList(body.split("\n", -1)));
+            return state;
+        }
+
+        static FileState empty() {
+            FileState state = new FileState();
+            state.lines = new ArrayList<>();
+            state.lineSeparator = "\n";
+            state.trailingNewline = true;
+            state.encoding = new TextFiles.Encoding(StandardCharsets.UTF_8, 0, false);
+            return state;
+        }
+
+        byte[] render() throws CharacterCodingException {
+            String content = String.join(lineSeparator, lines);
+            if (trailingNewline && !lines.isEmpty()) {
+                content += lineSeparator;
+            }
+            return TextFiles.encode(content, encoding);
+        }
+    }
+}
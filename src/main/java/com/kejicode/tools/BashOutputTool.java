@@ -0,0 +1,75 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.BackgroundJobs;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 后台任务输出工具 - 按偏移增量读取后台命令的输出并查看状态
+ */
+@Slf4j
+public class BashOutputTool implements Tool {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_CHARS = 32 * 1024;
+
+    private final BackgroundJobs jobs;
+
+    public BashOutputTool(BackgroundJobs jobs) {
+        this.jobs = jobs;
+    }
+
+    @Override
+    public String getName() {
+        return "BashOutput";
+    }
+
+    @Override
+    public String getDescription() {
+        return """
+            读取后台命令 (Bash 的 run_in_background=true) 的输出和运行状态。
+            不指定 id 时列出所有后台任务。
+
+            参数:
+            - id (可选): 后台任务 ID,如 "bg-1"
+            - offset (可选): 从该偏移开始读取,使用上次结果中的 next_offset 只读取新输出 (默认: 0)
+
+            示例: {"id": "bg-1", "offset": 0}
+            """;
+    }
+
+    @Override
+    public ToolResult execute(String parameters) throws Exception {
+        JsonNode params = MAPPER.readTree(parameters == null || parameters.isBlank() ? "{}" : parameters);
+
+        if (!params.has("id")) {
+            StringBuilder sb = new StringBuilder();
+            for (BackgroundJobs.Job job : jobs.list()) {
+                sb.append(String.format("%s  %s  %s%n", job.getId(), job.status(), job.getCommand()));
+            }
+            return ToolResult.success(sb.isEmpty() ? "没有后台任务" : sb.toString());
+        }
+
+        String id = params.get("id").asText();
+        BackgroundJobs.Job job = jobs.get(id);
+        if (job == null) {
+            return ToolResult.failure("后台任务不存在: " + id);
+        }
+
+        long offset = params.has("offset") ? Math.max(0, params.get("offset").asLong()) : 0;
+        BackgroundJobs.Chunk chunk = job.read(offset, MAX_CHARS);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("任务: ").append(id).append("\n");
+        sb.append("状态: ").append(job.status()).append("\n");
+        sb.append("next_offset: ").append(chunk.nextOffset()).append("\n");
+        if (chunk.skipped() > 0) {
+            sb.append(String.format("(较早的 %d 个字符已从缓冲区丢弃)%n", chunk.skipped()));
+        }
+        sb.append("\n").append(chunk.output().isEmpty() ? "(无新输出)" : chunk.output());
+
+        log.debug("读取后台任务 {} 输出,offset {} -> {}", id, offset, chunk.nextOffset());
+        return ToolResult.success(sb.toString());
+    }
+}
@@ -2,21 +2,37 @@ package com.kejicode.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.BackgroundJobs;
+import com.kejicode.utils.CommandResultCache;
+import com.kejicode.utils.LiveOutput;
+import com.kejicode.utils.OutputPump;
+import com.kejicode.utils.ProcessTrees;
+import com.kejicode.utils.ShellSession;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Bash 命令执行工具
  */
 @Slf4j
-public class BashTool implements Tool {
+public class BashTool implements Tool, AutoCloseable {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final int DEFAULT_TIMEOUT = 120000; // 2 分钟
+    private static final long OUTPUT_DRAIN_TIMEOUT = 2000;
+
+    private final BackgroundJobs backgroundJobs;
+    private ShellSession session;
+
+    public BashTool() {
+        this(new BackgroundJobs());
+    }
+
+    public BashTool(BackgroundJobs backgroundJobs) {
+        this.backgroundJobs = backgroundJobs;
+    }
 
     @Override
     public String getName() {
@@ -25,7 +41,20 @@ public class BashTool implements Tool {
 
     @Override
     public String getDescription() {
-        return "执行 bash 命令,支持超时设置。用于终端操作如 git、npm 等。";
+        return """
+            执行 bash 命令,支持超时设置。用于终端操作如 git、npm 等。
+            超时后终止命令及其子进程并返回已产生的输出。
+
+            参数:
+            - command (必需): 要执行的命令
+            - timeout (可选): 超时时间,毫秒 (默认: 120000)
+            - persistent (可选): true=在持久 shell 会话中执行,环境变量、cd 和已激活的工具链 (sdkman/nvm/venv) 在调用之间保留 (默认: false)
+            - run_in_background (可选): true=在后台启动并立即返回任务 ID,用 BashOutput 读取输出、KillBash 终止 (默认: false)
+            - cache (可选): true=对 git log/show、mvn dependency:tree、npm ls 等只读命令使用命令结果缓存,输入未变化时直接返回上次结果 (默认: false)
+
+            示例: {"command": "source venv/bin/activate && cd backend", "persistent": true}
+            示例: {"command": "npm run dev", "run_in_background": true}
+            """;
     }
 
     @Override
@@ -34,57 +63,144 @@ public class BashTool implements Tool {
             JsonNode params = MAPPER.readTree(parameters);
             String command = params.get("command").asText();
             int timeout = params.has("timeout") ? params.get("timeout").asInt() : DEFAULT_TIMEOUT;
+            boolean persistent = params.has("persistent") && params.get("persistent").asBoolean();
+
+            boolean background = params.has("run_in_background") && params.get("run_in_background").asBoolean();
+            boolean useCache = params.has("cache") && params.get("cache").asBoolean();
 
             log.debug("执行命令: {}", command);
 
+            if (background) {
+                BackgroundJobs.Job job = backgroundJobs.start(command, new File(System.getProperty("user.dir")));
+                return ToolResult.success(String.format(
+                    "已在后台启动: %s (pid %d)%n使用 BashOutput {\"id\": \"%s\"} 读取输出, KillBash 终止",
+                    job.getId(), job.getPid(), job.getId()));
+            }
+
+            if (persistent && !isWindows()) {
+                return executeInSession(command, timeout);
+            }
+
+            // 任意 shell 命令的输入无法可靠判断,只在显式要求时对白名单中的只读命令使用缓存
+            File workingDir = new File(System.getProperty("user.dir"));
+            CommandResultCache.Key cacheKey = !useCache || isWindows()
+                    ? null
+                    : CommandResultCache.keyForShell(workingDir, command);
+            CommandResultCache.Hit hit = CommandResultCache.get(cacheKey);
+            if (hit != null) {
+                return ToolResult.success(hit.output() + "\n(缓存结果,产生于 " + hit.describeAge() + ",输入未变化)");
+            }
+
             ProcessBuilder processBuilder = new ProcessBuilder();
 
             // 根据操作系统确定 shell
-            String os = System.getProperty("os.name").toLowerCase();
-            if (os.contains("win")) {
+            if (isWindows()) {
                 processBuilder.command("cmd.exe", "/c", command);
             } else {
                 processBuilder.command("bash", "-c", command);
             }
 
             // 设置工作目录
-            processBuilder.directory(new File(System.getProperty("user.dir")));
+            processBuilder.directory(workingDir);
             processBuilder.redirectErrorStream(true);
 
             Process process = processBuilder.start();
 
-            // 读取输出
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
+            // 在独立线程中读取输出,等待进程时超时才能真正生效;输出同时实时显示在终端上
+            try (LiveOutput.Channel live = LiveOutput.open(command)) {
+                OutputPump pump = OutputPump.start(process.getInputStream(), "bash-output-" + process.pid(), live);
+                ToolResult result = awaitProcess(process, pump, command, timeout);
+                if (result.isSuccess() && cacheKey != null) {
+                    CommandResultCache.put(cacheKey, command, workingDir, result.getOutput());
                 }
+                return result;
             }
 
-            // 等待完成并设置超时
-            boolean completed = process.waitFor(timeout, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("执行命令失败", e);
+            return ToolResult.failure("执行命令失败: " + e.getMessage());
+        }
+    }
 
-            if (!completed) {
-                process.destroyForcibly();
-                return ToolResult.failure("命令执行超时(超过 " + timeout + "ms)");
-            }
+    /**
+     * 等待一次性命令结束,超时则终止进程树
+     */
+    private ToolResult awaitProcess(Process process, OutputPump pump, String command, int timeout)
+            throws InterruptedException {
+
+        // 等待完成并设置超时
+        boolean completed = process.waitFor(timeout, TimeUnit.MILLISECONDS);
+
+        if (!completed) {
+            // 连同子进程一起终止,返回已产生的部分输出
+            ProcessTrees.destroy(process);
+            pump.await(OUTPUT_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+            log.warn("命令执行超时,已终止进程树: {}", command);
+            String partial = pump.output();
+            return ToolResult.failure("命令执行超时(超过 " + timeout + "ms),已终止该命令及其子进程"
+                + (partial.isEmpty() ? "" : "。已产生的输出:\n" + partial));
+        }
 
-            int exitCode = process.exitValue();
-            String result = output.toString();
+        // 后台子进程可能继续持有管道,只等待有限时间
+        if (!pump.await(OUTPUT_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            log.debug("命令已退出但输出管道仍被占用,返回已读取的输出");
+        }
 
-            if (exitCode == 0) {
-                log.debug("命令执行成功");
-                return ToolResult.success(result.isEmpty() ? "命令执行成功" : result);
-            } else {
-                log.warn("命令执行失败,退出码: {}", exitCode);
-                return ToolResult.failure("命令执行失败,退出码 " + exitCode + ":\n" + result);
+        int exitCode = process.exitValue();
+        String result = pump.output();
+
+        if (exitCode == 0) {
+            log.debug("命令执行成功");
+            return ToolResult.success(result.isEmpty() ? "命令执行成功" : result);
+        } else {
+            log.warn("命令执行失败,退出码: {}", exitCode);
+            return ToolResult.failure("命令执行失败,退出码 " + exitCode + ":\n" + result);
+        }
+    }
+
+    /**
+     * 在持久 shell 会话中执行命令
+     */
+    private ToolResult executeInSession(String command, int timeout) throws Exception {
+        ShellSession shell;
+        synchronized (this) {
+            if (session == null) {
+                session = new ShellSession(new File(System.getProperty("user.dir")));
             }
+            shell = session;
+        }
 
-        } catch (Exception e) {
-            log.error("执行命令失败", e);
-            return ToolResult.failure("执行命令失败: " + e.getMessage());
+        ShellSession.Result result;
+        try (LiveOutput.Channel live = LiveOutput.open(command)) {
+            result = shell.execute(command, timeout, live);
+        }
+        String output = result.output();
+        String note = result.restarted() ? "\n(持久 shell 已重建,之前的环境变量和当前目录已重置)" : "";
+
+        if (result.timedOut()) {
+            log.warn("持久会话命令超时: {}", command);
+            return ToolResult.failure("命令执行超时(超过 " + timeout + "ms),已终止该命令,会话保持可用"
+                + (output.isEmpty() ? "" : "。已产生的输出:\n" + output) + note);
+        }
+        if (result.exitCode() == 0) {
+            return ToolResult.success((output.isEmpty() ? "命令执行成功" : output) + note);
+        }
+        log.warn("命令执行失败,退出码: {}", result.exitCode());
+        return ToolResult.failure("命令执行失败,退出码 " + result.exitCode() + ":\n" + output + note);
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+
+    /**
+     * 关闭持久 shell 会话
+     */
+    @Override
+    public synchronized void close() {
+        if (session != null) {
+            session.close();
+            session = null;
         }
     }
 }
@@ -0,0 +1,124 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.ChangedFiles;
+import com.kejicode.utils.JavaCompileChecker;
+import com.kejicode.utils.PathValidator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Java 编译检查工具 - 在进程内快速检查改动的源文件能否编译
+ */
+@Slf4j
+public class CompileCheckTool implements Tool, AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_ERRORS = 50;
+
+    private final JavaCompileChecker checker = new JavaCompileChecker();
+
+    @Override
+    public String getName() {
+        return "CompileCheck";
+    }
+
+    @Override
+    public String getDescription() {
+        return """
+            快速检查 Java 源文件能否编译 (毫秒级),不运行 Maven、不写 target 目录。
+            只编译改动的源文件以及依赖它们的类,依赖类路径通过 Maven 解析一次后缓存 (pom.xml 修改后自动重新解析)。
+            适合在编辑后立即确认没有编译错误;完整构建和测试仍使用 Maven 工具。
+
+            参数:
+            - files (可选): 要检查的 .java 文件路径数组;默认为本次会话修改过的文件和 git 工作区中改动的文件
+            - working_directory (可选): Maven 工程根目录,默认为当前目录
+            - include_dependents (可选): 是否同时编译依赖改动类的源文件 (默认: true)
+            - refresh_classpath (可选): true=强制重新解析依赖类路径
+
+            示例:
+            {}
+
+            {
+              "files": ["src/main/java/com/example/Service.java"]
+            }
+            """;
+    }
+
+    @Override
+    public ToolResult execute(String parameters) throws Exception {
+        JsonNode params = MAPPER.readTree(parameters);
+        if (!checker.isAvailable()) {
+            return ToolResult.failure("当前运行环境没有 Java 编译器 (需要 JDK 而不是 JRE)");
+        }
+
+        String workingDir = params.has("working_directory")
+                ? params.get("working_directory").asText()
+                : PathValidator.getWorkingDirectory().toString();
+        File dir = new File(workingDir);
+        if (!new File(dir, "pom.xml").isFile()) {
+            return ToolResult.failure("未找到 pom.xml: " + workingDir);
+        }
+        Path root = dir.toPath().toAbsolutePath().normalize();
+
+        Set<Path> files = new LinkedHashSet<>();
+        if (params.has("files") && params.get("files").isArray()) {
+            for (JsonNode file : params.get("files")) {
+                files.add(PathValidator.validateAndNormalize(file.asText()));
+            }
+        } else {
+            files.addAll(ChangedFiles.collect(root));
+        }
+        files.removeIf(file -> !file.toString().endsWith(".java"));
+        if (files.isEmpty()) {
+            return ToolResult.success("没有需要检查的 Java 源文件");
+        }
+
+        boolean includeDependents = !params.has("include_dependents") || params.get("include_dependents").asBoolean();
+        boolean refresh = params.has("refresh_classpath") && params.get("refresh_classpath").asBoolean();
+
+        log.debug("编译检查 {} 个文件 (工程: {})", files.size(), root);
+        JavaCompileChecker.Report report;
+        try {
+            report = checker.check(root, files, includeDependents, refresh);
+        } catch (IOException e) {
+            return ToolResult.failure(e.getMessage());
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("编译检查: ").append(report.sources()).append(" 个源文件");
+        if (report.dependents() > 0) {
+            sb.append(" (其中 ").append(report.dependents()).append(" 个依赖改动的类)");
+        }
+        sb.append(", 耗时 ").append(report.millis()).append("ms\n");
+        report.notes().forEach(note -> sb.append(note).append('\n'));
+
+        if (report.isSuccess()) {
+            sb.append("\n没有编译错误");
+            if (report.warnings() > 0) {
+                sb.append(" (").append(report.warnings()).append(" 个警告)");
+            }
+            return ToolResult.success(sb.toString());
+        }
+
+        List<String> errors = report.errors();
+        sb.append('\n').append(errors.size()).append(" 个编译错误:\n");
+        errors.stream().limit(MAX_ERRORS).forEach(error -> sb.append(error).append('\n'));
+        if (errors.size() > MAX_ERRORS) {
+            sb.append("... 另有 ").append(errors.size() - MAX_ERRORS).append(" 个错误未显示\n");
+        }
+        return ToolResult.failure(sb.toString().trim());
+    }
+
+    @Override
+    public void close() {
+        checker.close();
+    }
+}
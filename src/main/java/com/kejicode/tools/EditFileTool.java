@@ -2,12 +2,23 @@ package com.kejicode.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.AtomicFiles;
+import com.kejicode.utils.ChangedFiles;
+import com.kejicode.utils.EditEngine;
 import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SnapshotJournal;
+import com.kejicode.utils.TextFiles;
+import com.kejicode.utils.TolerantMatcher;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 文件编辑工具 - 通过精确字符串替换编辑文件
@@ -32,6 +43,7 @@ public class EditFileTool implements Tool {
             - old_string (必需): 要被替换的原字符串
             - new_string (必需): 替换后的新字符串
             - replace_all (可选): true=替换所有出现,false=仅替换第一次出现 (默认: false)
+            - tolerant (可选): true=精确匹配失败时忽略空白、缩进和换行符(CRLF/LF)差异重新匹配,仍要求唯一匹配 (默认: false)
 
             示例: {"file_path": "src/Main.java", "old_string": "oldCode", "new_string": "newCode", "replace_all": false}
             """;
@@ -45,6 +57,7 @@ public class EditFileTool implements Tool {
             String oldString = params.get("old_string").asText();
             String newString = params.get("new_string").asText();
             boolean replaceAll = params.has("replace_all") && params.get("replace_all").asBoolean();
+            boolean tolerant = params.has("tolerant") && params.get("tolerant").asBoolean();
 
             // 验证路径是否在工作目录范围内
             Path path;
@@ -60,15 +73,61 @@ public class EditFileTool implements Tool {
                 return ToolResult.failure("文件不存在: " + relativePath);
             }
 
-            String content = Files.readString(path);
+            if (oldString.isEmpty()) {
+                return ToolResult.failure("old_string 不能为空");
+            }
 
-            // 检查 old_string 是否存在
-            if (!content.contains(oldString)) {
-                return ToolResult.failure("文件中未找到该字符串: " + oldString);
+            if (oldString.equals(newString)) {
+                // 替换结果与原内容相同,不写入,避免修改时间变化触发增量编译和文件监听
+                return ToolResult.success("old_string 与 new_string 相同,文件未修改: " + PathValidator.toRelativePath(path));
             }
 
-            // 计算出现次数
-            int count = countOccurrences(content, oldString);
+            // 按检测到的编码 (UTF-8/UTF-16/GBK 等) 读取,写回时保持原编码、BOM 和换行符
+            TextFiles.Text text = TextFiles.read(path);
+            String content = text.content();
+
+            // 单次扫描: 同时定位并统计出现次数
+            EditEngine.Matches matches = EditEngine.find(content, oldString, replaceAll);
+            if (matches.isEmpty() && "\r\n".equals(text.lineSeparator())) {
+                // CRLF 文件中用 LF 书写的多行字符串
+                String crlfOld = TolerantMatcher.adaptLineEndings(content, oldString);
+                if (!crlfOld.equals(oldString)) {
+                    matches = EditEngine.find(content, crlfOld, replaceAll);
+                }
+            }
+            List<EditEngine.Span> spans = matches.spans();
+            int count = matches.count();
+            List<String> normalizations = List.of();
+
+            if (matches.isEmpty()) {
+                if (!tolerant) {
+                    return ToolResult.failure("文件中未找到该字符串: " + oldString
+                        + "\n提示: 如果差异仅在于缩进、空白或换行符,可使用 tolerant=true");
+                }
+
+                // 容错匹配: 忽略空白与换行符差异,但仍要求唯一
+                TolerantMatcher.Result tolerantMatch = TolerantMatcher.find(content, oldString);
+                if (tolerantMatch.count() == 0) {
+                    return ToolResult.failure("文件中未找到该字符串(已忽略空白与换行符差异): " + oldString);
+                }
+                if (!tolerantMatch.isUnique()) {
+                    return ToolResult.failure(
+                        String.format("忽略空白差异后字符串在文件中出现了 %d 次。请提供更多上下文使其唯一。", tolerantMatch.count())
+                    );
+                }
+
+                spans = List.of(tolerantMatch.span());
+                count = 1;
+                normalizations = new ArrayList<>(tolerantMatch.normalizations());
+                String adapted = TolerantMatcher.adaptLineEndings(content, newString);
+                if (!adapted.equals(newString)) {
+                    normalizations.add("替换文本换行符转换为 CRLF");
+                    newString = adapted;
+                }
+            } else if ("\r\n".equals(text.lineSeparator())) {
+                // 保持文件原有的换行符风格
+                newString = TolerantMatcher.adaptLineEndings(content, newString);
+            }
 
             if (!replaceAll && count > 1) {
                 return ToolResult.failure(
@@ -76,22 +135,30 @@ public class EditFileTool implements Tool {
                 );
             }
 
-            // 执行替换
-            String newContent;
-            if (replaceAll) {
-                newContent = content.replace(oldString, newString);
-            } else {
-                // 替换第一次出现
-                int index = content.indexOf(oldString);
-                newContent = content.substring(0, index) + newString + content.substring(index + oldString.length());
+            // 流式写出替换结果到临时文件后原子移动,不在内存中拼接完整的新内容
+            TextFiles.Encoding encoding = text.encoding();
+            try {
+                writeReplaced(path, content, spans, newString, encoding);
+            } catch (CharacterCodingException e) {
+                return ToolResult.failure("新内容包含 " + encoding.charset().name() + " 编码无法表示的字符,文件未修改");
             }
-
-            Files.writeString(path, newContent);
+            // 写入成功后记录撤销信息; 记录时要读取修改后的内容,先释放解码后的文本,只保留原始字节
+            byte[] preImage = text.bytes();
+            text = null;
+            content = null;
+            SnapshotJournal.recordWritten(path, preImage);
+            ChangedFiles.record(path);
 
             String relativePath = PathValidator.toRelativePath(path);
             String message = replaceAll ?
                 String.format("在 %s 中替换了 %d 处", relativePath, count) :
                 String.format("在 %s 中替换了 1 处", relativePath);
+            if (!normalizations.isEmpty()) {
+                message += " (容错匹配,已忽略: " + String.join(", ", normalizations) + ")";
+            }
+            if (!StandardCharsets.UTF_8.equals(encoding.charset()) || encoding.hasBom()) {
+                message += " [编码: " + encoding.describe() + "]";
+            }
 
             log.debug(message);
             return ToolResult.success(message);
@@ -102,13 +169,12 @@ public class EditFileTool implements Tool {
         }
     }
 
-    private int countOccurrences(String text, String pattern) {
-        int count = 0;
-        int index = 0;
-        while ((index = text.indexOf(pattern, index)) != -1) {
-            count++;
-            index += pattern.length();
-        }
-        return count;
+    private static void writeReplaced(Path path, String content, List<EditEngine.Span> spans, String replacement,
+                                      TextFiles.Encoding encoding) throws IOException {
+        AtomicFiles.write(path, out -> {
+            Writer writer = TextFiles.newWriter(out, encoding);
+            EditEngine.write(content, spans, replacement, writer);
+            writer.flush();
+        });
     }
 }
@@ -2,11 +2,12 @@ package com.kejicode.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.CommandResultCache;
+import com.kejicode.utils.InProcessGit;
+import com.kejicode.utils.ProcessExecutor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
 
 /**
  * Git 版本管理工具
@@ -14,6 +15,8 @@ import java.io.InputStreamReader;
 @Slf4j
 public class GitTool implements Tool {
 
+    private static final long DEFAULT_TIMEOUT = 120000; // 2 分钟
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
@@ -29,6 +32,8 @@ public class GitTool implements Tool {
             参数:
             - command (必需): Git 命令，如 "status", "add .", "commit -m 'message'", "log", "diff" 等
             - working_directory (可选): 工作目录，默认为当前目录
+            - timeout (可选): 超时时间,毫秒 (默认: 120000),超时后终止命令及其子进程
+            - no_cache (可选): true=不使用命令结果缓存 (log/show 等只读命令的结果在 HEAD 和引用未移动时会被复用)
 
             示例:
             {
@@ -60,6 +65,8 @@ public class GitTool implements Tool {
             String workingDir = params.has("working_directory")
                     ? params.get("working_directory").asText()
                     : System.getProperty("user.dir");
+            long timeout = params.has("timeout") ? params.get("timeout").asLong() : DEFAULT_TIMEOUT;
+            boolean noCache = params.has("no_cache") && params.get("no_cache").asBoolean();
 
             // 验证工作目录
             File dir = new File(workingDir);
@@ -78,44 +85,51 @@ public class GitTool implements Tool {
 
             log.debug("执行 Git 命令: {} 在目录: {}", fullCommand, workingDir);
 
-            // 执行命令
-            ProcessBuilder processBuilder = new ProcessBuilder();
-
-            // 根据操作系统选择 shell
-            if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                processBuilder.command("cmd.exe", "/c", fullCommand);
-            } else {
-                processBuilder.command("sh", "-c", fullCommand);
+            // HEAD 和引用未移动时,历史相关的只读命令直接返回上次的结果
+            CommandResultCache.Key cacheKey = noCache ? null : CommandResultCache.key("git", dir, command);
+            CommandResultCache.Hit hit = CommandResultCache.get(cacheKey);
+            if (hit != null) {
+                return ToolResult.success("Git 命令: " + fullCommand + "\n工作目录: " + workingDir
+                        + "\n来源: 命令结果缓存 (产生于 " + hit.describeAge() + ")\n\n" + hit.output());
             }
 
-            processBuilder.directory(dir);
-            processBuilder.redirectErrorStream(true);
-
-            Process process = processBuilder.start();
-
-            // 读取输出
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
+            // 常用只读命令在进程内执行,写操作和不支持的参数仍走命令行
+            String inProcess = InProcessGit.execute(dir, command);
+            if (inProcess != null) {
+                String result = inProcess.trim();
+                result = result.isEmpty() ? "命令执行成功（无输出）" : result;
+                CommandResultCache.put(cacheKey, fullCommand, dir, result);
+                return ToolResult.success("Git 命令: " + fullCommand + "\n工作目录: " + workingDir
+                        + "\n\n" + result);
             }
 
-            int exitCode = process.waitFor();
-
-            String result = output.toString().trim();
+            // 执行命令
+            ProcessExecutor.Result execution = ProcessExecutor.execute(ProcessExecutor.Request.builder()
+                    .command(fullCommand)
+                    .directory(dir)
+                    .timeoutMillis(timeout)
+                    .env("GIT_TERMINAL_PROMPT", "0")
+                    .build());
+
+            String result = execution.output().trim();
             if (result.isEmpty()) {
                 result = "命令执行成功（无输出）";
             }
 
+            if (execution.timedOut()) {
+                log.warn("Git 命令执行超时: {}", fullCommand);
+                return ToolResult.failure("Git 命令执行超时（超过 " + timeout + "ms），已终止该命令及其子进程。已产生的输出:\n" + result);
+            }
+
+            int exitCode = execution.exitCode();
             if (exitCode == 0) {
                 log.debug("Git 命令执行成功");
-                return ToolResult.success("Git 命令: " + fullCommand + "\n工作目录: " + workingDir + "\n\n" + result);
+                CommandResultCache.put(cacheKey, fullCommand, dir, result);
+                return ToolResult.success("Git 命令: " + fullCommand + "\n工作目录: " + workingDir
+                        + "\n耗时: " + execution.describeTiming() + "\n\n" + result);
             } else {
                 log.warn("Git 命令执行失败，退出码: {}", exitCode);
-                return ToolResult.failure("Git 命令执行失败（退出码 " + exitCode + "）:\n" + result);
+                return ToolResult.failure("Git 命令执行失败（退出码 " + exitCode + "，耗时 " + execution.describeTiming() + "）:\n" + result);
             }
 
         } catch (Exception e) {
@@ -3,11 +3,12 @@ package com.kejicode.tools;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.WorkspaceFiles;
+import com.kejicode.utils.WorkspaceSearch;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -27,7 +28,9 @@ public class GlobTool implements Tool {
 
     @Override
     public String getDescription() {
-        return "快速的文件模式匹配工具。支持 glob 模式如 **/*.js 或 src/**/*.ts";
+        return "快速的文件模式匹配工具。支持 glob 模式如 **/*.js 或 src/**/*.ts。"
+            + "工作目录是 Git 仓库时只搜索已跟踪的文件,include_untracked=true 时包括未跟踪且未被忽略的文件。"
+            + "多根工作区中不指定 path 时并发搜索所有根目录,结果按根目录分组";
     }
 
     @Override
@@ -35,70 +38,57 @@ public class GlobTool implements Tool {
         try {
             JsonNode params = MAPPER.readTree(parameters);
             String pattern = params.get("pattern").asText();
-            String searchPath = params.has("path") ? params.get("path").asText() : ".";
-
-            // 验证搜索路径是否在工作目录范围内
-            Path basePath;
-            try {
-                basePath = PathValidator.validateAndNormalize(searchPath);
-            } catch (SecurityException e) {
-                log.warn("路径安全检查失败: {}", e.getMessage());
-                return ToolResult.failure("安全错误: " + e.getMessage());
+            boolean includeUntracked = params.has("include_untracked") && params.get("include_untracked").asBoolean();
+
+            // 验证搜索路径是否在工作目录范围内; 未指定路径时搜索全部工作区根目录
+            Path explicitPath = null;
+            if (params.has("path")) {
+                try {
+                    explicitPath = PathValidator.validateAndNormalize(params.get("path").asText());
+                } catch (SecurityException e) {
+                    log.warn("路径安全检查失败: {}", e.getMessage());
+                    return ToolResult.failure("安全错误: " + e.getMessage());
+                }
+                if (!Files.exists(explicitPath)) {
+                    return ToolResult.failure("搜索路径不存在: " + PathValidator.toRelativePath(explicitPath));
+                }
             }
-
-            if (!Files.exists(basePath)) {
-                return ToolResult.failure("搜索路径不存在: " + PathValidator.toRelativePath(basePath));
+            List<Path> bases = WorkspaceSearch.bases(explicitPath);
+            if (bases.isEmpty()) {
+                return ToolResult.failure("搜索路径不存在: " + PathValidator.getWorkingDirectory());
             }
 
-            Path workingDir = PathValidator.getWorkingDirectory();
-            List<FileMatch> matches = new ArrayList<>();
             PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            List<WorkspaceSearch.RootResult<FileMatch>> perRoot = WorkspaceSearch.run(bases,
+                (root, basePath) -> searchRoot(root, basePath, matcher, includeUntracked));
 
-            Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    // 只包含在工作目录内的文件
-                    if (!file.startsWith(workingDir)) {
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    Path relativePath = basePath.relativize(file);
-                    if (matcher.matches(relativePath) || matcher.matches(file.getFileName())) {
-                        matches.add(new FileMatch(file, attrs.lastModifiedTime().toMillis()));
+            StringBuilder output = new StringBuilder();
+            int total = perRoot.stream().mapToInt(r -> r.items().size()).sum();
+            output.append(String.format("找到 %d 个匹配模式 '%s' 的文件:\n\n", total, pattern));
+
+            boolean labelRoots = perRoot.size() > 1;
+            for (WorkspaceSearch.RootResult<FileMatch> rootResult : perRoot) {
+                List<FileMatch> matches = new ArrayList<>(rootResult.items());
+                if (labelRoots) {
+                    if (matches.isEmpty()) {
+                        continue;
                     }
-                    return FileVisitResult.CONTINUE;
+                    output.append(String.format("[%s] %s (%d 个):\n",
+                        PathValidator.rootLabel(rootResult.root()), rootResult.root(), matches.size()));
                 }
 
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    // 跳过隐藏目录和常见的忽略目录
-                    String dirName = dir.getFileName() != null ? dir.getFileName().toString() : "";
-                    if (dirName.startsWith(".") || dirName.equals("node_modules") ||
-                        dirName.equals("target") || dirName.equals("build")) {
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
-                    return FileVisitResult.CONTINUE;
+                // 按修改时间排序（最新的在前）
+                matches.sort(Comparator.comparingLong(FileMatch::lastModified).reversed());
+                for (FileMatch match : matches) {
+                    String displayPath = PathValidator.toRelativePath(match.path());
+                    output.append(displayPath).append("\n");
                 }
-
-                @Override
-                public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                    // 出错时继续
-                    return FileVisitResult.CONTINUE;
+                if (labelRoots) {
+                    output.append("\n");
                 }
-            });
-
-            // 按修改时间排序（最新的在前）
-            matches.sort(Comparator.comparingLong(FileMatch::lastModified).reversed());
-
-            StringBuilder output = new StringBuilder();
-            output.append(String.format("找到 %d 个匹配模式 '%s' 的文件:\n\n", matches.size(), pattern));
-
-            for (FileMatch match : matches) {
-                String displayPath = PathValidator.toRelativePath(match.path());
-                output.append(displayPath).append("\n");
             }
 
-            log.debug("找到 {} 个匹配模式的文件: {}", matches.size(), pattern);
+            log.debug("找到 {} 个匹配模式的文件: {}", total, pattern);
             return ToolResult.success(output.toString());
 
         } catch (IOException e) {
@@ -107,5 +97,25 @@ public class GlobTool implements Tool {
         }
     }
 
+    /**
+     * 在单个工作区根目录内查找，使用该根目录自己的 Git 索引和忽略规则
+     */
+    private List<FileMatch> searchRoot(Path root, Path basePath, PathMatcher matcher,
+                                       boolean includeUntracked) throws IOException {
+        // 模式既可以匹配相对路径,也可以只匹配文件名
+        PathMatcher pathOrName = relative -> matcher.matches(relative)
+            || (relative.getFileName() != null && matcher.matches(relative.getFileName()));
+
+        List<FileMatch> matches = new ArrayList<>();
+        for (Path file : WorkspaceFiles.list(root, basePath, pathOrName, null, includeUntracked)) {
+            try {
+                matches.add(new FileMatch(file, Files.getLastModifiedTime(file).toMillis()));
+            } catch (IOException e) {
+                // 文件在列出后被删除
+            }
+        }
+        return matches;
+    }
+
     private record FileMatch(Path path, long lastModified) {}
 }
@@ -3,15 +3,23 @@ package com.kejicode.tools;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SafeRegex;
+import com.kejicode.utils.TextFiles;
+import com.kejicode.utils.WorkspaceFiles;
+import com.kejicode.utils.WorkspaceSearch;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
 
 /**
  * 文件内容搜索工具 - 使用正则表达式
@@ -21,6 +29,9 @@ public class GrepTool implements Tool {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    /** 匹配超出预算的文件达到该数量时中止搜索 */
+    private static final int MAX_SKIPPED_FILES = 3;
+
     @Override
     public String getName() {
         return "Grep";
@@ -28,7 +39,9 @@ public class GrepTool implements Tool {
 
     @Override
     public String getDescription() {
-        return "强大的文件内容搜索工具。支持正则表达式和多种输出模式。";
+        return "强大的文件内容搜索工具。支持正则表达式和多种输出模式。"
+            + "工作目录是 Git 仓库时只搜索已跟踪的文件,include_untracked=true 时包括未跟踪且未被忽略的文件。"
+            + "多根工作区中不指定 path 时并发搜索所有根目录,结果按根目录分组。";
     }
 
     @Override
@@ -36,7 +49,6 @@ public class GrepTool implements Tool {
         try {
             JsonNode params = MAPPER.readTree(parameters);
             String patternStr = params.get("pattern").asText();
-            String searchPath = params.has("path") ? params.get("path").asText() : ".";
             final String outputMode = params.has("output_mode") ? params.get("output_mode").asText() : "files_with_matches";
             boolean caseInsensitive = params.has("-i") && params.get("-i").asBoolean();
             final boolean showLineNumbers = params.has("-n") && params.get("-n").asBoolean();
@@ -51,71 +63,55 @@ public class GrepTool implements Tool {
             Integer headLimit = params.has("head_limit") ? params.get("head_limit").asInt() : null;
             String globPattern = params.has("glob") ? params.get("glob").asText() : null;
             final String typeFilter = params.has("type") ? params.get("type").asText() : null;
-
-            // 验证搜索路径是否在工作目录范围内
-            Path basePath;
-            try {
-                basePath = PathValidator.validateAndNormalize(searchPath);
-            } catch (SecurityException e) {
-                log.warn("路径安全检查失败: {}", e.getMessage());
-                return ToolResult.failure("安全错误: " + e.getMessage());
+            boolean includeUntracked = params.has("include_untracked") && params.get("include_untracked").asBoolean();
+
+            // 验证搜索路径是否在工作目录范围内; 未指定路径时搜索全部工作区根目录
+            Path explicitPath = null;
+            if (params.has("path")) {
+                try {
+                    explicitPath = PathValidator.validateAndNormalize(params.get("path").asText());
+                } catch (SecurityException e) {
+                    log.warn("路径安全检查失败: {}", e.getMessage());
+                    return ToolResult.failure("安全错误: " + e.getMessage());
+                }
+                if (!Files.exists(explicitPath)) {
+                    return ToolResult.failure("搜索路径不存在: " + PathValidator.toRelativePath(explicitPath));
+                }
             }
-
-            if (!Files.exists(basePath)) {
-                return ToolResult.failure("搜索路径不存在: " + PathValidator.toRelativePath(basePath));
+            List<Path> bases = WorkspaceSearch.bases(explicitPath);
+            if (bases.isEmpty()) {
+                return ToolResult.failure("搜索路径不存在: " + PathValidator.getWorkingDirectory());
             }
 
-            Path workingDir = PathValidator.getWorkingDirectory();
             int flags = caseInsensitive ? Pattern.CASE_INSENSITIVE : 0;
-            final Pattern pattern = Pattern.compile(patternStr, flags);
-
-            final List<SearchResult> results = new ArrayList<>();
-
-            if (Files.isRegularFile(basePath)) {
-                searchFile(basePath, pattern, results, outputMode, showLineNumbers, finalContextBefore, finalContextAfter);
-            } else {
-                PathMatcher globMatcher = globPattern != null ?
-                    FileSystems.getDefault().getPathMatcher("glob:" + globPattern) : null;
-
-                Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                        try {
-                            // 只包含在工作目录内的文件
-                            if (!file.startsWith(workingDir)) {
-                                return FileVisitResult.CONTINUE;
-                            }
-
-                            // 应用过滤器
-                            if (globMatcher != null) {
-                                Path relativePath = basePath.relativize(file);
-                                if (!globMatcher.matches(relativePath)) {
-                                    return FileVisitResult.CONTINUE;
-                                }
-                            }
-
-                            if (typeFilter != null && !matchesType(file, typeFilter)) {
-                                return FileVisitResult.CONTINUE;
-                            }
-
-                            searchFile(file, pattern, results, outputMode, showLineNumbers, finalContextBefore, finalContextAfter);
-
-                        } catch (IOException e) {
-                            log.warn("搜索文件出错 {}: {}", file, e.getMessage());
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
+            final Pattern pattern;
+            try {
+                pattern = SafeRegex.compile(patternStr, flags);
+            } catch (PatternSyntaxException e) {
+                return ToolResult.failure("正则表达式无效: " + e.getMessage());
+            }
 
-                    @Override
-                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                        String dirName = dir.getFileName() != null ? dir.getFileName().toString() : "";
-                        if (dirName.startsWith(".") || dirName.equals("node_modules") ||
-                            dirName.equals("target") || dirName.equals("build")) {
-                            return FileVisitResult.SKIP_SUBTREE;
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
+            PathMatcher globMatcher = globPattern != null ?
+                FileSystems.getDefault().getPathMatcher("glob:" + globPattern) : null;
+
+            // 匹配超出预算而跳过的文件,多个根目录并发搜索时共享
+            List<Path> skipped = Collections.synchronizedList(new ArrayList<>());
+            List<WorkspaceSearch.RootResult<SearchResult>> perRoot;
+            try {
+                perRoot = WorkspaceSearch.run(bases, (root, basePath) -> {
+                    List<SearchResult> rootResults = new ArrayList<>();
+                    searchRoot(root, basePath, pattern, globMatcher, typeFilter, includeUntracked, rootResults,
+                        skipped, outputMode, showLineNumbers, finalContextBefore, finalContextAfter);
+                    return rootResults;
                 });
+            } catch (SafeRegex.BudgetExceededException e) {
+                return ToolResult.failure(e.getMessage());
+            }
+
+            // 合并各根目录的结果，保持根目录顺序
+            List<SearchResult> results = new ArrayList<>();
+            for (WorkspaceSearch.RootResult<SearchResult> rootResult : perRoot) {
+                results.addAll(rootResult.items());
             }
 
             // 应用数量限制
@@ -124,7 +120,11 @@ public class GrepTool implements Tool {
                 limitedResults = results.subList(0, headLimit);
             }
 
-            String output = formatResults(limitedResults, outputMode);
+            String output = formatResults(limitedResults, outputMode, perRoot.size() > 1);
+            if (!skipped.isEmpty()) {
+                output += "\n已跳过 " + skipped.size() + " 个文件 (正则匹配超出步数/时间预算,可能存在灾难性回溯): "
+                    + describeFiles(skipped) + "\n";
+            }
             log.debug("找到 {} 个匹配结果: {}", limitedResults.size(), patternStr);
 
             return ToolResult.success(output);
@@ -135,33 +135,73 @@ public class GrepTool implements Tool {
         }
     }
 
-    private void searchFile(Path file, Pattern pattern, List<SearchResult> results,
+    /**
+     * 在单个工作区根目录内搜索，使用该根目录自己的 Git 索引和忽略规则
+     */
+    private void searchRoot(Path root, Path basePath, Pattern pattern, PathMatcher globMatcher,
+                            String typeFilter, boolean includeUntracked, List<SearchResult> results,
+                            List<Path> skipped, String outputMode, boolean showLineNumbers,
+                            int contextBefore, int contextAfter) throws IOException {
+        if (Files.isRegularFile(basePath)) {
+            searchFile(basePath, pattern, results, skipped, outputMode, showLineNumbers, contextBefore, contextAfter);
+            return;
+        }
+        for (Path file : WorkspaceFiles.list(root, basePath, globMatcher, typeFilter, includeUntracked)) {
+            try {
+                searchFile(file, pattern, results, skipped, outputMode, showLineNumbers, contextBefore, contextAfter);
+            } catch (IOException e) {
+                log.warn("搜索文件出错 {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void searchFile(Path file, Pattern pattern, List<SearchResult> results, List<Path> skipped,
                            String outputMode, boolean showLineNumbers,
                            int contextBefore, int contextAfter) throws IOException {
 
-        List<String> lines = Files.readAllLines(file);
         int matchCount = 0;
         List<MatchLine> matchedLines = new ArrayList<>();
+        boolean collectLines = "content".equals(outputMode);
 
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            Matcher matcher = pattern.matcher(line);
-
-            if (matcher.find()) {
-                matchCount++;
+        // 流式逐行匹配,只保留前置上下文所需的最近几行
+        try (TextFiles.TextReader reader = TextFiles.newReader(file)) {
+            if (reader.getEncoding().binary()) {
+                return;
+            }
+            Deque<MatchLine> before = new ArrayDeque<>();
+            int afterRemaining = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                Matcher matcher = pattern.matcher(SafeRegex.guard(line));
+
+                boolean found;
+                try {
+                    found = matcher.find();
+                } catch (SafeRegex.BudgetExceededException e) {
+                    skip(file, lineNumber, e, skipped);
+                    return;
+                }
 
-                if ("content".equals(outputMode)) {
-                    // Add context lines before
-                    for (int j = Math.max(0, i - contextBefore); j < i; j++) {
-                        matchedLines.add(new MatchLine(j + 1, lines.get(j), false));
+                if (found) {
+                    matchCount++;
+                    if (collectLines) {
+                        // 前置上下文 + 匹配行
+                        matchedLines.addAll(before);
+                        before.clear();
+                        matchedLines.add(new MatchLine(lineNumber, line, true));
+                        afterRemaining = contextAfter;
                     }
-
-                    // Add matched line
-                    matchedLines.add(new MatchLine(i + 1, line, true));
-
-                    // Add context lines after
-                    for (int j = i + 1; j <= Math.min(lines.size() - 1, i + contextAfter); j++) {
-                        matchedLines.add(new MatchLine(j + 1, lines.get(j), false));
+                } else if (collectLines) {
+                    if (afterRemaining > 0) {
+                        matchedLines.add(new MatchLine(lineNumber, line, false));
+                        afterRemaining--;
+                    } else if (contextBefore > 0) {
+                        before.addLast(new MatchLine(lineNumber, line, false));
+                        if (before.size() > contextBefore) {
+                            before.removeFirst();
+                        }
                     }
                 }
             }
@@ -172,26 +212,33 @@ public class GrepTool implements Tool {
         }
     }
 
-    private boolean matchesType(Path file, String type) {
-        String fileName = file.getFileName().toString();
-        return switch (type.toLowerCase()) {
-            case "java" -> fileName.endsWith(".java");
-            case "js" -> fileName.endsWith(".js");
-            case "ts" -> fileName.endsWith(".ts");
-            case "py" -> fileName.endsWith(".py");
-            case "xml" -> fileName.endsWith(".xml");
-            case "json" -> fileName.endsWith(".json");
-            case "yaml", "yml" -> fileName.endsWith(".yaml") || fileName.endsWith(".yml");
-            default -> false;
-        };
+    /**
+     * 记录匹配超出预算的文件; 多个文件都超出时说明是表达式本身的问题,中止整个搜索
+     */
+    private void skip(Path file, int lineNumber, SafeRegex.BudgetExceededException e, List<Path> skipped) {
+        log.warn("正则匹配超出预算,跳过 {} (第 {} 行): {}", file, lineNumber, e.getMessage());
+        skipped.add(file);
+        if (skipped.size() >= MAX_SKIPPED_FILES) {
+            throw new SafeRegex.BudgetExceededException(String.format(
+                "正则表达式在 %d 个文件上匹配超出步数/时间预算 (%s),可能存在灾难性回溯 (如 (.*a){12} 这样的嵌套量词),搜索已中止: %s",
+                skipped.size(), e.getMessage(), describeFiles(skipped)));
+        }
     }
 
-    private String formatResults(List<SearchResult> results, String outputMode) {
+    private String describeFiles(List<Path> files) {
+        synchronized (files) {
+            return files.stream().map(PathValidator::toRelativePath).collect(Collectors.joining(", "));
+        }
+    }
+
+    private String formatResults(List<SearchResult> results, String outputMode, boolean labelRoots) {
         StringBuilder sb = new StringBuilder();
+        Path currentRoot = null;
 
         switch (outputMode) {
             case "files_with_matches":
                 for (SearchResult result : results) {
+                    currentRoot = appendRootLabel(sb, result.file(), currentRoot, labelRoots);
                     String displayPath = PathValidator.toRelativePath(result.file());
                     sb.append(displayPath).append("\n");
                 }
@@ -199,6 +246,7 @@ public class GrepTool implements Tool {
 
             case "count":
                 for (SearchResult result : results) {
+                    currentRoot = appendRootLabel(sb, result.file(), currentRoot, labelRoots);
                     String displayPath = PathValidator.toRelativePath(result.file());
                     sb.append(displayPath).append(": ").append(result.matchCount()).append("\n");
                 }
@@ -206,6 +254,7 @@ public class GrepTool implements Tool {
 
             case "content":
                 for (SearchResult result : results) {
+                    currentRoot = appendRootLabel(sb, result.file(), currentRoot, labelRoots);
                     String displayPath = PathValidator.toRelativePath(result.file());
                     sb.append("\n").append(displayPath).append(":\n");
                     for (MatchLine line : result.matchedLines()) {
@@ -218,6 +267,23 @@ public class GrepTool implements Tool {
         return sb.toString();
     }
 
+    /**
+     * 多根工作区中进入新的根目录时输出分组标签，返回当前所在的根目录
+     */
+    private Path appendRootLabel(StringBuilder sb, Path file, Path currentRoot, boolean labelRoots) {
+        if (!labelRoots) {
+            return currentRoot;
+        }
+        Path root = PathValidator.rootOf(file);
+        if (root != null && !root.equals(currentRoot)) {
+            if (sb.length() > 0) {
+                sb.append("\n");
+            }
+            sb.append("[").append(PathValidator.rootLabel(root)).append("] ").append(root).append("\n");
+        }
+        return root;
+    }
+
     private record SearchResult(Path file, int matchCount, List<MatchLine> matchedLines) {}
     private record MatchLine(int lineNumber, String content, boolean isMatch) {}
 }
@@ -0,0 +1,58 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.BackgroundJobs;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 后台任务终止工具
+ */
+@Slf4j
+public class KillBashTool implements Tool {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BackgroundJobs jobs;
+
+    public KillBashTool(BackgroundJobs jobs) {
+        this.jobs = jobs;
+    }
+
+    @Override
+    public String getName() {
+        return "KillBash";
+    }
+
+    @Override
+    public String getDescription() {
+        return """
+            终止后台命令及其子进程。
+
+            参数:
+            - id (必需): 后台任务 ID,如 "bg-1"
+
+            示例: {"id": "bg-1"}
+            """;
+    }
+
+    @Override
+    public ToolResult execute(String parameters) throws Exception {
+        JsonNode params = MAPPER.readTree(parameters);
+        if (!params.has("id")) {
+            return ToolResult.failure("缺少必需参数: id");
+        }
+
+        String id = params.get("id").asText();
+        BackgroundJobs.Job job = jobs.get(id);
+        if (job == null) {
+            return ToolResult.failure("后台任务不存在: " + id);
+        }
+        if (!job.isRunning()) {
+            return ToolResult.success("后台任务 " + id + " 已结束: " + job.status());
+        }
+
+        jobs.kill(id);
+        return ToolResult.success("已终止后台任务 " + id);
+    }
+}
@@ -2,20 +2,39 @@ package com.kejicode.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.ChangedFiles;
+import com.kejicode.utils.CommandResultCache;
+import com.kejicode.utils.EmbeddedMaven;
+import com.kejicode.utils.LiveOutput;
+import com.kejicode.utils.MavenLauncher;
+import com.kejicode.utils.MavenModuleGraph;
+import com.kejicode.utils.MavenOutputParser;
+import com.kejicode.utils.ProcessExecutor;
+import com.kejicode.utils.ShellWords;
+import com.kejicode.utils.TestImpact;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Maven 构建工具
  */
 @Slf4j
-public class MavenTool implements Tool {
+public class MavenTool implements Tool, AutoCloseable {
+
+    private static final long DEFAULT_TIMEOUT = 1800000; // 30 分钟
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private EmbeddedMaven embeddedMaven;
+    private volatile String lastLog;
+
     @Override
     public String getName() {
         return "Maven";
@@ -29,6 +48,16 @@ public class MavenTool implements Tool {
             参数:
             - command (必需): Maven 命令，如 "clean install", "compile", "test", "package" 等
             - working_directory (可选): 工作目录，默认为当前目录
+            - timeout (可选): 超时时间,毫秒 (默认: 1800000),超时后终止命令及其子进程
+            - mode (可选): 启动方式 auto/mvnd/mvnw/mvn/embedded (默认: auto,依次优先 mvnd、./mvnw、mvn);
+              embedded 在当前进程内保持一个预热的 Maven,省去每次构建的 JVM 启动
+            - raw (可选): true=返回完整的控制台输出;默认对构建命令只返回摘要 (模块状态、编译错误、失败的测试)
+            - show_last_log (可选): true=不执行命令,返回上一次 Maven 命令的完整控制台输出
+            - no_cache (可选): true=不使用命令结果缓存 (dependency:tree、help:effective-pom 等的结果在 pom.xml 未变化时会被复用)
+            - changed_only (可选): true=只构建有改动的模块及依赖它们的模块 (自动添加 -pl ... -amd);
+              改动来自本次会话中修改过的文件和 git 工作区,根 pom.xml 有改动时构建全部模块
+            - affected_tests (可选): true=只运行受改动影响的测试类 (根据 target 中类文件的依赖关系,通过 -Dtest= 传给 surefire);
+              编译输出落后于源码或改动了资源/pom 时运行全部测试
 
             示例:
             {
@@ -43,6 +72,12 @@ public class MavenTool implements Tool {
             {
               "command": "clean package -DskipTests"
             }
+
+            {
+              "command": "test",
+              "changed_only": true,
+              "affected_tests": true
+            }
             """;
     }
 
@@ -51,6 +86,13 @@ public class MavenTool implements Tool {
         try {
             JsonNode params = objectMapper.readTree(arguments);
 
+            if (params.has("show_last_log") && params.get("show_last_log").asBoolean()) {
+                String logText = lastLog;
+                return logText == null
+                        ? ToolResult.failure("还没有执行过 Maven 命令")
+                        : ToolResult.success(logText);
+            }
+
             // 获取参数
             if (!params.has("command")) {
                 return ToolResult.failure("缺少必需参数: command");
@@ -60,6 +102,14 @@ public class MavenTool implements Tool {
             String workingDir = params.has("working_directory")
                     ? params.get("working_directory").asText()
                     : System.getProperty("user.dir");
+            long timeout = params.has("timeout") ? params.get("timeout").asLong() : DEFAULT_TIMEOUT;
+            MavenLauncher.Mode requestedMode = params.has("mode")
+                    ? MavenLauncher.Mode.fromLabel(params.get("mode").asText())
+                    : null;
+            boolean raw = params.has("raw") && params.get("raw").asBoolean();
+            boolean changedOnly = params.has("changed_only") && params.get("changed_only").asBoolean();
+            boolean affectedTests = params.has("affected_tests") && params.get("affected_tests").asBoolean();
+            boolean noCache = params.has("no_cache") && params.get("no_cache").asBoolean();
 
             // 验证工作目录
             File dir = new File(workingDir);
@@ -73,49 +123,108 @@ public class MavenTool implements Tool {
                 return ToolResult.failure("未找到 pom.xml: " + workingDir);
             }
 
-            // 构建完整命令
-            String fullCommand = "mvn " + command;
-
-            log.debug("执行 Maven 命令: {} 在目录: {}", fullCommand, workingDir);
+            // 只构建改动的模块
+            ModuleSelection selection = null;
+            if (changedOnly) {
+                selection = selectChangedModules(dir);
+                if (selection.nothingChanged()) {
+                    return ToolResult.success("没有检测到改动的文件,无需构建: " + workingDir);
+                }
+                if (selection.projects() != null) {
+                    command = "-pl " + selection.projects() + " -amd " + command;
+                }
+            }
 
-            // 执行命令
-            ProcessBuilder processBuilder = new ProcessBuilder();
+            // 只运行受影响的测试
+            String testReport = null;
+            Set<Path> testedFiles = Set.of();
+            if (affectedTests && !command.contains("-Dtest=")) {
+                testedFiles = ChangedFiles.collect(dir.toPath().toAbsolutePath().normalize());
+                TestImpact.Selection tests = TestImpact.select(dir.toPath(), testedFiles);
+                if (tests.isStale()) {
+                    testReport = "无法确定受影响的测试 (" + tests.staleReason() + "),运行全部测试";
+                    testedFiles = Set.of();
+                } else if (tests.tests().isEmpty()) {
+                    command = command + " -DskipTests";
+                    testReport = "没有受改动影响的测试,已跳过测试";
+                } else {
+                    command = command + " -Dtest=" + String.join(",", tests.tests())
+                            + " -Dsurefire.failIfNoSpecifiedTests=false";
+                    testReport = "受影响的测试 (" + tests.tests().size() + "): " + String.join(", ", tests.tests());
+                }
+            }
 
-            // 根据操作系统选择 shell
-            if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                processBuilder.command("cmd.exe", "/c", fullCommand);
-            } else {
-                processBuilder.command("sh", "-c", fullCommand);
+            // pom.xml 未变化时,依赖树等只读目标直接返回上次的结果
+            CommandResultCache.Key cacheKey = noCache ? null : CommandResultCache.key("mvn", dir, command);
+            CommandResultCache.Hit hit = CommandResultCache.get(cacheKey);
+            if (hit != null) {
+                return ToolResult.success("Maven 命令: mvn " + command + "\n工作目录: " + workingDir
+                        + "\n来源: 命令结果缓存 (产生于 " + hit.describeAge() + ")\n\n" + hit.output());
             }
 
-            processBuilder.directory(dir);
-            processBuilder.redirectErrorStream(true);
+            // 选择启动方式并构建完整命令
+            MavenLauncher.Mode mode = MavenLauncher.select(dir, requestedMode);
+            String fullCommand = MavenLauncher.executable(mode) + " " + command;
 
-            Process process = processBuilder.start();
+            log.debug("执行 Maven 命令: {} 在目录: {} (启动方式: {})", fullCommand, workingDir, mode.getLabel());
 
-            // 读取输出
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
+            List<String> args = ShellWords.split(command);
+            if (args == null) {
+                return ToolResult.failure("无法解析 Maven 命令 (引号未闭合): " + command);
             }
 
-            int exitCode = process.waitFor();
+            // 执行命令,输出同时实时显示在终端上,并逐行交给解析器提取摘要
+            MavenOutputParser parser = new MavenOutputParser(dir.toPath().toAbsolutePath().normalize());
+            long buildStart = System.currentTimeMillis();
+            ProcessExecutor.Result execution;
+            try (LiveOutput.Channel live = LiveOutput.open(fullCommand)) {
+                Consumer<String> listener = live.andThen(parser);
+                if (mode == MavenLauncher.Mode.EMBEDDED) {
+                    execution = embedded().execute(args, dir, timeout, listener);
+                } else {
+                    execution = ProcessExecutor.execute(ProcessExecutor.Request.builder()
+                            .command(fullCommand)
+                            .directory(dir)
+                            .timeoutMillis(timeout)
+                            .listener(listener)
+                            .build());
+                }
+            }
+            MavenLauncher.recordTiming(mode, execution.durationMillis());
+            lastLog = "Maven 命令: " + fullCommand + "\n工作目录: " + workingDir + "\n\n" + execution.output();
 
-            String result = output.toString().trim();
+            String result = execution.output().trim();
             if (result.isEmpty()) {
                 result = "命令执行成功（无输出）";
+            } else if (!raw && !execution.timedOut() && parser.getBuildResult() != null
+                    && MavenOutputParser.isLifecycleBuild(args)) {
+                // 报告文件的时间戳精度可能只到秒
+                result = parser.summarize(parser.readFailedTests(buildStart - 1000))
+                        + "\n(完整日志: 使用 {\"show_last_log\": true} 查看)";
             }
 
+            if (execution.timedOut()) {
+                log.warn("Maven 命令执行超时: {}", fullCommand);
+                return ToolResult.failure("Maven 命令执行超时（超过 " + timeout + "ms），已终止该命令及其子进程。已产生的输出:\n" + result);
+            }
+
+            int exitCode = execution.exitCode();
             if (exitCode == 0) {
                 log.debug("Maven 命令执行成功");
-                return ToolResult.success("Maven 命令: " + fullCommand + "\n工作目录: " + workingDir + "\n\n" + result);
+                if (selection != null) {
+                    ChangedFiles.markBuilt(selection.files());
+                }
+                ChangedFiles.markBuilt(testedFiles);
+                CommandResultCache.put(cacheKey, fullCommand, dir, result);
+                return ToolResult.success("Maven 命令: " + fullCommand + "\n工作目录: " + workingDir
+                        + "\n启动方式: " + mode.getLabel()
+                        + (selection != null ? "\n" + selection.report() : "")
+                        + (testReport != null ? "\n" + testReport : "")
+                        + "\n耗时: " + execution.describeTiming() + " (" + MavenLauncher.describeTimings() + ")"
+                        + "\n\n" + result);
             } else {
                 log.warn("Maven 命令执行失败，退出码: {}", exitCode);
-                return ToolResult.failure("Maven 命令执行失败（退出码 " + exitCode + "）:\n" + result);
+                return ToolResult.failure("Maven 命令执行失败（退出码 " + exitCode + "，耗时 " + execution.describeTiming() + "）:\n" + result);
             }
 
         } catch (Exception e) {
@@ -123,4 +232,77 @@ public class MavenTool implements Tool {
             return ToolResult.failure("执行 Maven 命令时出错: " + e.getMessage());
         }
     }
+
+    /**
+     * 改动模块的选择结果
+     *
+     * @param projects -pl 参数值，为 null 时构建全部模块
+     * @param files    参与选择的改动文件，构建成功后标记为已构建
+     * @param report   给模型看的说明
+     */
+    private record ModuleSelection(String projects, Set<Path> files, String report) {
+
+        boolean nothingChanged() {
+            return files.isEmpty();
+        }
+    }
+
+    /**
+     * 根据本次会话修改过的文件和 git 工作区的改动，找出需要构建的模块
+     */
+    private ModuleSelection selectChangedModules(File dir) throws Exception {
+        Path root = dir.toPath().toAbsolutePath().normalize();
+        Set<Path> files = ChangedFiles.collect(root);
+        if (files.isEmpty()) {
+            return new ModuleSelection(null, files, "");
+        }
+
+        MavenModuleGraph graph = MavenModuleGraph.load(root);
+        Set<MavenModuleGraph.Module> changed = new LinkedHashSet<>();
+        for (Path file : files) {
+            graph.moduleOf(file).ifPresent(changed::add);
+        }
+        // 根模块下的文件 (根 pom.xml 等) 可能影响所有模块
+        if (changed.isEmpty() || changed.stream().anyMatch(graph::isRoot)) {
+            return new ModuleSelection(null, files, "改动涉及根模块,构建全部 " + graph.getModules().size() + " 个模块");
+        }
+
+        Set<MavenModuleGraph.Module> dependents = graph.dependentsOf(changed);
+        String projects = changed.stream().map(graph::selector).collect(Collectors.joining(","));
+        String report = "改动的模块: " + projects
+                + (dependents.isEmpty() ? "" : "\n依赖它们的模块: "
+                        + dependents.stream().map(graph::selector).collect(Collectors.joining(", ")))
+                + " (共 " + (changed.size() + dependents.size()) + "/" + graph.getModules().size() + " 个模块)";
+        return new ModuleSelection(projects, files, report);
+    }
+
+    /**
+     * 取得预热的嵌入式 Maven,首次使用或上次超时的构建结束后重新创建
+     */
+    private synchronized EmbeddedMaven embedded() throws Exception {
+        if (embeddedMaven == null || !embeddedMaven.isUsable()) {
+            if (embeddedMaven != null) {
+                // 超时的构建仍在运行时不能替换: 新旧实例会共用系统属性,旧类加载器也还不能释放
+                if (embeddedMaven.isRunning()) {
+                    throw new IllegalStateException("上次超时的嵌入式 Maven 构建仍在运行,结束前无法启动新的嵌入式构建;"
+                            + "请稍后重试或使用 mode=mvn");
+                }
+                embeddedMaven.close();
+            }
+            embeddedMaven = new EmbeddedMaven(MavenLauncher.mavenHome()
+                    .orElseThrow(() -> new IllegalStateException("未找到 Maven 安装目录 (MAVEN_HOME)")));
+        }
+        return embeddedMaven;
+    }
+
+    /**
+     * 释放嵌入式 Maven
+     */
+    @Override
+    public synchronized void close() {
+        if (embeddedMaven != null) {
+            embeddedMaven.close();
+            embeddedMaven = null;
+        }
+    }
 }
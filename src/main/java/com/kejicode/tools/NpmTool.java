@@ -2,11 +2,16 @@ package com.kejicode.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.CommandResultCache;
+import com.kejicode.utils.LiveOutput;
+import com.kejicode.utils.NpmInstallStamp;
+import com.kejicode.utils.ProcessExecutor;
+import com.kejicode.utils.ShellWords;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Set;
 
 /**
  * NPM 包管理工具
@@ -14,6 +19,15 @@ import java.io.InputStreamReader;
 @Slf4j
 public class NpmTool implements Tool {
 
+    private static final long DEFAULT_TIMEOUT = 900000; // 15 分钟
+
+    /** 会改变 node_modules 的命令，成功后更新安装戳 */
+    private static final Set<String> INSTALL_COMMANDS = Set.of(
+            "install", "i", "ci", "add", "uninstall", "remove", "rm", "un", "update", "up", "upgrade");
+
+    /** npm ci 因 package.json 与锁文件不一致而失败时的提示 */
+    private static final String LOCK_OUT_OF_SYNC = "package.json and package-lock.json";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
@@ -29,6 +43,12 @@ public class NpmTool implements Tool {
             参数:
             - command (必需): NPM 命令，如 "install", "run build", "test", "list" 等
             - working_directory (可选): 工作目录，默认为当前目录
+            - timeout (可选): 超时时间,毫秒 (默认: 900000),超时后终止命令及其子进程
+            - force (可选): true=即使依赖已是最新也重新安装
+            - no_cache (可选): true=不使用命令结果缓存 (ls/explain 的结果在 package.json、锁文件和 node_modules 未变化时会被复用)
+
+            不带包名的 install 会先比较 package.json 和锁文件的指纹,node_modules 已是最新时直接跳过;
+            存在 package-lock.json 时改用 npm ci --prefer-offline (锁文件与 package.json 不一致时退回 npm install)
 
             示例:
             {
@@ -60,6 +80,9 @@ public class NpmTool implements Tool {
             String workingDir = params.has("working_directory")
                     ? params.get("working_directory").asText()
                     : System.getProperty("user.dir");
+            long timeout = params.has("timeout") ? params.get("timeout").asLong() : DEFAULT_TIMEOUT;
+            boolean force = params.has("force") && params.get("force").asBoolean();
+            boolean noCache = params.has("no_cache") && params.get("no_cache").asBoolean();
 
             // 验证工作目录
             File dir = new File(workingDir);
@@ -73,49 +96,92 @@ public class NpmTool implements Tool {
                 return ToolResult.failure("未找到 package.json: " + workingDir + "\n提示: 使用 'npm init' 初始化项目");
             }
 
-            // 构建完整命令
-            String fullCommand = "npm " + command;
-
-            log.debug("执行 NPM 命令: {} 在目录: {}", fullCommand, workingDir);
+            List<String> tokens = ShellWords.split(command);
+            if (tokens == null || tokens.isEmpty()) {
+                return ToolResult.failure("无法解析 NPM 命令: " + command);
+            }
+            String subcommand = tokens.get(0);
+            boolean installLike = INSTALL_COMMANDS.contains(subcommand);
+            // 只有选项没有包名的 install/ci: 按锁文件安装全部依赖
+            boolean bareInstall = (subcommand.equals("install") || subcommand.equals("i") || subcommand.equals("ci"))
+                    && tokens.stream().skip(1).allMatch(token -> token.startsWith("-"));
+            // 安装选项参与安装戳: 以不同选项 (如 --omit=dev) 安装过时不能视为最新
+            List<String> installFlags = tokens.subList(1, tokens.size());
+
+            if (bareInstall && !force && NpmInstallStamp.isCurrent(dir, installFlags)) {
+                log.debug("node_modules 已是最新,跳过 npm {}", command);
+                return ToolResult.success("NPM 命令: npm " + command + "\n工作目录: " + workingDir
+                        + "\n\n依赖已是最新 (cached): package.json 和锁文件自上次安装后没有变化,已跳过安装。"
+                        + "\n如需重新安装,请传入 \"force\": true");
+            }
 
-            // 执行命令
-            ProcessBuilder processBuilder = new ProcessBuilder();
+            CommandResultCache.Key cacheKey = noCache ? null : CommandResultCache.key("npm", dir, command);
+            CommandResultCache.Hit hit = CommandResultCache.get(cacheKey);
+            if (hit != null) {
+                return ToolResult.success("NPM 命令: npm " + command + "\n工作目录: " + workingDir
+                        + "\n来源: 命令结果缓存 (产生于 " + hit.describeAge() + ")\n\n" + hit.output());
+            }
 
-            // 根据操作系统选择 shell
-            if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                processBuilder.command("cmd.exe", "/c", fullCommand);
-            } else {
-                processBuilder.command("sh", "-c", fullCommand);
+            String note = null;
+            String effective = command;
+            boolean rewrittenToCi = false;
+            String extra = "";
+            if (bareInstall) {
+                // 沿用原命令中的选项文本,保留引号
+                String flags = ShellWords.remainder(command);
+                extra = installFlags.contains("--prefer-offline") ? flags : ("--prefer-offline " + flags).trim();
+                if (NpmInstallStamp.hasNpmLockfile(dir)) {
+                    rewrittenToCi = !subcommand.equals("ci");
+                    effective = "ci " + extra;
+                    if (rewrittenToCi) {
+                        note = "存在 package-lock.json,已改用 npm ci (优先使用本地缓存)";
+                    }
+                } else {
+                    effective = subcommand + " " + extra;
+                }
             }
 
-            processBuilder.directory(dir);
-            processBuilder.redirectErrorStream(true);
+            // 构建完整命令
+            String fullCommand = "npm " + effective;
+            log.debug("执行 NPM 命令: {} 在目录: {}", fullCommand, workingDir);
 
-            Process process = processBuilder.start();
+            ProcessExecutor.Result execution = run(fullCommand, dir, timeout);
+            if (rewrittenToCi && execution.exitCode() != 0 && !execution.timedOut()
+                    && execution.output().contains(LOCK_OUT_OF_SYNC)) {
+                // 锁文件与 package.json 不一致,npm ci 拒绝安装
+                fullCommand = "npm install " + extra;
+                note = "package-lock.json 与 package.json 不一致,npm ci 失败后改用 npm install";
+                execution = run(fullCommand, dir, timeout);
+            }
 
-            // 读取输出
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
+            if (installLike) {
+                if (execution.exitCode() == 0 && !execution.timedOut()) {
+                    NpmInstallStamp.record(dir, installFlags);
+                } else {
+                    NpmInstallStamp.invalidate(dir);
                 }
             }
 
-            int exitCode = process.waitFor();
-
-            String result = output.toString().trim();
+            String result = execution.output().trim();
             if (result.isEmpty()) {
                 result = "命令执行成功（无输出）";
             }
 
+            if (execution.timedOut()) {
+                log.warn("NPM 命令执行超时: {}", fullCommand);
+                return ToolResult.failure("NPM 命令执行超时（超过 " + timeout + "ms），已终止该命令及其子进程。已产生的输出:\n" + result);
+            }
+
+            int exitCode = execution.exitCode();
             if (exitCode == 0) {
                 log.debug("NPM 命令执行成功");
-                return ToolResult.success("NPM 命令: " + fullCommand + "\n工作目录: " + workingDir + "\n\n" + result);
+                CommandResultCache.put(cacheKey, fullCommand, dir, result);
+                return ToolResult.success("NPM 命令: " + fullCommand + "\n工作目录: " + workingDir
+                        + (note != null ? "\n说明: " + note : "")
+                        + "\n耗时: " + execution.describeTiming() + "\n\n" + result);
             } else {
                 log.warn("NPM 命令执行失败，退出码: {}", exitCode);
-                return ToolResult.failure("NPM 命令执行失败（退出码 " + exitCode + "）:\n" + result);
+                return ToolResult.failure("NPM 命令执行失败（退出码 " + exitCode + "，耗时 " + execution.describeTiming() + "）:\n" + result);
             }
 
         } catch (Exception e) {
@@ -123,4 +189,18 @@ public class NpmTool implements Tool {
             return ToolResult.failure("执行 NPM 命令时出错: " + e.getMessage());
         }
     }
+
+    /**
+     * 执行命令,输出同时实时显示在终端上
+     */
+    private ProcessExecutor.Result run(String fullCommand, File dir, long timeout) throws Exception {
+        try (LiveOutput.Channel live = LiveOutput.open(fullCommand)) {
+            return ProcessExecutor.execute(ProcessExecutor.Request.builder()
+                    .command(fullCommand)
+                    .directory(dir)
+                    .timeoutMillis(timeout)
+                    .listener(live)
+                    .build());
+        }
+    }
 }
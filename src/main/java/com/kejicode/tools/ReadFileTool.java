@@ -3,12 +3,12 @@ package com.kejicode.tools;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.TextFiles;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
 
 /**
  * 文件读取工具
@@ -26,7 +26,7 @@ public class ReadFileTool implements Tool {
 
     @Override
     public String getDescription() {
-        return "从本地文件系统读取文件。支持行偏移和行数限制。";
+        return "从本地文件系统读取文件。支持行偏移和行数限制。自动识别文件编码 (UTF-8/UTF-16/GBK 等)。";
     }
 
     @Override
@@ -56,33 +56,41 @@ public class ReadFileTool implements Tool {
                 return ToolResult.failure("路径是目录而非文件: " + relativePath);
             }
 
-            List<String> allLines = Files.readAllLines(path);
+            // 按检测到的编码流式解码,读到所需范围即停止
+            int startLine = Math.max(0, offset);
+            int endLine = (int) Math.min(Integer.MAX_VALUE, (long) startLine + limit);
+            int lineCount = 0;
+            StringBuilder output = new StringBuilder();
+            try (TextFiles.TextReader reader = TextFiles.newReader(path)) {
+                // 二进制内容解码后只是乱码,与 Grep 一样不作为文本输出
+                if (reader.getEncoding().binary()) {
+                    return ToolResult.failure("二进制文件无法以文本读取: " + relativePath
+                        + " (" + Files.size(path) + " 字节)");
+                }
+                String line;
+                while (lineCount < endLine && (line = reader.readLine()) != null) {
+                    if (lineCount >= startLine) {
+                        // 截断过长的行
+                        if (line.length() > 2000) {
+                            line = line.substring(0, 2000) + "... (已截断)";
+                        }
+                        output.append(String.format("%6d\t%s\n", lineCount + 1, line));
+                    }
+                    lineCount++;
+                }
+            }
 
-            if (allLines.isEmpty()) {
+            if (lineCount == 0) {
                 return ToolResult.success("文件为空");
             }
 
-            // 应用偏移和限制
-            int startLine = Math.max(0, offset);
-            int endLine = Math.min(allLines.size(), offset + limit);
-
-            if (startLine >= allLines.size()) {
+            if (startLine >= lineCount) {
                 return ToolResult.failure("偏移量超出文件长度");
             }
 
-            StringBuilder output = new StringBuilder();
-            for (int i = startLine; i < endLine; i++) {
-                String line = allLines.get(i);
-                // 截断过长的行
-                if (line.length() > 2000) {
-                    line = line.substring(0, 2000) + "... (已截断)";
-                }
-                output.append(String.format("%6d\t%s\n", i + 1, line));
-            }
-
             String result = output.toString();
             log.debug("从 {} 读取了 {} 行 (偏移: {}, 限制: {})",
-                relativePath, endLine - startLine, offset, limit);
+                relativePath, lineCount - startLine, offset, limit);
 
             return ToolResult.success(result);
 
@@ -0,0 +1,285 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.AtomicFiles;
+import com.kejicode.utils.ChangedFiles;
+import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SafeRegex;
+import com.kejicode.utils.SnapshotJournal;
+import com.kejicode.utils.TextFiles;
+import com.kejicode.utils.TolerantMatcher;
+import com.kejicode.utils.WorkspaceFiles;
+import com.kejicode.utils.WorkspaceSearch;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 批量替换工具 - 在工作区内按正则表达式搜索并替换
+ *
+ * 文件枚举与 Grep 相同 (Git 索引、glob/type 过滤、多根工作区)，各文件的替换结果并行计算，
+ * 全部成功后才通过临时文件 + 原子移动一次性写入，任何文件出错则所有文件保持不变
+ */
+@Slf4j
+public class ReplaceTool implements Tool {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public String getName() {
+        return "Replace";
+    }
+
+    @Override
+    public String getDescription() {
+        return """
+            在工作区内批量搜索并替换文本,一次调用修改所有匹配的文件 (如跨文件重命名符号)。
+            文件范围与 Grep 相同;所有文件的替换结果都计算成功后才写入,任何一个失败则所有文件保持不变。
+            保持各文件原有的编码和换行符,修改可以用 Undo 撤销。
+
+            参数:
+            - pattern (必需): 要搜索的正则表达式 (literal=true 时为普通文本)
+            - replacement (必需): 替换文本,可用 $1、${name} 引用捕获组 (literal=true 时原样替换)
+            - path (可选): 搜索的文件或目录,默认搜索所有工作区根目录
+            - glob (可选): 文件 glob 过滤,如 "**/*.java"
+            - type (可选): 文件类型过滤,如 java、ts、xml
+            - -i (可选): true=忽略大小写
+            - literal (可选): true=pattern 和 replacement 都按普通文本处理 (默认: false)
+            - include_untracked (可选): Git 仓库中是否包括未跟踪的文件 (默认: false)
+            - dry_run (可选): true=只统计各文件的替换次数,不写入文件 (默认: false)
+
+            示例: {"pattern": "\\\\bOrderDao\\\\b", "replacement": "OrderRepository", "type": "java", "dry_run": true}
+            """;
+    }
+
+    @Override
+    public ToolResult execute(String parameters) throws Exception {
+        try {
+            JsonNode params = MAPPER.readTree(parameters);
+            if (!params.has("pattern") || !params.has("replacement")) {
+                return ToolResult.failure("缺少必需参数: pattern 和 replacement");
+            }
+            String patternStr = params.get("pattern").asText();
+            String replacementStr = params.get("replacement").asText();
+            boolean caseInsensitive = params.has("-i") && params.get("-i").asBoolean();
+            boolean literal = params.has("literal") && params.get("literal").asBoolean();
+            boolean includeUntracked = params.has("include_untracked") && params.get("include_untracked").asBoolean();
+            boolean dryRun = params.has("dry_run") && params.get("dry_run").asBoolean();
+            String globPattern = params.has("glob") ? params.get("glob").asText() : null;
+            String typeFilter = params.has("type") ? params.get("type").asText() : null;
+
+            if (patternStr.isEmpty()) {
+                return ToolResult.failure("pattern 不能为空");
+            }
+
+            // 验证搜索路径是否在工作目录范围内; 未指定路径时搜索全部工作区根目录
+            Path explicitPath = null;
+            if (params.has("path")) {
+                try {
+                    explicitPath = PathValidator.validateAndNormalize(params.get("path").asText());
+                } catch (SecurityException e) {
+                    log.warn("路径安全检查失败: {}", e.getMessage());
+                    return ToolResult.failure("安全错误: " + e.getMessage());
+                }
+                if (!Files.exists(explicitPath)) {
+                    return ToolResult.failure("搜索路径不存在: " + PathValidator.toRelativePath(explicitPath));
+                }
+            }
+            List<Path> bases = WorkspaceSearch.bases(explicitPath);
+            if (bases.isEmpty()) {
+                return ToolResult.failure("搜索路径不存在: " + PathValidator.getWorkingDirectory());
+            }
+
+            int flags = caseInsensitive ? Pattern.CASE_INSENSITIVE : 0;
+            Pattern pattern;
+            try {
+                pattern = SafeRegex.compile(literal ? Pattern.quote(patternStr) : patternStr, flags);
+            } catch (PatternSyntaxException e) {
+                return ToolResult.failure("正则表达式无效: " + e.getMessage());
+            }
+
+            PathMatcher globMatcher = globPattern != null ?
+                FileSystems.getDefault().getPathMatcher("glob:" + globPattern) : null;
+
+            // 各根目录并发枚举文件; 嵌套的根目录会列出同一个文件,去重后只处理一次
+            Set<Path> files = new LinkedHashSet<>();
+            for (WorkspaceSearch.RootResult<Path> rootResult : WorkspaceSearch.run(bases, (root, basePath) ->
+                    Files.isRegularFile(basePath)
+                        ? List.of(basePath)
+                        : WorkspaceFiles.list(root, basePath, globMatcher, typeFilter, includeUntracked))) {
+                rootResult.items().forEach(file -> files.add(file.toAbsolutePath().normalize()));
+            }
+
+            // 并行计算每个文件的替换结果
+            List<FileChange> outcomes = files.parallelStream()
+                .map(file -> computeChange(file, pattern, replacementStr, literal))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(change -> change.path().toString()))
+                .toList();
+
+            List<FileChange> failed = outcomes.stream().filter(change -> change.error() != null).toList();
+            if (!failed.isEmpty()) {
+                StringBuilder error = new StringBuilder("替换未执行 (所有文件保持不变),以下文件出错:\n");
+                for (FileChange change : failed) {
+                    error.append("  ").append(PathValidator.toRelativePath(change.path()))
+                        .append(": ").append(change.error()).append("\n");
+                }
+                return ToolResult.failure(error.toString());
+            }
+
+            if (outcomes.isEmpty()) {
+                return ToolResult.success(String.format("在 %d 个文件中未找到匹配 '%s' 的内容,没有文件被修改",
+                    files.size(), patternStr));
+            }
+
+            int total = outcomes.stream().mapToInt(FileChange::count).sum();
+            StringBuilder report = new StringBuilder();
+            for (FileChange change : outcomes) {
+                report.append(PathValidator.toRelativePath(change.path()))
+                    .append(": ").append(change.count()).append(" 处\n");
+            }
+
+            if (dryRun) {
+                return ToolResult.success(String.format("预览 (dry_run,未写入文件): 将在 %d 个文件中替换 %d 处:\n",
+                    outcomes.size(), total) + report);
+            }
+
+            // 计算期间文件被其他程序修改时,写入会覆盖这些修改
+            List<FileChange> modified = new ArrayList<>();
+            for (FileChange change : outcomes) {
+                if (!change.isUnmodified()) {
+                    modified.add(change);
+                }
+            }
+            if (!modified.isEmpty()) {
+                StringBuilder error = new StringBuilder("替换未执行 (所有文件保持不变),以下文件在计算替换期间被修改,请重试:\n");
+                for (FileChange change : modified) {
+                    error.append("  ").append(PathValidator.toRelativePath(change.path())).append("\n");
+                }
+                return ToolResult.failure(error.toString());
+            }
+
+            // 一次性原子写入,全部成功后记录撤销信息; 原内容已在计算时读取,直接用于回滚
+            Map<Path, byte[]> changes = new LinkedHashMap<>();
+            Map<Path, byte[]> originals = new LinkedHashMap<>();
+            for (FileChange change : outcomes) {
+                changes.put(change.path(), change.updated());
+                originals.put(change.path(), change.original());
+            }
+            AtomicFiles.writeAll(changes, originals);
+            for (FileChange change : outcomes) {
+                SnapshotJournal.record(change.path(), change.original(), change.updated());
+            }
+            changes.keySet().forEach(ChangedFiles::record);
+
+            log.debug("在 {} 个文件中替换了 {} 处: {}", outcomes.size(), total, patternStr);
+            return ToolResult.success(String.format("已在 %d 个文件中替换 %d 处:\n", outcomes.size(), total) + report);
+
+        } catch (IOException e) {
+            log.error("批量替换失败", e);
+            return ToolResult.failure("批量替换失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 计算单个文件的替换结果，没有匹配时返回 null，出错时返回带错误信息的结果
+     */
+    private FileChange computeChange(Path file, Pattern pattern, String replacement, boolean literal) {
+        try {
+            // 先取修改时间和大小再读取内容,读取期间的修改也能在写入前发现
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            TextFiles.Text text = TextFiles.read(file);
+            if (text.encoding().binary()) {
+                return null;
+            }
+            String content = text.content();
+
+            // 保持文件原有的换行符风格
+            String effective = "\r\n".equals(text.lineSeparator())
+                ? TolerantMatcher.adaptLineEndings(content, replacement)
+                : replacement;
+            if (literal) {
+                effective = Matcher.quoteReplacement(effective);
+            }
+
+            Matcher matcher = pattern.matcher(SafeRegex.guard(content));
+            StringBuilder result = null;
+            int count = 0;
+            while (matcher.find()) {
+                if (result == null) {
+                    result = new StringBuilder(content.length() + 64);
+                }
+                matcher.appendReplacement(result, effective);
+                count++;
+            }
+            if (count == 0) {
+                return null;
+            }
+            matcher.appendTail(result);
+
+            String updated = result.toString();
+            if (updated.equals(content)) {
+                return null;
+            }
+            return new FileChange(file, count, text.bytes(), TextFiles.encode(updated, text.encoding()),
+                attrs.lastModifiedTime().toMillis(), attrs.size(), null);
+
+        } catch (SafeRegex.BudgetExceededException e) {
+            return FileChange.failed(file, e.getMessage() + ",可能存在灾难性回溯");
+        } catch (CharacterCodingException e) {
+            return FileChange.failed(file, "替换文本包含该文件编码无法表示的字符");
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // 引用了不存在的捕获组等
+            return FileChange.failed(file, "替换文本无效: " + e.getMessage());
+        } catch (IOException e) {
+            return FileChange.failed(file, "读取失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 单个文件的替换结果
+     *
+     * @param original     原始字节 (用于撤销和回滚)
+     * @param updated      替换后按原编码编码的字节
+     * @param lastModified 读取前的修改时间
+     * @param size         读取前的文件大小
+     * @param error        出错时的说明，成功时为 null
+     */
+    private record FileChange(Path path, int count, byte[] original, byte[] updated,
+                              long lastModified, long size, String error) {
+
+        static FileChange failed(Path path, String error) {
+            return new FileChange(path, 0, null, null, 0, 0, error);
+        }
+
+        /**
+         * 文件的修改时间和大小与读取时相同
+         */
+        boolean isUnmodified() {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                return attrs.lastModifiedTime().toMillis() == lastModified && attrs.size() == size;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.SnapshotJournal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * 撤销工具 - 从快照日志恢复 Write/Edit/ApplyPatch 修改前的文件内容
+ */
+@Slf4j
+public class UndoTool implements Tool {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public String getName() {
+        return "Undo";
+    }
+
+    @Override
+    public String getDescription() {
+        return """
+            撤销最近的文件修改 (Write/Edit/ApplyPatch/Replace),从本地快照恢复修改前的内容,不需要 git。
+            修改前不存在的文件会被删除。
+            文件在记录之后又被其他方式修改过 (如 Bash 命令) 时停止撤销,不会覆盖这些修改。
+
+            参数:
+            - count (可选): 撤销最近的修改次数;不指定时撤销当前这一轮对话中的全部修改
+
+            示例: {"count": 1}
+            """;
+    }
+
+    @Override
+    public ToolResult execute(String parameters) throws Exception {
+        JsonNode params = MAPPER.readTree(parameters == null || parameters.isBlank() ? "{}" : parameters);
+
+        SnapshotJournal.UndoResult result;
+        if (params.has("count")) {
+            int count = params.get("count").asInt();
+            if (count <= 0) {
+                return ToolResult.failure("count 必须大于 0");
+            }
+            result = SnapshotJournal.undo(count);
+        } else {
+            result = SnapshotJournal.undoLastTurn();
+        }
+
+        List<String> restored = result.restored();
+        if (!result.isComplete()) {
+            String done = restored.isEmpty() ? "" : "已撤销 " + restored.size() + " 处文件修改:\n"
+                + String.join("\n", restored) + "\n";
+            return ToolResult.failure(done + "撤销未完成: " + result.failure() + "\n剩余的修改仍保留在撤销日志中");
+        }
+        if (restored.isEmpty()) {
+            return ToolResult.success("没有可撤销的文件修改");
+        }
+
+        log.debug("撤销了 {} 处文件修改", restored.size());
+        return ToolResult.success("已撤销 " + restored.size() + " 处文件修改:\n" + String.join("\n", restored));
+    }
+}
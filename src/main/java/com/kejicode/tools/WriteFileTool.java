@@ -2,13 +2,17 @@ package com.kejicode.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.AtomicFiles;
+import com.kejicode.utils.ChangedFiles;
 import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SnapshotJournal;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * 文件写入工具
@@ -71,12 +75,24 @@ public class WriteFileTool implements Tool {
                 Files.createDirectories(parent);
             }
 
-            // 写入文件
-            Files.writeString(path, content,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING);
-
             String relativePath = PathValidator.toRelativePath(path);
+            byte[] data = content.getBytes(StandardCharsets.UTF_8);
+
+            // 原内容只读取一次,同时用于判断是否变化和记录撤销信息
+            byte[] original = Files.isRegularFile(path) ? Files.readAllBytes(path) : null;
+
+            // 内容未变化时不写入,避免修改时间变化触发增量编译和文件监听
+            if (original != null && Arrays.equals(original, data)) {
+                log.debug("文件内容未变化,跳过写入: {}", relativePath);
+                return ToolResult.success("文件内容未变化,已跳过写入: " + relativePath);
+            }
+
+            // 先写临时文件再原子移动,文件监听器不会看到写了一半的文件
+            AtomicFiles.write(path, data);
+            // 写入成功后记录撤销信息
+            SnapshotJournal.record(path, original, data);
+            ChangedFiles.record(path);
+
             log.debug("成功写入 {} 字节到 {}", content.length(), relativePath);
             return ToolResult.success("文件写入成功: " + relativePath);
 
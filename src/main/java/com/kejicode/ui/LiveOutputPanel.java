@@ -0,0 +1,76 @@
+package com.kejicode.ui;
+
+import com.kejicode.utils.LiveOutput;
+import org.jline.terminal.Terminal;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * 终端实时输出区域 - 命令运行时在工具提示下方显示最近几行输出，结束后折叠为一行摘要
+ */
+public class LiveOutputPanel implements LiveOutput.Sink {
+
+    private static final String DIM = "\u001B[2m";
+    private static final String RESET = "\u001B[0m";
+    private static final String CLEAR_LINE = "\u001B[2K";
+
+    private final Terminal terminal;
+    private int drawnLines;
+
+    public LiveOutputPanel(Terminal terminal) {
+        this.terminal = terminal;
+    }
+
+    /**
+     * 终端是否支持光标移动 (dumb 终端或输出被重定向时不显示实时区域)
+     */
+    public boolean isSupported() {
+        return !Terminal.TYPE_DUMB.equals(terminal.getType())
+            && !Terminal.TYPE_DUMB_COLOR.equals(terminal.getType());
+    }
+
+    @Override
+    public synchronized void begin(String title) {
+        drawnLines = 0;
+    }
+
+    @Override
+    public synchronized void update(List<String> recentLines, long totalLines) {
+        PrintWriter writer = terminal.writer();
+        erase(writer);
+        int width = Math.max(20, terminal.getWidth() - 4);
+        for (String line : recentLines) {
+            writer.print(CLEAR_LINE + DIM + "  │ " + truncate(line, width) + RESET + "\n");
+        }
+        writer.print(CLEAR_LINE + DIM + "  └ 已输出 " + totalLines + " 行..." + RESET + "\n");
+        drawnLines = recentLines.size() + 1;
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void end(String title, long totalLines, long droppedLines) {
+        PrintWriter writer = terminal.writer();
+        erase(writer);
+        if (totalLines > 0 || droppedLines > 0) {
+            String summary = "  └ " + title + ": " + (totalLines + droppedLines) + " 行输出 (已折叠)";
+            writer.print(DIM + truncate(summary, Math.max(20, terminal.getWidth() - 1)) + RESET + "\n");
+        }
+        drawnLines = 0;
+        writer.flush();
+    }
+
+    /**
+     * 把光标移回区域开头并清除之前绘制的行
+     */
+    private void erase(PrintWriter writer) {
+        if (drawnLines > 0) {
+            writer.print("\u001B[" + drawnLines + "A\r\u001B[J");
+        }
+    }
+
+    private static String truncate(String line, int width) {
+        String expanded = line.replace("\t", "    ");
+        return expanded.length() > width ? expanded.substring(0, width - 1) + "…" : expanded;
+    }
+}
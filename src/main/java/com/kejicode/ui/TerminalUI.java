@@ -1,6 +1,9 @@
 package com.kejicode.ui;
 
 import com.kejicode.agent.CodeAssistantAgent;
+import com.kejicode.utils.CommandResultCache;
+import com.kejicode.utils.LiveOutput;
+import com.kejicode.utils.SnapshotJournal;
 import lombok.extern.slf4j.Slf4j;
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
@@ -9,6 +12,7 @@ import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * 基于终端的用户界面
@@ -19,6 +23,7 @@ public class TerminalUI {
     private final CodeAssistantAgent agent;
     private final Terminal terminal;
     private final LineReader lineReader;
+    private final LiveOutputPanel liveOutputPanel;
     private boolean running;
 
     public TerminalUI(CodeAssistantAgent agent) throws IOException {
@@ -31,6 +36,11 @@ public class TerminalUI {
             .terminal(terminal)
             .build();
 
+        this.liveOutputPanel = new LiveOutputPanel(terminal);
+        if (liveOutputPanel.isSupported()) {
+            LiveOutput.setSink(liveOutputPanel);
+        }
+
         this.running = false;
     }
 
@@ -94,6 +104,18 @@ public class TerminalUI {
                     println("对话历史已清除。");
                     return true;
 
+                case "undo":
+                    handleUndoCommand(parts.length > 1 ? parts[1] : "");
+                    return true;
+
+                case "live":
+                    handleLiveCommand(parts.length > 1 ? parts[1].trim() : "");
+                    return true;
+
+                case "cache":
+                    handleCacheCommand(parts.length > 1 ? parts[1].trim() : "");
+                    return true;
+
                 case "version":
                     println("KejiCode (柯基Code) v1.0.0");
                     return true;
@@ -120,6 +142,78 @@ public class TerminalUI {
         return false;
     }
 
+    /**
+     * 处理实时输出开关命令
+     */
+    private void handleLiveCommand(String args) {
+        switch (args.toLowerCase()) {
+            case "on" -> {
+                if (!liveOutputPanel.isSupported()) {
+                    printError("当前终端不支持实时输出区域");
+                    return;
+                }
+                LiveOutput.setSink(liveOutputPanel);
+                println("已开启命令实时输出");
+            }
+            case "off" -> {
+                LiveOutput.setSink(null);
+                println("已关闭命令实时输出");
+            }
+            default -> println("使用方法: /live on|off");
+        }
+    }
+
+    /**
+     * 处理命令结果缓存命令
+     */
+    private void handleCacheCommand(String args) {
+        if (args.equalsIgnoreCase("clear")) {
+            CommandResultCache.clear();
+            println("已清除命令结果缓存");
+        } else {
+            println("使用方法: /cache clear");
+        }
+    }
+
+    /**
+     * 处理撤销命令
+     */
+    private void handleUndoCommand(String args) {
+        if (args.equalsIgnoreCase("clear")) {
+            SnapshotJournal.clear();
+            println("已清空撤销日志");
+            return;
+        }
+
+        SnapshotJournal.UndoResult result;
+        if (args.isEmpty()) {
+            result = SnapshotJournal.undoLastTurn();
+        } else {
+            int count;
+            try {
+                count = Integer.parseInt(args.trim());
+            } catch (NumberFormatException e) {
+                printError("无效的撤销数量: " + args);
+                return;
+            }
+            result = SnapshotJournal.undo(count);
+        }
+
+        List<String> restored = result.restored();
+        if (restored.isEmpty() && result.isComplete()) {
+            println("\n没有可撤销的文件修改。");
+            return;
+        }
+        if (!restored.isEmpty()) {
+            println("\n已撤销 " + restored.size() + " 处文件修改:");
+            restored.forEach(line -> println("  " + line));
+        }
+        if (!result.isComplete()) {
+            printError("撤销未完成: " + result.failure());
+            println("剩余的修改仍保留在撤销日志中; 手动处理后可重试,或使用 /undo clear 清空撤销日志");
+        }
+    }
+
     /**
      * 处理模型相关命令
      */
@@ -233,6 +327,10 @@ public class TerminalUI {
         println("  /help     - 显示此帮助信息");
         println("  /clear    - 清屏");
         println("  /reset    - 清除对话历史");
+        println("  /undo [N] - 撤销上一轮(或最近 N 次)的文件修改");
+        println("  /undo clear - 清空撤销日志");
+        println("  /live on|off - 开启/关闭命令运行时的实时输出");
+        println("  /cache clear - 清除命令结果缓存");
         println("  /version  - 显示版本信息");
         println("  /exit     - 退出程序");
 
@@ -252,12 +350,18 @@ public class TerminalUI {
         println("  Read      - 从文件系统读取文件");
         println("  Write     - 创建或覆盖文件");
         println("  Edit      - 对文件进行精确编辑");
+        println("  ApplyPatch - 应用 unified diff 多文件补丁");
+        println("  Undo      - 撤销最近的文件修改");
         println("  Glob      - 按模式查找文件");
         println("  Grep      - 搜索文件内容");
+        println("  Replace   - 在工作区内批量替换");
         println("  Bash      - 执行 shell 命令");
+        println("  BashOutput - 读取后台命令输出");
+        println("  KillBash  - 终止后台命令");
         println("  Git       - 执行 Git 版本管理操作");
         println("  Npm       - 执行 NPM 包管理操作");
         println("  Maven     - 执行 Maven 构建操作");
+        println("  CompileCheck - 快速检查 Java 源文件能否编译");
 
         println("\n【使用示例】");
         println("  - '读取 pom.xml 文件'");
@@ -292,6 +396,8 @@ public class TerminalUI {
     }
 
     private void shutdown() {
+        LiveOutput.setSink(null);
+        agent.shutdown();
         try {
             println("\n再见!");
             terminal.close();
@@ -0,0 +1,239 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 原子文件写入工具 - 先写同目录临时文件再原子移动，避免出现写了一半的文件
+ *
+ * 目标是符号链接时替换链接指向的真实文件，临时文件建在真实文件所在目录，链接本身保持不变;
+ * 有多个硬链接的文件无法通过重命名替换而不断开链接，这类文件在临时文件写完后原地覆盖内容
+ */
+@Slf4j
+public final class AtomicFiles {
+
+    /** 解析符号链接链的最大深度，与 Linux 的 MAXSYMLINKS 一致 */
+    private static final int MAX_LINK_DEPTH = 40;
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * 向输出流写入内容的回调
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 原子写入单个文件
+     */
+    public static void write(Path target, byte[] data) throws IOException {
+        write(target, out -> out.write(data));
+    }
+
+    /**
+     * 原子写入单个文件，内容由回调流式写出
+     */
+    public static void write(Path target, ContentWriter writer) throws IOException {
+        Path realTarget = resolveTarget(target);
+        Path temp = writeTemp(realTarget, writer);
+        try {
+            moveIntoPlace(temp, realTarget);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * 多文件"全部成功或全部不变"写入
+     *
+     * 先把所有新内容写入临时文件，全部成功后再逐个移动到目标位置;
+     * 移动过程中出错时，用内存中保存的原内容回滚已替换的文件
+     *
+     * @param changes 目标路径到新内容的映射，值为 null 表示删除该文件
+     */
+    public static void writeAll(Map<Path, byte[]> changes) throws IOException {
+        writeAll(changes, Map.of());
+    }
+
+    /**
+     * 多文件"全部成功或全部不变"写入，调用方已读取的原内容直接用于回滚，不再重新读取
+     *
+     * @param changes   目标路径到新内容的映射，值为 null 表示删除该文件
+     * @param originals 与 changes 同键的原内容，值为 null 表示原先不存在; 缺少的文件从磁盘读取
+     */
+    public static void writeAll(Map<Path, byte[]> changes, Map<Path, byte[]> originals) throws IOException {
+        // 写入的目标解析为符号链接指向的真实文件; 删除只删除给定路径本身
+        Map<Path, Path> realTargets = new LinkedHashMap<>();
+        for (Map.Entry<Path, byte[]> change : changes.entrySet()) {
+            realTargets.put(change.getKey(),
+                change.getValue() != null ? resolveTarget(change.getKey()) : change.getKey());
+        }
+
+        Map<Path, Path> temps = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, byte[]> change : changes.entrySet()) {
+                if (change.getValue() != null) {
+                    byte[] data = change.getValue();
+                    Path realTarget = realTargets.get(change.getKey());
+                    temps.put(realTarget, writeTemp(realTarget, out -> out.write(data)));
+                }
+            }
+        } catch (IOException e) {
+            deleteQuietly(temps.values());
+            throw e;
+        }
+
+        // 记录原内容用于回滚 (null 表示原先不存在)
+        Map<Path, byte[]> rollback = new LinkedHashMap<>();
+        List<Path> done = new ArrayList<>();
+        try {
+            for (Map.Entry<Path, byte[]> change : changes.entrySet()) {
+                Path target = realTargets.get(change.getKey());
+                rollback.put(target, originals.containsKey(change.getKey())
+                    ? originals.get(change.getKey())
+                    : Files.exists(target) ? Files.readAllBytes(target) : null);
+                if (change.getValue() == null) {
+                    Files.deleteIfExists(target);
+                } else {
+                    moveIntoPlace(temps.get(target), target);
+                }
+                done.add(target);
+            }
+        } catch (IOException e) {
+            log.warn("批量写入失败，正在回滚 {} 个文件: {}", done.size(), e.getMessage());
+            rollback(done, rollback);
+            deleteQuietly(temps.values());
+            throw e;
+        }
+    }
+
+    private static void rollback(List<Path> done, Map<Path, byte[]> originals) {
+        for (Path target : done) {
+            byte[] original = originals.get(target);
+            try {
+                if (original == null) {
+                    Files.deleteIfExists(target);
+                } else {
+                    write(target, original);
+                }
+            } catch (IOException e) {
+                log.error("回滚文件失败: {}", target, e);
+            }
+        }
+    }
+
+    /**
+     * 解析写入的真实目标: 沿符号链接找到最终文件 (悬空链接解析到其指向的位置)，
+     * 目标不存在时解析父目录中的符号链接
+     */
+    static Path resolveTarget(Path target) throws IOException {
+        Path path = target.toAbsolutePath();
+        for (int depth = 0; Files.isSymbolicLink(path); depth++) {
+            if (depth >= MAX_LINK_DEPTH) {
+                throw new IOException("符号链接层数过多: " + target);
+            }
+            if (Files.exists(path)) {
+                return path.toRealPath();
+            }
+            path = path.resolveSibling(Files.readSymbolicLink(path)).normalize();
+        }
+        if (Files.exists(path)) {
+            return path.toRealPath();
+        }
+        Path parent = path.getParent();
+        if (parent != null && Files.exists(parent)) {
+            return parent.toRealPath().resolve(path.getFileName());
+        }
+        return path;
+    }
+
+    private static Path writeTemp(Path target, ContentWriter writer) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, "." + target.getFileName() + ".", ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writer.writeTo(out);
+            }
+            copyPermissions(target, temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * 临时文件默认权限为 600，替换后需保持目标文件原有权限
+     */
+    private static void copyPermissions(Path target, Path temp) {
+        try {
+            if (!Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                return;
+            }
+            Set<PosixFilePermission> permissions = Files.exists(target)
+                ? Files.getPosixFilePermissions(target)
+                : PosixFilePermissions.fromString("rw-r--r--");
+            Files.setPosixFilePermissions(temp, permissions);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("设置文件权限失败: {}", target);
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        if (linkCount(target) > 1) {
+            // 重命名会让硬链接断开成独立文件,只能在完整写出临时文件后原地覆盖
+            try (OutputStream out = Files.newOutputStream(target,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Files.copy(temp, out);
+            }
+            Files.deleteIfExists(temp);
+            return;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int linkCount(Path path) {
+        try {
+            return Files.exists(path) ? (Integer) Files.getAttribute(path, "unix:nlink") : 0;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    private static void deleteQuietly(Iterable<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.debug("删除临时文件失败: {}", path);
+            }
+        }
+    }
+}
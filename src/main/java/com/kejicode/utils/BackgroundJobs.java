@@ -0,0 +1,303 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台任务管理器 - 启动、跟踪和清理后台运行的命令 (开发服务器、长时间构建、测试监听等)
+ *
+ * 每个任务的输出保存在有上限的滚动缓冲区中，按绝对偏移量增量读取。缓冲区由固定大小的块组成，
+ * 超出上限时整块丢弃最早的输出，不需要移动剩余内容。
+ * 已退出且输出已全部读取的任务在启动新任务时移除，已结束的任务最多保留 {@value #MAX_FINISHED_JOBS} 个
+ */
+@Slf4j
+public class BackgroundJobs implements AutoCloseable {
+
+    /**
+     * 每个任务最多保留的输出字符数，超出后丢弃最早的输出
+     */
+    private static final int MAX_BUFFER_CHARS = 1024 * 1024;
+
+    /** 输出缓冲区每块的字符数 */
+    private static final int BLOCK_CHARS = 8 * 1024;
+
+    /** 最多保留的已结束任务数 */
+    static final int MAX_FINISHED_JOBS = 20;
+
+    /** 进程退出后读取输出时，等待读取线程读完管道中剩余输出的最长时间 */
+    private static final long OUTPUT_DRAIN_MILLIS = 500;
+
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * 一次增量读取的结果
+     *
+     * @param output     从请求偏移开始的输出
+     * @param nextOffset 下次读取应使用的偏移
+     * @param skipped    请求的偏移之前已被丢弃的字符数
+     */
+    public record Chunk(String output, long nextOffset, long skipped) {
+    }
+
+    /**
+     * 后台任务
+     */
+    public static class Job {
+
+        private final String id;
+        private final String command;
+        private final Process process;
+        private final long startTime = System.currentTimeMillis();
+        private final Deque<StringBuilder> blocks = new ArrayDeque<>();
+        private long buffered;
+        private long discarded;
+        /** 已读取到的绝对偏移 */
+        private long readOffset;
+        private boolean killed;
+        private volatile Thread reader;
+
+        Job(String id, String command, Process process) {
+            this.id = id;
+            this.command = command;
+            this.process = process;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public long getPid() {
+            return process.pid();
+        }
+
+        public boolean isRunning() {
+            return process.isAlive();
+        }
+
+        /**
+         * 状态描述: 运行中 / 已退出(退出码) / 已终止
+         */
+        public synchronized String status() {
+            if (process.isAlive()) {
+                return "运行中 (已运行 " + (System.currentTimeMillis() - startTime) / 1000 + " 秒)";
+            }
+            if (killed) {
+                return "已终止";
+            }
+            return "已退出 (退出码 " + process.exitValue() + ")";
+        }
+
+        synchronized void append(String line) {
+            write(OutputCapture.clean(line));
+            write("\n");
+            // 超出上限时整块丢弃最早的输出
+            while (buffered > MAX_BUFFER_CHARS && blocks.size() > 1) {
+                int dropped = blocks.removeFirst().length();
+                buffered -= dropped;
+                discarded += dropped;
+            }
+        }
+
+        private void write(String text) {
+            int position = 0;
+            while (position < text.length()) {
+                StringBuilder block = blocks.peekLast();
+                if (block == null || block.length() == BLOCK_CHARS) {
+                    block = new StringBuilder(BLOCK_CHARS);
+                    blocks.addLast(block);
+                }
+                int count = Math.min(BLOCK_CHARS - block.length(), text.length() - position);
+                block.append(text, position, position + count);
+                position += count;
+                buffered += count;
+            }
+        }
+
+        /**
+         * 从绝对偏移 offset 开始读取最多 maxChars 个字符
+         */
+        public Chunk read(long offset, int maxChars) {
+            awaitOutputIfExited();
+            synchronized (this) {
+                long start = Math.max(offset, discarded);
+                long end = discarded + buffered;
+                if (start >= end) {
+                    readOffset = Math.max(readOffset, end);
+                    return new Chunk("", end, start - offset);
+                }
+                long stop = Math.min(end, start + maxChars);
+                StringBuilder output = new StringBuilder((int) (stop - start));
+                long position = discarded;
+                for (StringBuilder block : blocks) {
+                    long blockEnd = position + block.length();
+                    if (blockEnd > start) {
+                        int from = (int) (Math.max(start, position) - position);
+                        int to = (int) (Math.min(stop, blockEnd) - position);
+                        output.append(block, from, to);
+                    }
+                    if (blockEnd >= stop) {
+                        break;
+                    }
+                    position = blockEnd;
+                }
+                readOffset = Math.max(readOffset, stop);
+                return new Chunk(output.toString(), stop, start - offset);
+            }
+        }
+
+        /**
+         * 进程已退出时等待读取线程把管道中剩余的输出读完，避免读到不完整的输出
+         */
+        private void awaitOutputIfExited() {
+            Thread thread = reader;
+            if (thread == null || process.isAlive() || !thread.isAlive()) {
+                return;
+            }
+            try {
+                thread.join(OUTPUT_DRAIN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 任务已结束，且输出已读完
+         */
+        synchronized boolean isDrained() {
+            return isFinished() && readOffset >= discarded + buffered;
+        }
+
+        /**
+         * 进程已退出且输出读取线程已结束
+         */
+        boolean isFinished() {
+            Thread thread = reader;
+            return !process.isAlive() && (thread == null || !thread.isAlive());
+        }
+
+        synchronized void markKilled() {
+            killed = true;
+        }
+    }
+
+    /**
+     * 在后台启动命令
+     */
+    public Job start(String command, File workingDirectory) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder();
+        if (System.getProperty("os.name").toLowerCase().contains("win")) {
+            processBuilder.command("cmd.exe", "/c", command);
+        } else {
+            processBuilder.command("bash", "-c", command);
+        }
+        processBuilder.directory(workingDirectory);
+        processBuilder.redirectErrorStream(true);
+        // 后台任务不应读取 agent 的标准输入
+        processBuilder.redirectInput(ProcessBuilder.Redirect.from(nullFile()));
+
+        Process process = processBuilder.start();
+        String id = "bg-" + nextId.getAndIncrement();
+        Job job = new Job(id, command, process);
+
+        Thread reader = new Thread(() -> {
+            try {
+                // 有界分行: 没有换行的大量输出在读取时就截断,不会整行读入内存
+                OutputPump.readLines(process.getInputStream(), (line, overwritten) -> job.append(line));
+            } catch (IOException e) {
+                log.debug("后台任务 {} 输出结束: {}", id, e.getMessage());
+            }
+        }, "background-job-" + id);
+        reader.setDaemon(true);
+        job.reader = reader;
+        reader.start();
+
+        synchronized (jobs) {
+            evictFinished();
+            jobs.put(id, job);
+        }
+        log.info("已启动后台任务 {} (pid {}): {}", id, process.pid(), command);
+        return job;
+    }
+
+    /**
+     * 移除输出已读完的已结束任务，已结束的任务超过上限时从最早的开始移除
+     */
+    private void evictFinished() {
+        int finished = 0;
+        for (Iterator<Job> iterator = jobs.values().iterator(); iterator.hasNext(); ) {
+            Job job = iterator.next();
+            if (job.isDrained()) {
+                iterator.remove();
+            } else if (job.isFinished()) {
+                finished++;
+            }
+        }
+        for (Iterator<Job> iterator = jobs.values().iterator(); iterator.hasNext() && finished > MAX_FINISHED_JOBS; ) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    public Job get(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    public List<Job> list() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * 终止任务及其子进程
+     *
+     * @return 任务是否存在
+     */
+    public boolean kill(String id) {
+        Job job = get(id);
+        if (job == null) {
+            return false;
+        }
+        if (job.process.isAlive()) {
+            job.markKilled();
+            ProcessTrees.destroy(job.process);
+            log.info("已终止后台任务 {}", id);
+        }
+        return true;
+    }
+
+    /**
+     * 终止所有仍在运行的后台任务
+     */
+    @Override
+    public void close() {
+        for (Job job : list()) {
+            if (job.process.isAlive()) {
+                kill(job.getId());
+            }
+        }
+    }
+
+    private static File nullFile() {
+        return new File(System.getProperty("os.name").toLowerCase().contains("win") ? "NUL" : "/dev/null");
+    }
+}
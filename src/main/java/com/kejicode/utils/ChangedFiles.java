@@ -0,0 +1,107 @@
+package com.kejicode.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本次会话中被工具修改过的文件 (Write/Edit/ApplyPatch/Undo)
+ *
+ * 用于只构建受影响的 Maven 模块；构建成功后由调用方通过 {@link #markBuilt} 标记已构建的文件。
+ * git 工作区的改动在提交前一直存在，因此构建成功时记录这些文件的修改时间和大小作为基线，
+ * 之后只有与基线不同的文件才算作新的改动
+ */
+public final class ChangedFiles {
+
+    private static final Set<Path> FILES = ConcurrentHashMap.newKeySet();
+    private static final Map<Path, Stamp> BUILT = new ConcurrentHashMap<>();
+
+    /** 文件状态，不存在的文件为 (-1, -1) */
+    private record Stamp(long lastModified, long size) {
+
+        static Stamp of(Path file) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                return new Stamp(attrs.lastModifiedTime().toMillis(), attrs.size());
+            } catch (IOException e) {
+                return new Stamp(-1, -1);
+            }
+        }
+    }
+
+    private ChangedFiles() {
+    }
+
+    /**
+     * 记录一个被修改 (创建、改写或删除) 的文件
+     */
+    public static void record(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        FILES.add(normalized);
+        // 工具的修改一定算作新改动,即使修改时间和大小碰巧与基线相同
+        BUILT.remove(normalized);
+    }
+
+    /**
+     * 当前记录的文件
+     */
+    public static Set<Path> snapshot() {
+        return Set.copyOf(FILES);
+    }
+
+    /**
+     * 目录下的改动文件: 本次会话中修改过的文件加上所在 git 仓库工作区的改动
+     */
+    public static Set<Path> collect(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        Set<Path> files = new LinkedHashSet<>();
+        for (Path file : FILES) {
+            if (file.startsWith(normalized)) {
+                files.add(file);
+            }
+        }
+        File repoRoot = findRepositoryRoot(normalized.toFile());
+        if (repoRoot != null) {
+            Set<Path> dirty = InProcessGit.changedPaths(repoRoot);
+            for (Path file : dirty) {
+                if (file.startsWith(normalized) && !Stamp.of(file).equals(BUILT.get(file))) {
+                    files.add(file);
+                }
+            }
+            // 已提交或已还原的文件不再需要基线
+            BUILT.keySet().removeIf(file -> file.startsWith(repoRoot.toPath()) && !dirty.contains(file));
+        }
+        return files;
+    }
+
+    private static File findRepositoryRoot(File dir) {
+        for (File current = dir; current != null; current = current.getParentFile()) {
+            if (new File(current, ".git").exists()) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 标记文件已成功构建: 移除会话记录，并以当前状态作为之后判断改动的基线
+     */
+    public static void markBuilt(Collection<Path> files) {
+        for (Path file : files) {
+            FILES.remove(file);
+            BUILT.put(file, Stamp.of(file));
+        }
+    }
+
+    public static void clear() {
+        FILES.clear();
+        BUILT.clear();
+    }
+}
@@ -0,0 +1,227 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 类级依赖索引 - 读取编译输出目录中 .class 文件的常量池，记录每个类引用了哪些类
+ *
+ * 内部类按所在的顶层类合并，类名一律使用顶层类的全限定名。
+ * 每个 .class 文件按修改时间和大小缓存，再次加载时只重新解析有变化的文件。
+ * 有类文件无法解析时索引不完整，{@link #staleReason()} 给出原因，调用方应放弃按依赖筛选。
+ * 注意编译期内联的常量 (static final 基本类型和字符串) 不会留下引用
+ */
+@Slf4j
+public final class ClassDependencyIndex {
+
+    private static final Map<Path, ClassDependencyIndex> CACHE = new ConcurrentHashMap<>();
+
+    /** 描述符和泛型签名中的类引用，如 Ljava/util/List; */
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([\\w/$]+)[;<]");
+
+    private final Path classesDir;
+    private final Map<Path, ClassInfo> classes = new HashMap<>();
+    /** 解析失败的类文件及原因，下次加载时重试 */
+    private final Map<Path, String> failures = new HashMap<>();
+
+    private record ClassInfo(long lastModified, long size, String name, Set<String> references) {
+    }
+
+    private ClassDependencyIndex(Path classesDir) {
+        this.classesDir = classesDir;
+    }
+
+    /**
+     * 加载 (并增量更新) 编译输出目录的索引
+     *
+     * @param classesDir 如 target/classes 或 target/test-classes
+     */
+    public static ClassDependencyIndex load(Path classesDir) throws IOException {
+        Path normalized = classesDir.toAbsolutePath().normalize();
+        ClassDependencyIndex index = CACHE.computeIfAbsent(normalized, ClassDependencyIndex::new);
+        index.refresh();
+        return index;
+    }
+
+    private synchronized void refresh() throws IOException {
+        if (!Files.isDirectory(classesDir)) {
+            classes.clear();
+            failures.clear();
+            return;
+        }
+        Set<Path> seen = new HashSet<>();
+        int parsed = 0;
+        try (Stream<Path> files = Files.walk(classesDir)) {
+            for (Path file : files.filter(p -> p.toString().endsWith(".class")).toList()) {
+                seen.add(file);
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                long size = Files.size(file);
+                ClassInfo existing = classes.get(file);
+                if (existing != null && existing.lastModified() == lastModified && existing.size() == size) {
+                    continue;
+                }
+                try (InputStream in = Files.newInputStream(file)) {
+                    classes.put(file, parse(in, lastModified, size));
+                    failures.remove(file);
+                    parsed++;
+                } catch (IOException | RuntimeException e) {
+                    // 旧的解析结果已不对应文件内容,不能继续使用
+                    log.debug("解析类文件失败 {}: {}", file, e.getMessage());
+                    classes.remove(file);
+                    failures.put(file, String.valueOf(e.getMessage()));
+                }
+            }
+        }
+        classes.keySet().retainAll(seen);
+        failures.keySet().retainAll(seen);
+        if (parsed > 0) {
+            log.debug("类依赖索引 {}: 解析了 {} 个类文件,共 {} 个", classesDir, parsed, classes.size());
+        }
+    }
+
+    /**
+     * 索引不完整的原因 (有类文件无法解析)，索引完整时返回 null
+     */
+    public synchronized String staleReason() {
+        if (failures.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Path, String> first = failures.entrySet().iterator().next();
+        return String.format("无法解析类文件 %s (%s)%s", classesDir.relativize(first.getKey()), first.getValue(),
+                failures.size() > 1 ? " 等 " + failures.size() + " 个" : "");
+    }
+
+    /**
+     * 类名 (顶层类全限定名) 到它引用的类名的映射
+     */
+    public synchronized Map<String, Set<String>> dependencies() {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (ClassInfo info : classes.values()) {
+            result.computeIfAbsent(info.name(), k -> new HashSet<>()).addAll(info.references());
+        }
+        return result;
+    }
+
+    /**
+     * 索引中的所有类 (顶层类全限定名)
+     */
+    public synchronized Set<String> classNames() {
+        Set<String> names = new HashSet<>();
+        classes.values().forEach(info -> names.add(info.name()));
+        return names;
+    }
+
+    /**
+     * 直接或间接依赖给定类的所有类 (包括给定的类本身)
+     *
+     * @param dependencies 合并后的依赖映射 (可来自多个索引)
+     * @param changed      有改动的类
+     */
+    public static Set<String> affectedBy(Map<String, Set<String>> dependencies, Collection<String> changed) {
+        Map<String, List<String>> reverse = new HashMap<>();
+        dependencies.forEach((name, references) -> {
+            for (String reference : references) {
+                reverse.computeIfAbsent(reference, k -> new ArrayList<>()).add(name);
+            }
+        });
+        Set<String> affected = new HashSet<>(changed);
+        Deque<String> pending = new ArrayDeque<>(changed);
+        while (!pending.isEmpty()) {
+            for (String dependent : reverse.getOrDefault(pending.removeFirst(), List.of())) {
+                if (affected.add(dependent)) {
+                    pending.add(dependent);
+                }
+            }
+        }
+        return affected;
+    }
+
+    // ==================== 类文件解析 ====================
+
+    private static ClassInfo parse(InputStream stream, long lastModified, long size) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("不是类文件");
+        }
+        in.readUnsignedShort(); // minor
+        in.readUnsignedShort(); // major
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classNames = new int[count]; // Class 项指向的 Utf8 下标
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8[i] = in.readUTF();
+                case 7 -> classNames[i] = in.readUnsignedShort();
+                case 8, 16, 19, 20 -> in.readUnsignedShort();
+                case 15 -> in.skipNBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipNBytes(4);
+                case 5, 6 -> {
+                    in.skipNBytes(8);
+                    i++; // long 和 double 占两个常量池位置
+                }
+                default -> throw new IOException("未知的常量池标记: " + tag);
+            }
+        }
+        in.readUnsignedShort(); // access_flags
+        int thisClass = in.readUnsignedShort();
+
+        Set<String> references = new HashSet<>();
+        for (int i = 1; i < count; i++) {
+            String name = classNames[i] > 0 ? utf8[classNames[i]] : null;
+            if (name == null) {
+                continue;
+            }
+            if (name.startsWith("[")) {
+                addDescriptorClasses(name, references);
+            } else {
+                references.add(topLevelName(name));
+            }
+        }
+        // 字段、方法的描述符和泛型签名只出现在 Utf8 项中
+        for (String value : utf8) {
+            if (value != null && value.indexOf(';') > 0) {
+                addDescriptorClasses(value, references);
+            }
+        }
+        String thisName = topLevelName(utf8[classNames[thisClass]]);
+        references.remove(thisName);
+        return new ClassInfo(lastModified, size, thisName, Set.copyOf(references));
+    }
+
+    private static void addDescriptorClasses(String descriptor, Set<String> references) {
+        Matcher matcher = DESCRIPTOR_CLASS.matcher(descriptor);
+        while (matcher.find()) {
+            references.add(topLevelName(matcher.group(1)));
+        }
+    }
+
+    /**
+     * 内部名转为顶层类的全限定名: com/foo/Bar$Inner -> com.foo.Bar
+     */
+    private static String topLevelName(String internalName) {
+        int dollar = internalName.indexOf('$');
+        String name = dollar > 0 ? internalName.substring(0, dollar) : internalName;
+        return name.replace('/', '.');
+    }
+}
@@ -0,0 +1,352 @@
+package com.kejicode.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 命令结果缓存 - 把结果只取决于少数输入文件的只读命令的输出保存在磁盘上，跨轮次、跨会话复用
+ *
+ * 只有白名单中的命令会被缓存，缓存键由命令、工作目录和命令所声明输入的指纹组成:
+ * <ul>
+ *   <li>git log/show/rev-list/shortlog/describe/cat-file/ls-tree: HEAD 和所有引用; 以 : 开头的暂存区对象名另加 index 文件</li>
+ *   <li>mvn dependency:tree/dependency:list/help:effective-pom: 所有模块的 pom.xml 和 settings.xml</li>
+ *   <li>npm ls/explain: package.json、锁文件和 node_modules</li>
+ * </ul>
+ * 条目按命令类型设置有效期，总大小超过上限时删除最久未使用的条目。只缓存成功 (退出码 0) 的结果
+ */
+@Slf4j
+public final class CommandResultCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final long MAX_TOTAL_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_ENTRY_CHARS = 2L * 1024 * 1024;
+    private static final long MAX_TTL = TimeUnit.DAYS.toMillis(1);
+
+    private static final String SHELL_META = "|&;<>$`\\(){}";
+
+    private static final Set<String> GIT_COMMANDS = Set.of(
+            "log", "show", "rev-list", "shortlog", "describe", "cat-file", "ls-tree");
+    private static final Set<String> MAVEN_GOALS = Set.of(
+            "dependency:tree", "dependency:list", "help:effective-pom", "help:effective-settings");
+    private static final Set<String> NPM_COMMANDS = Set.of("ls", "list", "ll", "la", "explain", "why");
+
+    private static Path storeDirectory;
+
+    private CommandResultCache() {
+    }
+
+    /**
+     * 缓存键
+     *
+     * @param hash      命令、目录和输入指纹的哈希
+     * @param ttlMillis 有效期
+     */
+    public record Key(String hash, long ttlMillis) {
+    }
+
+    /**
+     * 命中的缓存结果
+     *
+     * @param output    命令输出
+     * @param ageMillis 结果产生至今的时间
+     */
+    public record Hit(String output, long ageMillis) {
+
+        public String describeAge() {
+            long seconds = ageMillis / 1000;
+            if (seconds < 60) {
+                return seconds + " 秒前";
+            }
+            if (seconds < 3600) {
+                return (seconds / 60) + " 分钟前";
+            }
+            return (seconds / 3600) + " 小时前";
+        }
+    }
+
+    private record StoredEntry(String command, String directory, long createdAt, String output) {
+    }
+
+    /**
+     * 设置缓存目录
+     */
+    public static synchronized void initialize(Path directory) {
+        storeDirectory = directory;
+        log.debug("命令结果缓存目录: {}", directory);
+    }
+
+    private static synchronized Path getStoreDirectory() {
+        if (storeDirectory == null) {
+            initialize(Paths.get(System.getProperty("user.home"), ".kejicode", "cache", "commands"));
+        }
+        return storeDirectory;
+    }
+
+    // ==================== 缓存键 ====================
+
+    /**
+     * 计算命令的缓存键
+     *
+     * @param program   git、mvn 或 npm
+     * @param directory 工作目录
+     * @param command   程序名之后的参数部分
+     * @return 不在白名单中或无法取得输入指纹时返回 null
+     */
+    public static Key key(String program, File directory, String command) {
+        for (char c : SHELL_META.toCharArray()) {
+            if (command.indexOf(c) >= 0) {
+                return null;
+            }
+        }
+        List<String> args = ShellWords.split(command);
+        if (args == null || args.isEmpty()) {
+            return null;
+        }
+        try {
+            Rule rule = switch (program) {
+                case "git" -> gitRule(directory, args);
+                case "mvn" -> mavenRule(directory, args);
+                case "npm" -> npmRule(directory, args);
+                default -> null;
+            };
+            if (rule == null) {
+                return null;
+            }
+            String canonical = program + "\u0000" + directory.getCanonicalPath() + "\u0000" + String.join("\u0000", args)
+                    + "\u0000" + rule.fingerprint();
+            return new Key(sha256(canonical), rule.ttlMillis());
+        } catch (IOException e) {
+            log.debug("计算命令缓存键失败 {} {}: {}", program, command, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 计算 shell 命令行的缓存键，按第一个词识别 git/mvn/npm
+     */
+    public static Key keyForShell(File directory, String commandLine) {
+        String trimmed = commandLine.trim();
+        int space = trimmed.indexOf(' ');
+        String program = space < 0 ? trimmed : trimmed.substring(0, space);
+        String rest = space < 0 ? "" : trimmed.substring(space + 1);
+        return switch (program) {
+            case "git", "npm" -> key(program, directory, rest);
+            case "mvn", "mvnd", "./mvnw" -> key("mvn", directory, rest);
+            default -> null;
+        };
+    }
+
+    private record Rule(String fingerprint, long ttlMillis) {
+    }
+
+    private static Rule gitRule(File directory, List<String> args) {
+        if (!GIT_COMMANDS.contains(args.get(0)) || args.contains("--dirty")) {
+            return null;
+        }
+        String refs = InProcessGit.refsStamp(directory);
+        if (refs == null) {
+            return null;
+        }
+        // :path、:0:path 读取暂存区中的对象,git add 后会变化
+        if (args.stream().anyMatch(arg -> arg.startsWith(":"))) {
+            String index = InProcessGit.indexStamp(directory);
+            if (index == null) {
+                return null;
+            }
+            refs += "\nindex=" + index;
+        }
+        // 提交历史由引用决定; 相对时间 (如 --since、%ar) 靠有效期兜底
+        return new Rule(refs, TimeUnit.HOURS.toMillis(1));
+    }
+
+    private static Rule mavenRule(File directory, List<String> args) throws IOException {
+        boolean hasGoal = false;
+        for (String arg : args) {
+            if (arg.startsWith("-Doutput")) {
+                return null; // 写文件的命令不缓存
+            }
+            if (!arg.startsWith("-")) {
+                if (!MAVEN_GOALS.contains(arg)) {
+                    return null; // 生命周期阶段或其他插件目标
+                }
+                hasGoal = true;
+            }
+        }
+        if (!hasGoal || !new File(directory, "pom.xml").isFile()) {
+            return null;
+        }
+        StringBuilder fingerprint = new StringBuilder();
+        for (MavenModuleGraph.Module module : MavenModuleGraph.load(directory.toPath()).getModules()) {
+            fingerprint.append(fileDigest(module.directory().resolve("pom.xml"))).append('\n');
+        }
+        fingerprint.append(fileDigest(directory.toPath().resolve(".mvn/maven.config"))).append('\n');
+        fingerprint.append(fileDigest(Paths.get(System.getProperty("user.home"), ".m2", "settings.xml")));
+        return new Rule(fingerprint.toString(), TimeUnit.DAYS.toMillis(1));
+    }
+
+    private static Rule npmRule(File directory, List<String> args) throws IOException {
+        if (!NPM_COMMANDS.contains(args.get(0)) || !new File(directory, "package.json").isFile()) {
+            return null;
+        }
+        Path nodeModules = directory.toPath().resolve("node_modules");
+        String fingerprint = NpmInstallStamp.fingerprint(directory)
+                + ":" + lastModified(nodeModules)
+                + ":" + lastModified(nodeModules.resolve(".package-lock.json"));
+        return new Rule(fingerprint, TimeUnit.DAYS.toMillis(1));
+    }
+
+    // ==================== 读写 ====================
+
+    /**
+     * 查找未过期的缓存结果
+     */
+    public static Hit get(Key key) {
+        if (key == null) {
+            return null;
+        }
+        Path file = getStoreDirectory().resolve(key.hash() + ".json");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            StoredEntry entry = MAPPER.readValue(file.toFile(), StoredEntry.class);
+            long age = System.currentTimeMillis() - entry.createdAt();
+            if (age < 0 || age > key.ttlMillis()) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            // 按最近使用时间淘汰
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            log.debug("命令结果缓存命中: {}", entry.command());
+            return new Hit(entry.output(), age);
+        } catch (IOException e) {
+            log.debug("读取命令结果缓存失败 {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存命令结果
+     */
+    public static void put(Key key, String command, File directory, String output) {
+        if (key == null || output.length() > MAX_ENTRY_CHARS) {
+            return;
+        }
+        Path store = getStoreDirectory();
+        try {
+            Files.createDirectories(store);
+            Path file = store.resolve(key.hash() + ".json");
+            Path temp = store.resolve(key.hash() + ".tmp");
+            MAPPER.writeValue(temp.toFile(),
+                    new StoredEntry(command, directory.getAbsolutePath(), System.currentTimeMillis(), output));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict(store);
+        } catch (IOException e) {
+            log.debug("写入命令结果缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除所有缓存结果
+     */
+    public static void clear() {
+        Path store = getStoreDirectory();
+        if (!Files.isDirectory(store)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(store)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.debug("清除命令结果缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除过期条目，总大小超过上限时从最久未使用的条目开始删除
+     */
+    private static synchronized void evict(Path store) throws IOException {
+        record Item(Path path, long lastModified, long size) {
+        }
+        List<Item> items = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long total = 0;
+        try (Stream<Path> files = Files.list(store)) {
+            for (Path file : files.filter(p -> p.toString().endsWith(".json")).toList()) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                long lastModified = attrs.lastModifiedTime().toMillis();
+                if (now - lastModified > MAX_TTL) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                items.add(new Item(file, lastModified, attrs.size()));
+                total += attrs.size();
+            }
+        }
+        if (total <= MAX_TOTAL_BYTES) {
+            return;
+        }
+        items.sort(Comparator.comparingLong(Item::lastModified));
+        long target = MAX_TOTAL_BYTES * 3 / 4;
+        for (Item item : items) {
+            if (total <= target) {
+                break;
+            }
+            Files.deleteIfExists(item.path());
+            total -= item.size();
+        }
+        log.debug("命令结果缓存已淘汰到 {} 字节", total);
+    }
+
+    // ==================== 工具方法 ====================
+
+    private static String fileDigest(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return "-";
+        }
+        MessageDigest digest = newDigest();
+        digest.update(Files.readAllBytes(file));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String sha256(String text) {
+        return HexFormat.of().formatHex(newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.kejicode.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文件编辑引擎 - 单次扫描定位并计数匹配，再将替换结果流式写出
+ *
+ * 不再构造完整的新内容字符串，峰值内存约为文件本身大小
+ */
+public final class EditEngine {
+
+    private EditEngine() {
+    }
+
+    /**
+     * 匹配区间 [start, end)
+     */
+    public record Span(int start, int end) {
+    }
+
+    /**
+     * 扫描结果
+     *
+     * @param count 匹配总数
+     * @param spans 已收集的匹配区间（仅收集首次匹配时只包含第一个）
+     */
+    public record Matches(int count, List<Span> spans) {
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    /**
+     * 一次扫描内完成查找与计数
+     *
+     * @param content    文件内容
+     * @param target     要查找的字符串（不能为空）
+     * @param collectAll true=收集全部匹配区间，false=只收集第一个但仍统计总数
+     */
+    public static Matches find(String content, String target, boolean collectAll) {
+        if (target.isEmpty()) {
+            throw new IllegalArgumentException("查找字符串不能为空");
+        }
+
+        List<Span> spans = new ArrayList<>();
+        int count = 0;
+        int index = content.indexOf(target);
+        while (index != -1) {
+            if (collectAll || count == 0) {
+                spans.add(new Span(index, index + target.length()));
+            }
+            count++;
+            index = content.indexOf(target, index + target.length());
+        }
+        return new Matches(count, spans);
+    }
+
+    /**
+     * 将替换后的内容直接写入 writer，按段写出未改动部分，避免整份内容的中间拷贝
+     *
+     * @param content     原始内容
+     * @param spans       按起始位置升序、互不重叠的替换区间
+     * @param replacement 替换文本
+     * @param out         输出目标
+     */
+    public static void write(String content, List<Span> spans, String replacement, Writer out) throws IOException {
+        int position = 0;
+        for (Span span : spans) {
+            out.write(content, position, span.start() - position);
+            out.write(replacement);
+            position = span.end();
+        }
+        out.write(content, position, content.length() - position);
+    }
+}
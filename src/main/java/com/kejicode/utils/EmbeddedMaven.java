@@ -0,0 +1,373 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 嵌入式 Maven - 在当前 JVM 中通过独立类加载器运行 MavenCli
+ *
+ * Maven 的类只加载一次并在会话内保持，后续构建省去 JVM 启动时间，JIT 也保持预热。
+ * Maven 的日志直接写 System.out/err: 类加载时安装一次按线程分发的输出流，
+ * 构建线程 (及其创建的线程) 的输出进入该次构建的捕获，其他线程的输出照常写到控制台。
+ * 同一实例同一时间只运行一个构建
+ */
+@Slf4j
+public class EmbeddedMaven implements AutoCloseable {
+
+    private static final String MAVEN_CLI = "org.apache.maven.cli.MavenCli";
+
+    /** 构建期间设置的系统属性，构建结束后逐个恢复 */
+    private static final String[] BUILD_PROPERTIES = {
+            "maven.home", "maven.conf", "maven.multiModuleProjectDirectory"
+    };
+
+    /** 控制台输出使用的字符集，捕获时按同一字符集解码 */
+    private static final Charset CONSOLE_CHARSET = consoleCharset();
+
+    /** 当前线程的输出去向，构建线程创建的子线程继承 */
+    private static final InheritableThreadLocal<Sink> ROUTE = new InheritableThreadLocal<>();
+
+    static {
+        System.setOut(new PrintStream(new RoutingOutputStream(System.out), true, CONSOLE_CHARSET));
+        System.setErr(new PrintStream(new RoutingOutputStream(System.err), true, CONSOLE_CHARSET));
+    }
+
+    private final Path mavenHome;
+    private final URLClassLoader classLoader;
+    private final Object cli;
+    private final Method doMain;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "embedded-maven");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean loaderClosed = new AtomicBoolean();
+    private volatile boolean broken;
+    private volatile boolean closed;
+
+    public EmbeddedMaven(Path mavenHome) throws Exception {
+        this.mavenHome = mavenHome;
+        this.classLoader = new URLClassLoader(classpath(mavenHome), ClassLoader.getPlatformClassLoader());
+
+        Thread current = Thread.currentThread();
+        ClassLoader previous = current.getContextClassLoader();
+        current.setContextClassLoader(classLoader);
+        try {
+            Class<?> cliClass = classLoader.loadClass(MAVEN_CLI);
+            this.cli = cliClass.getConstructor().newInstance();
+            this.doMain = cliClass.getMethod("doMain", String[].class, String.class, PrintStream.class, PrintStream.class);
+        } finally {
+            current.setContextClassLoader(previous);
+        }
+        log.info("已加载嵌入式 Maven: {}", mavenHome);
+    }
+
+    private static URL[] classpath(Path mavenHome) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        // 与 bin/m2.conf 一致: conf/logging、lib/ext、lib 以及 boot 中的 plexus-classworlds
+        urls.add(mavenHome.resolve("conf").resolve("logging").toUri().toURL());
+        for (String dir : new String[]{"lib/ext", "lib", "boot"}) {
+            Path libDir = mavenHome.resolve(dir);
+            if (!Files.isDirectory(libDir)) {
+                continue;
+            }
+            try (Stream<Path> jars = Files.list(libDir)) {
+                for (Path jar : jars.filter(p -> p.toString().endsWith(".jar")).sorted().toList()) {
+                    urls.add(jar.toUri().toURL());
+                }
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    private static Charset consoleCharset() {
+        String name = System.getProperty("sun.stdout.encoding");
+        try {
+            if (name != null && Charset.isSupported(name)) {
+                return Charset.forName(name);
+            }
+        } catch (IllegalArgumentException e) {
+            // 非法的字符集名称,使用默认字符集
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * 实例是否仍可使用 (超时的构建无法强制停止，之后不再复用该实例)
+     */
+    public boolean isUsable() {
+        return !broken && !closed;
+    }
+
+    /**
+     * 构建线程是否仍在运行 (超时后构建可能仍在后台继续)
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * 运行一次构建
+     */
+    public synchronized ProcessExecutor.Result execute(List<String> args, File projectDir, long timeoutMillis,
+                                                      Consumer<String> listener) throws InterruptedException {
+        if (!isUsable()) {
+            throw new IllegalStateException("嵌入式 Maven 实例已不可用");
+        }
+        OutputCapture capture = new OutputCapture();
+        LineSplitter splitter = new LineSplitter(line -> {
+            capture.accept(line);
+            if (listener != null) {
+                listener.accept(line);
+            }
+        });
+        Sink sink = new Sink(splitter);
+        PrintStream stream = new PrintStream(new SinkOutputStream(sink), true, CONSOLE_CHARSET);
+
+        long start = System.nanoTime();
+        running.set(true);
+        Future<Integer> future;
+        try {
+            future = worker.submit(() -> {
+                try {
+                    return run(args, projectDir, stream, sink);
+                } finally {
+                    finished();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            throw new IllegalStateException("嵌入式 Maven 已关闭", e);
+        }
+        int exitCode;
+        boolean timedOut = false;
+        try {
+            exitCode = timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+        } catch (TimeoutException e) {
+            // 构建线程无法强制停止: 立即断开捕获,之后的输出全部丢弃,实例不再复用
+            sink.detach();
+            future.cancel(true);
+            broken = true;
+            timedOut = true;
+            exitCode = -1;
+            log.warn("嵌入式 Maven 构建超时,该实例不再复用");
+        } catch (ExecutionException e) {
+            capture.accept("嵌入式 Maven 执行出错: " + e.getCause());
+            exitCode = 1;
+        }
+        if (!timedOut) {
+            stream.flush();
+        }
+        splitter.flushPending();
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new ProcessExecutor.Result(exitCode, capture.toString(), timedOut, duration, 0);
+    }
+
+    private int run(List<String> args, File projectDir, PrintStream stream, Sink sink) throws Exception {
+        Thread current = Thread.currentThread();
+        ClassLoader previousLoader = current.getContextClassLoader();
+        Map<String, String> previousProperties = new HashMap<>();
+        for (String key : BUILD_PROPERTIES) {
+            previousProperties.put(key, System.getProperty(key));
+        }
+
+        current.setContextClassLoader(classLoader);
+        System.setProperty("maven.home", mavenHome.toString());
+        System.setProperty("maven.conf", mavenHome.resolve("conf").toString());
+        System.setProperty("maven.multiModuleProjectDirectory", projectDir.getAbsolutePath());
+        // 只有本线程 (及其子线程) 写 System.out/err 的内容进入捕获
+        ROUTE.set(sink);
+        try {
+            return (Integer) doMain.invoke(cli, args.toArray(new String[0]), projectDir.getAbsolutePath(), stream, stream);
+        } finally {
+            ROUTE.remove();
+            for (Map.Entry<String, String> entry : previousProperties.entrySet()) {
+                if (entry.getValue() == null) {
+                    System.clearProperty(entry.getKey());
+                } else {
+                    System.setProperty(entry.getKey(), entry.getValue());
+                }
+            }
+            current.setContextClassLoader(previousLoader);
+        }
+    }
+
+    /**
+     * 构建线程结束: 实例已关闭时由这里释放类加载器
+     */
+    private void finished() {
+        running.set(false);
+        if (closed) {
+            closeClassLoader();
+        }
+    }
+
+    /**
+     * 关闭实例; 超时的构建仍在运行时，类加载器等到构建线程真正结束后再关闭
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.shutdownNow();
+        if (!running.get()) {
+            closeClassLoader();
+        }
+    }
+
+    private void closeClassLoader() {
+        if (!loaderClosed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            log.debug("关闭嵌入式 Maven 类加载器失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一次构建的输出去向，超时后断开
+     */
+    private static class Sink {
+
+        private volatile OutputStream target;
+
+        Sink(OutputStream target) {
+            this.target = target;
+        }
+
+        void detach() {
+            target = null;
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            OutputStream current = target;
+            if (current != null) {
+                current.write(b, off, len);
+            }
+        }
+    }
+
+    /**
+     * 直接写入某次构建的 Sink (作为 doMain 的输出参数)
+     */
+    private static class SinkOutputStream extends OutputStream {
+
+        private final Sink sink;
+
+        SinkOutputStream(Sink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            sink.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            sink.write(b, off, len);
+        }
+    }
+
+    /**
+     * 按线程分发: 构建线程写入其 Sink，其他线程写入原来的控制台流
+     */
+    private static class RoutingOutputStream extends OutputStream {
+
+        private final PrintStream console;
+
+        RoutingOutputStream(PrintStream console) {
+            this.console = console;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Sink sink = ROUTE.get();
+            if (sink != null) {
+                sink.write(b, off, len);
+            } else {
+                console.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (ROUTE.get() == null) {
+                console.flush();
+            }
+        }
+    }
+
+    /**
+     * 把字节流按行拆分后交给回调
+     */
+    private static class LineSplitter extends OutputStream {
+
+        private final Consumer<String> consumer;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineSplitter(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                emit();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        synchronized void flushPending() {
+            if (line.size() > 0) {
+                emit();
+            }
+        }
+
+        private void emit() {
+            String text = line.toString(CONSOLE_CHARSET);
+            line.reset();
+            consumer.accept(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+        }
+    }
+}
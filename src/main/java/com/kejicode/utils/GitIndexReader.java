@@ -0,0 +1,196 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Git 索引读取器 - 直接解析 .git/index (v2-v4) 得到已跟踪文件列表
+ *
+ * 对 Git 仓库，Glob/Grep 用它代替遍历文件系统和硬编码的忽略目录列表。
+ * 解析结果按 index 文件的修改时间和大小缓存
+ */
+@Slf4j
+public final class GitIndexReader {
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+    private static final int ENTRY_FIXED_SIZE = 62;   // 时间戳、元数据、20 字节 SHA-1 和 flags
+    private static final int EXTENDED_FLAG = 0x4000;
+    private static final int SKIP_WORKTREE = 0x4000;
+    private static final int MODE_TYPE_MASK = 0xF000;
+    private static final int MODE_GITLINK = 0xE000;
+
+    private static final Map<Path, CachedIndex> CACHE = new ConcurrentHashMap<>();
+
+    private GitIndexReader() {
+    }
+
+    private record CachedIndex(long lastModified, long size, List<String> paths) {
+    }
+
+    /**
+     * 目录是否是 Git 仓库根目录 (包含 .git 目录和 index 文件)
+     */
+    public static boolean isRepositoryRoot(Path directory) {
+        return Files.isRegularFile(directory.resolve(".git").resolve("index"));
+    }
+
+    /**
+     * 列出仓库中已跟踪的文件 (相对于仓库根目录，使用 '/' 分隔，按路径排序)
+     *
+     * 不包括子模块和 sparse checkout 中未检出的文件；未合并文件只出现一次
+     */
+    public static List<String> trackedFiles(Path repositoryRoot) throws IOException {
+        Path index = repositoryRoot.resolve(".git").resolve("index");
+        long lastModified = Files.getLastModifiedTime(index).toMillis();
+        long size = Files.size(index);
+
+        CachedIndex cached = CACHE.get(index);
+        if (cached != null && cached.lastModified() == lastModified && cached.size() == size) {
+            return cached.paths();
+        }
+
+        List<String> paths = parse(Files.readAllBytes(index));
+        CACHE.put(index, new CachedIndex(lastModified, size, paths));
+        log.debug("已读取 Git 索引 {}: {} 个文件", index, paths.size());
+        return paths;
+    }
+
+    /**
+     * 列出未跟踪且未被 .gitignore 忽略的文件
+     */
+    public static List<String> untrackedFiles(Path repositoryRoot) throws IOException {
+        try (Git git = Git.open(repositoryRoot.toFile())) {
+            Set<String> untracked = new TreeSet<>(git.status()
+                .setIgnoreSubmodules(SubmoduleWalk.IgnoreSubmoduleMode.ALL)
+                .call()
+                .getUntracked());
+            return new ArrayList<>(untracked);
+        } catch (Exception e) {
+            throw new IOException("读取未跟踪文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 列出 base 目录下的仓库文件 (绝对路径)，可选包含未跟踪文件；索引中存在但已被删除的文件会被跳过
+     */
+    public static List<Path> listFiles(Path repositoryRoot, Path base, boolean includeUntracked) throws IOException {
+        List<String> relative = new ArrayList<>(trackedFiles(repositoryRoot));
+        if (includeUntracked) {
+            relative.addAll(untrackedFiles(repositoryRoot));
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (String path : relative) {
+            Path file = repositoryRoot.resolve(path);
+            if (file.startsWith(base) && Files.isRegularFile(file)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 解析 index 文件内容
+     */
+    static List<String> parse(byte[] data) throws IOException {
+        if (data.length < 12 || readInt(data, 0) != SIGNATURE) {
+            throw new IOException("不是有效的 Git 索引文件");
+        }
+        int version = readInt(data, 4);
+        if (version < 2 || version > 4) {
+            throw new IOException("不支持的 Git 索引版本: " + version);
+        }
+        int count = readInt(data, 8);
+
+        List<String> paths = new ArrayList<>(count);
+        byte[] previous = new byte[0];
+        int pos = 12;
+        for (int i = 0; i < count; i++) {
+            int start = pos;
+            if (pos + ENTRY_FIXED_SIZE > data.length) {
+                throw new IOException("Git 索引文件已截断");
+            }
+            int mode = readInt(data, start + 24);
+            int flags = readShort(data, start + 60);
+            pos = start + ENTRY_FIXED_SIZE;
+
+            int extendedFlags = 0;
+            if ((flags & EXTENDED_FLAG) != 0) {
+                if (version < 3) {
+                    throw new IOException("v2 索引中出现扩展标志");
+                }
+                extendedFlags = readShort(data, pos);
+                pos += 2;
+            }
+
+            byte[] name;
+            if (version == 4) {
+                // 路径前缀压缩: 先是要从上一个路径末尾删除的字节数,再是以 NUL 结尾的剩余部分
+                int c = data[pos++] & 0xFF;
+                long strip = c & 0x7F;
+                while ((c & 0x80) != 0) {
+                    c = data[pos++] & 0xFF;
+                    strip = ((strip + 1) << 7) | (c & 0x7F);
+                }
+                int end = indexOfNul(data, pos);
+                int keep = previous.length - (int) strip;
+                if (keep < 0) {
+                    throw new IOException("Git 索引路径压缩数据无效");
+                }
+                name = new byte[keep + end - pos];
+                System.arraycopy(previous, 0, name, 0, keep);
+                System.arraycopy(data, pos, name, keep, end - pos);
+                pos = end + 1;
+            } else {
+                int end = indexOfNul(data, pos);
+                name = new byte[end - pos];
+                System.arraycopy(data, pos, name, 0, name.length);
+                // 条目用 1-8 个 NUL 补齐到 8 字节的整数倍
+                pos = start + ((end - start + 8) & ~7);
+            }
+            previous = name;
+
+            boolean gitlink = (mode & MODE_TYPE_MASK) == MODE_GITLINK;
+            boolean skipWorktree = (extendedFlags & SKIP_WORKTREE) != 0;
+            if (gitlink || skipWorktree) {
+                continue;
+            }
+            String path = new String(name, StandardCharsets.UTF_8);
+            // 未合并的文件有多个 stage 的条目,它们在索引中相邻
+            if (paths.isEmpty() || !paths.get(paths.size() - 1).equals(path)) {
+                paths.add(path);
+            }
+        }
+        return List.copyOf(paths);
+    }
+
+    private static int indexOfNul(byte[] data, int from) throws IOException {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == 0) {
+                return i;
+            }
+        }
+        throw new IOException("Git 索引文件已截断");
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+}
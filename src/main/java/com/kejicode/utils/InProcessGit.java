@@ -0,0 +1,550 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.BlameCommand;
+import org.eclipse.jgit.api.DiffCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内 Git 只读命令 - 用 JGit 直接读取 .git，省去 fork/exec 和 git 自身的启动开销
+ *
+ * 支持 status、diff (工作区/暂存区/HEAD)、log (-n/--oneline)、show、blame 的常用形式。
+ * 不认识的参数、带 shell 元字符的命令和所有写操作返回 null，由调用方交给 git 命令行执行。
+ * 不依赖工作区内容的结果按 index、HEAD 的修改时间和 HEAD 提交缓存
+ */
+@Slf4j
+public final class InProcessGit {
+
+    private static final int MAX_CACHE_ENTRIES = 64;
+    private static final String SHELL_META = "|&;<>$`\\(){}*?!";
+
+    private static final Map<File, Repository> REPOSITORIES = new ConcurrentHashMap<>();
+    private static final Map<String, CachedOutput> CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedOutput> eldest) {
+                return size() > MAX_CACHE_ENTRIES;
+            }
+        });
+
+    private InProcessGit() {
+    }
+
+    private record CachedOutput(String stamp, String output) {
+    }
+
+    /**
+     * 解析后的命令
+     */
+    private record Invocation(String name, List<String> options, List<String> args, List<String> paths) {
+
+        boolean has(String... flags) {
+            for (String flag : flags) {
+                if (options.contains(flag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 尝试在进程内执行 git 命令
+     *
+     * @param directory 仓库根目录
+     * @param command   git 之后的部分，如 "status" 或 "log -n 5 --oneline"
+     * @return 命令输出；不支持该命令时返回 null
+     */
+    public static String execute(File directory, String command) {
+        Invocation invocation = parse(command);
+        if (invocation == null) {
+            return null;
+        }
+        try {
+            Repository repository = open(directory);
+            String stamp = cacheStamp(repository, invocation);
+            String key = directory.getAbsolutePath() + "\u0000" + String.join("\u0000", ShellWords.split(command));
+            if (stamp != null) {
+                CachedOutput cached = CACHE.get(key);
+                if (cached != null && cached.stamp().equals(stamp)) {
+                    log.debug("Git 命令命中缓存: {}", command);
+                    return cached.output();
+                }
+            }
+
+            String output = run(repository, invocation);
+            if (output != null && stamp != null) {
+                CACHE.put(key, new CachedOutput(stamp, output));
+            }
+            return output;
+        } catch (Exception e) {
+            // 交给 git 命令行处理，由它给出准确的错误信息
+            log.debug("进程内执行 git {} 失败,改用命令行: {}", command, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 清除缓存和已打开的仓库
+     */
+    public static void clear() {
+        CACHE.clear();
+        REPOSITORIES.values().forEach(Repository::close);
+        REPOSITORIES.clear();
+    }
+
+    /**
+     * 工作区中相对 HEAD 有改动的文件 (已修改、已暂存、已删除和未跟踪)
+     *
+     * @param directory 仓库根目录
+     * @return 绝对路径；不是 git 仓库时返回空集合
+     */
+    public static Set<Path> changedPaths(File directory) {
+        if (!new File(directory, ".git").exists()) {
+            return Set.of();
+        }
+        try {
+            Repository repository = open(directory);
+            Status status = new Git(repository).status().call();
+            Set<String> paths = new TreeSet<>();
+            paths.addAll(status.getModified());
+            paths.addAll(status.getChanged());
+            paths.addAll(status.getAdded());
+            paths.addAll(status.getRemoved());
+            paths.addAll(status.getMissing());
+            paths.addAll(status.getUntracked());
+            Path root = repository.getWorkTree().toPath();
+            Set<Path> result = new LinkedHashSet<>();
+            paths.forEach(path -> result.add(root.resolve(path).toAbsolutePath().normalize()));
+            return result;
+        } catch (Exception e) {
+            log.debug("读取 {} 的改动文件失败: {}", directory, e.getMessage());
+            return Set.of();
+        }
+    }
+
+    /**
+     * HEAD 和所有引用 (分支、标签、远程分支) 指向的提交，任一移动都会改变返回值
+     *
+     * @return 不是 git 仓库时返回 null
+     */
+    public static String refsStamp(File directory) {
+        try {
+            Repository repository = open(directory);
+            StringBuilder stamp = new StringBuilder(idOf(repository, Constants.HEAD));
+            for (Ref ref : repository.getRefDatabase().getRefs()) {
+                ObjectId id = ref.getObjectId();
+                stamp.append('\n').append(ref.getName()).append('=').append(id == null ? "-" : id.name());
+            }
+            return stamp.toString();
+        } catch (Exception e) {
+            log.debug("读取 {} 的引用失败: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 暂存区 (index) 文件的修改时间和大小，git add 等操作会改变它
+     *
+     * @return 不是 git 仓库时返回 null
+     */
+    public static String indexStamp(File directory) {
+        try {
+            File index = new File(open(directory).getDirectory(), "index");
+            return lastModified(index) + ":" + index.length();
+        } catch (Exception e) {
+            log.debug("读取 {} 的暂存区失败: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Repository open(File directory) throws IOException {
+        File key = directory.getCanonicalFile();
+        Repository repository = REPOSITORIES.get(key);
+        if (repository == null) {
+            repository = Git.open(key).getRepository();
+            Repository existing = REPOSITORIES.putIfAbsent(key, repository);
+            if (existing != null) {
+                repository.close();
+                repository = existing;
+            }
+        }
+        return repository;
+    }
+
+    // ==================== 解析 ====================
+
+    private static Invocation parse(String command) {
+        for (char c : SHELL_META.toCharArray()) {
+            if (command.indexOf(c) >= 0) {
+                return null;
+            }
+        }
+        List<String> tokens = ShellWords.split(command);
+        if (tokens == null || tokens.isEmpty()) {
+            return null;
+        }
+
+        String name = tokens.get(0);
+        Set<String> allowed = switch (name) {
+            case "status" -> Set.of("-s", "--short", "--porcelain");
+            case "diff" -> Set.of("--cached", "--staged", "--name-only", "--name-status");
+            case "log" -> Set.of("--oneline");
+            case "show" -> Set.of();
+            case "blame" -> Set.of();
+            default -> null;
+        };
+        if (allowed == null) {
+            return null;
+        }
+
+        List<String> options = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        boolean afterSeparator = false;
+        for (int i = 1; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (afterSeparator) {
+                paths.add(token);
+            } else if (token.equals("--")) {
+                afterSeparator = true;
+            } else if (name.equals("log") && (token.equals("-n") || token.equals("--max-count")) && i + 1 < tokens.size()) {
+                options.add("-n");
+                args.add(0, "-n" + tokens.get(++i));
+            } else if (name.equals("log") && (token.matches("-\\d+") || token.matches("-n\\d+")
+                    || token.startsWith("--max-count="))) {
+                options.add("-n");
+                args.add(0, "-n" + token.replaceAll("\\D", ""));
+            } else if (token.startsWith("-")) {
+                if (!allowed.contains(token)) {
+                    return null;
+                }
+                options.add(token);
+            } else {
+                args.add(token);
+            }
+        }
+        return new Invocation(name, options, args, paths);
+    }
+
+    // ==================== 缓存 ====================
+
+    /**
+     * 结果只依赖 index 和提交历史时返回缓存戳，依赖工作区内容时返回 null (不缓存)
+     */
+    private static String cacheStamp(Repository repository, Invocation invocation) throws IOException {
+        boolean readsWorkTree = switch (invocation.name()) {
+            case "status", "blame" -> true;
+            case "diff" -> !invocation.has("--cached", "--staged");
+            default -> false;
+        };
+        if (readsWorkTree) {
+            return null;
+        }
+        File gitDir = repository.getDirectory();
+        StringBuilder stamp = new StringBuilder()
+            .append(lastModified(new File(gitDir, "index"))).append(':')
+            .append(lastModified(new File(gitDir, Constants.HEAD))).append(':')
+            .append(idOf(repository, Constants.HEAD));
+        // 显式指定的版本 (分支名等) 可能独立于 HEAD 移动
+        for (String arg : invocation.args()) {
+            if (!arg.startsWith("-n")) {
+                stamp.append(':').append(idOf(repository, arg));
+            }
+        }
+        return stamp.toString();
+    }
+
+    private static String idOf(Repository repository, String rev) throws IOException {
+        ObjectId id = repository.resolve(rev);
+        return id == null ? "-" : id.name();
+    }
+
+    private static long lastModified(File file) {
+        try {
+            return Files.getLastModifiedTime(file.toPath()).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // ==================== 执行 ====================
+
+    private static String run(Repository repository, Invocation invocation) throws Exception {
+        return switch (invocation.name()) {
+            case "status" -> status(repository, invocation);
+            case "diff" -> diff(repository, invocation);
+            case "log" -> log(repository, invocation);
+            case "show" -> show(repository, invocation);
+            case "blame" -> blame(repository, invocation);
+            default -> null;
+        };
+    }
+
+    private static String status(Repository repository, Invocation invocation) throws Exception {
+        if (!invocation.args().isEmpty()) {
+            return null;
+        }
+        Status status = new Git(repository).status().call();
+        OutputCapture out = OutputCapture.verbatim();
+
+        if (invocation.has("-s", "--short", "--porcelain")) {
+            Map<String, char[]> codes = new java.util.TreeMap<>();
+            status.getAdded().forEach(p -> code(codes, p)[0] = 'A');
+            status.getChanged().forEach(p -> code(codes, p)[0] = 'M');
+            status.getRemoved().forEach(p -> code(codes, p)[0] = 'D');
+            status.getModified().forEach(p -> code(codes, p)[1] = 'M');
+            status.getMissing().forEach(p -> code(codes, p)[1] = 'D');
+            status.getConflicting().forEach(p -> {
+                char[] c = code(codes, p);
+                c[0] = 'U';
+                c[1] = 'U';
+            });
+            codes.forEach((path, c) -> out.accept(new String(c) + " " + path));
+            new TreeSet<>(status.getUntracked()).forEach(p -> out.accept("?? " + p));
+            return out.toString();
+        }
+
+        out.accept("On branch " + repository.getBranch());
+        section(out, "Unmerged paths:", Map.of("both modified:", status.getConflicting()));
+        Map<String, Set<String>> staged = new LinkedHashMap<>();
+        staged.put("new file:", status.getAdded());
+        staged.put("modified:", status.getChanged());
+        staged.put("deleted:", status.getRemoved());
+        section(out, "Changes to be committed:", staged);
+        Map<String, Set<String>> unstaged = new LinkedHashMap<>();
+        unstaged.put("modified:", status.getModified());
+        unstaged.put("deleted:", status.getMissing());
+        section(out, "Changes not staged for commit:", unstaged);
+        if (!status.getUntracked().isEmpty()) {
+            out.accept("");
+            out.accept("Untracked files:");
+            new TreeSet<>(status.getUntracked()).forEach(p -> out.accept("\t" + p));
+        }
+        if (status.isClean()) {
+            out.accept("nothing to commit, working tree clean");
+        }
+        return out.toString();
+    }
+
+    private static char[] code(Map<String, char[]> codes, String path) {
+        return codes.computeIfAbsent(path, p -> new char[]{' ', ' '});
+    }
+
+    private static void section(OutputCapture out, String title, Map<String, Set<String>> groups) {
+        if (groups.values().stream().allMatch(Set::isEmpty)) {
+            return;
+        }
+        out.accept("");
+        out.accept(title);
+        groups.forEach((label, paths) -> new TreeSet<>(paths)
+            .forEach(p -> out.accept(String.format("\t%-12s%s", label, p))));
+    }
+
+    private static String diff(Repository repository, Invocation invocation) throws Exception {
+        boolean cached = invocation.has("--cached", "--staged");
+        DiffCommand command = new Git(repository).diff().setCached(cached);
+        if (invocation.args().size() == 1) {
+            // git diff <rev>: 与工作区比较; git diff --cached <rev>: 与暂存区比较
+            command.setOldTree(treeIterator(repository, invocation.args().get(0)));
+        } else if (!invocation.args().isEmpty()) {
+            return null;
+        }
+        if (!invocation.paths().isEmpty()) {
+            command.setPathFilter(PathFilterGroup.createFromStrings(invocation.paths()));
+        }
+
+        if (invocation.has("--name-only", "--name-status")) {
+            command.setShowNameAndStatusOnly(true);
+            OutputCapture out = OutputCapture.verbatim();
+            for (DiffEntry entry : command.call()) {
+                String path = entry.getChangeType() == DiffEntry.ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
+                out.accept(invocation.has("--name-status")
+                    ? entry.getChangeType().name().charAt(0) + "\t" + path
+                    : path);
+            }
+            return out.toString();
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        command.setOutputStream(buffer).call();
+        return capture(buffer);
+    }
+
+    private static String log(Repository repository, Invocation invocation) throws Exception {
+        List<String> args = new ArrayList<>(invocation.args());
+        int limit = -1;
+        if (!args.isEmpty() && args.get(0).startsWith("-n")) {
+            limit = Integer.parseInt(args.remove(0).substring(2));
+        }
+        if (args.size() > 1) {
+            return null;
+        }
+
+        LogCommand command = new Git(repository).log();
+        if (args.size() == 1) {
+            command.add(resolve(repository, args.get(0)));
+        }
+        if (limit >= 0) {
+            command.setMaxCount(limit);
+        }
+        invocation.paths().forEach(command::addPath);
+
+        OutputCapture out = OutputCapture.verbatim();
+        boolean first = true;
+        for (RevCommit commit : command.call()) {
+            if (invocation.has("--oneline")) {
+                out.accept(commit.abbreviate(7).name() + " " + commit.getShortMessage());
+            } else {
+                if (!first) {
+                    out.accept("");
+                }
+                header(out, commit);
+            }
+            first = false;
+        }
+        return out.toString();
+    }
+
+    private static String show(Repository repository, Invocation invocation) throws Exception {
+        if (invocation.args().size() > 1 || !invocation.paths().isEmpty()) {
+            return null;
+        }
+        String rev = invocation.args().isEmpty() ? Constants.HEAD : invocation.args().get(0);
+
+        // git show <rev>:<path> 输出文件内容
+        if (rev.contains(":")) {
+            ObjectId blob = resolve(repository, rev);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            repository.open(blob, Constants.OBJ_BLOB).copyTo(buffer);
+            return capture(buffer);
+        }
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            RevCommit commit = walk.parseCommit(resolve(repository, rev));
+            OutputCapture out = OutputCapture.verbatim();
+            header(out, commit);
+            out.accept("");
+
+            AbstractTreeIterator oldTree = commit.getParentCount() > 0
+                ? treeIterator(repository, walk.parseCommit(commit.getParent(0)).getTree())
+                : new EmptyTreeIterator();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (DiffFormatter formatter = new DiffFormatter(buffer)) {
+                formatter.setRepository(repository);
+                formatter.format(oldTree, treeIterator(repository, commit.getTree()));
+            }
+            return out + capture(buffer);
+        }
+    }
+
+    private static String blame(Repository repository, Invocation invocation) throws Exception {
+        List<String> targets = new ArrayList<>(invocation.args());
+        targets.addAll(invocation.paths());
+        if (targets.size() != 1) {
+            return null;
+        }
+        String path = Path.of(targets.get(0)).normalize().toString().replace(File.separatorChar, '/');
+
+        BlameCommand command = new Git(repository).blame().setFilePath(path);
+        BlameResult result = command.call();
+        if (result == null) {
+            return null;
+        }
+
+        RawText text = result.getResultContents();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z", Locale.ROOT);
+        OutputCapture out = OutputCapture.verbatim();
+        for (int i = 0; i < text.size(); i++) {
+            RevCommit commit = result.getSourceCommit(i);
+            PersonIdent author = result.getSourceAuthor(i);
+            String id = commit == null ? "00000000" : commit.abbreviate(8).name();
+            String who = author == null ? "Not Committed Yet" : author.getName();
+            String when = author == null ? "" : " " + dateFormat.format(author.getWhen());
+            out.accept(String.format("%s (%s%s %d) %s", id, who, when, i + 1, text.getString(i)));
+        }
+        return out.toString();
+    }
+
+    // ==================== 辅助 ====================
+
+    private static void header(OutputCapture out, RevCommit commit) {
+        PersonIdent author = commit.getAuthorIdent();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy Z", Locale.ROOT);
+        dateFormat.setTimeZone(author.getTimeZone());
+        out.accept("commit " + commit.name());
+        if (commit.getParentCount() > 1) {
+            out.accept("Merge: " + commit.getParent(0).abbreviate(7).name() + " " + commit.getParent(1).abbreviate(7).name());
+        }
+        out.accept("Author: " + author.getName() + " <" + author.getEmailAddress() + ">");
+        out.accept("Date:   " + dateFormat.format(author.getWhen()));
+        out.accept("");
+        for (String line : commit.getFullMessage().stripTrailing().split("\n")) {
+            out.accept("    " + line);
+        }
+    }
+
+    private static ObjectId resolve(Repository repository, String rev) throws IOException {
+        ObjectId id = repository.resolve(rev);
+        if (id == null) {
+            throw new IOException("无法解析版本: " + rev);
+        }
+        return id;
+    }
+
+    private static AbstractTreeIterator treeIterator(Repository repository, String rev) throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            return treeIterator(repository, walk.parseCommit(resolve(repository, rev)).getTree());
+        }
+    }
+
+    private static AbstractTreeIterator treeIterator(Repository repository, ObjectId tree) throws IOException {
+        CanonicalTreeParser parser = new CanonicalTreeParser();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            parser.reset(reader, tree);
+        }
+        return parser;
+    }
+
+    private static String capture(ByteArrayOutputStream buffer) {
+        OutputCapture out = OutputCapture.verbatim();
+        buffer.toString(StandardCharsets.UTF_8).lines().forEach(out::accept);
+        return out.toString();
+    }
+}
@@ -0,0 +1,341 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内 Java 编译检查 - 用 javax.tools.JavaCompiler 只编译改动的源文件和依赖它们的类
+ *
+ * 项目依赖的类路径通过 dependency:build-classpath 解析一次，写入各模块的
+ * target/kejicode.classpath，pom.xml 未修改时直接复用。每个模块保持一个预热的文件管理器，
+ * 编译出的类文件只保存在内存中，不会写入 target/classes 等编译输出目录;
+ * 除上述类路径缓存文件外不会在 target 下创建或修改文件
+ */
+@Slf4j
+public class JavaCompileChecker implements AutoCloseable {
+
+    private static final String CLASSPATH_FILE = "target/kejicode.classpath";
+    private static final long RESOLVE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+
+    /** JDK 23 起默认不再运行类路径上的注解处理器 (如 Lombok)，需要显式开启 */
+    private static final List<String> OPTIONS = Runtime.version().feature() >= 21
+            ? List.of("-implicit:none", "-Xprefer:newer", "-encoding", "UTF-8", "-Xlint:none", "-proc:full")
+            : List.of("-implicit:none", "-Xprefer:newer", "-encoding", "UTF-8", "-Xlint:none");
+
+    private final JavaCompiler compiler;
+    private final Map<Path, ModuleContext> contexts = new HashMap<>();
+
+    /**
+     * 模块的编译环境
+     */
+    private static class ModuleContext {
+        StandardJavaFileManager fileManager;
+        long classpathStamp = -1;
+    }
+
+    /**
+     * 一次检查的结果
+     *
+     * @param sources     参与编译的源文件数
+     * @param dependents  其中因依赖改动的类而重新编译的文件数
+     * @param errors      错误 (已格式化)
+     * @param warnings    警告数
+     * @param millis      耗时
+     * @param notes       附加说明 (如重新解析了类路径)
+     */
+    public record Report(int sources, int dependents, List<String> errors, int warnings, long millis,
+                         List<String> notes) {
+
+        public boolean isSuccess() {
+            return errors.isEmpty();
+        }
+    }
+
+    public JavaCompileChecker() {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+    }
+
+    /**
+     * 当前运行环境是否带有编译器 (JRE 中没有)
+     */
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * 检查源文件能否编译
+     *
+     * @param projectRoot       Maven 工程根目录
+     * @param changedFiles      改动的文件，非 .java 文件会被忽略
+     * @param includeDependents 是否同时编译依赖改动类的源文件
+     * @param refreshClasspath  是否强制重新解析依赖类路径
+     */
+    public synchronized Report check(Path projectRoot, Set<Path> changedFiles, boolean includeDependents,
+                                     boolean refreshClasspath) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Path root = projectRoot.toAbsolutePath().normalize();
+        MavenModuleGraph graph = MavenModuleGraph.load(root);
+        List<String> notes = new ArrayList<>();
+
+        // 按模块分组: 改动的源文件
+        Map<MavenModuleGraph.Module, Set<Path>> byModule = new LinkedHashMap<>();
+        Set<String> changedClasses = new LinkedHashSet<>();
+        for (Path file : changedFiles) {
+            Path normalized = file.toAbsolutePath().normalize();
+            if (!normalized.toString().endsWith(".java") || !Files.isRegularFile(normalized)) {
+                continue;
+            }
+            MavenModuleGraph.Module module = graph.moduleOf(normalized).orElse(null);
+            String className = module != null ? className(module.directory(), normalized) : null;
+            if (className == null) {
+                continue;
+            }
+            byModule.computeIfAbsent(module, k -> new LinkedHashSet<>()).add(normalized);
+            changedClasses.add(className);
+        }
+
+        // 依赖改动类的源文件 (根据编译输出中的类依赖)
+        int dependents = 0;
+        if (includeDependents && !changedClasses.isEmpty()) {
+            Map<String, Set<String>> dependencies = new HashMap<>();
+            for (MavenModuleGraph.Module module : graph.getModules()) {
+                dependencies.putAll(ClassDependencyIndex.load(module.directory().resolve("target/classes")).dependencies());
+                dependencies.putAll(ClassDependencyIndex.load(module.directory().resolve("target/test-classes")).dependencies());
+            }
+            for (String affected : ClassDependencyIndex.affectedBy(dependencies, changedClasses)) {
+                if (changedClasses.contains(affected)) {
+                    continue;
+                }
+                for (MavenModuleGraph.Module module : graph.getModules()) {
+                    Path source = sourceFile(module.directory(), affected);
+                    if (source != null) {
+                        if (byModule.computeIfAbsent(module, k -> new LinkedHashSet<>()).add(source)) {
+                            dependents++;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        List<String> errors = new ArrayList<>();
+        int warnings = 0;
+        int sources = 0;
+        for (Map.Entry<MavenModuleGraph.Module, Set<Path>> entry : byModule.entrySet()) {
+            MavenModuleGraph.Module module = entry.getKey();
+            StandardJavaFileManager fileManager = fileManager(root, graph, module, refreshClasspath, notes);
+            refreshClasspath = false; // 一次解析已覆盖所有模块
+
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(entry.getValue());
+            compiler.getTask(null, new MemoryOutput(fileManager), diagnostics, OPTIONS, null, units).call();
+            sources += entry.getValue().size();
+
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.add(format(root, diagnostic));
+                } else if (diagnostic.getKind() == Diagnostic.Kind.WARNING
+                        || diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+                    warnings++;
+                }
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Report(sources, dependents, errors, warnings, millis, notes);
+    }
+
+    /**
+     * 取得模块的文件管理器，类路径变化时重新设置
+     */
+    private StandardJavaFileManager fileManager(Path root, MavenModuleGraph graph, MavenModuleGraph.Module module,
+                                                boolean refresh, List<String> notes)
+            throws IOException, InterruptedException {
+        Path classpathFile = module.directory().resolve(CLASSPATH_FILE);
+        if (refresh || !isFresh(classpathFile, root, module)) {
+            resolveClasspath(root);
+            notes.add("已通过 Maven 重新解析依赖类路径");
+        }
+        if (!Files.isRegularFile(classpathFile)) {
+            throw new IOException("未能解析模块 " + graph.selector(module) + " 的依赖类路径");
+        }
+
+        ModuleContext context = contexts.computeIfAbsent(module.directory(), k -> new ModuleContext());
+        long stamp = Files.getLastModifiedTime(classpathFile).toMillis();
+        if (context.fileManager == null || context.classpathStamp != stamp) {
+            // 本工程各模块的编译输出放在前面，兄弟模块以最新的 target/classes 为准
+            List<Path> classpath = new ArrayList<>();
+            classpath.add(module.directory().resolve("target/classes"));
+            classpath.add(module.directory().resolve("target/test-classes"));
+            List<Path> sourcepath = new ArrayList<>();
+            for (MavenModuleGraph.Module other : graph.getModules()) {
+                if (!other.equals(module)) {
+                    classpath.add(other.directory().resolve("target/classes"));
+                }
+                sourcepath.add(other.directory().resolve("src/main/java"));
+            }
+            sourcepath.add(module.directory().resolve("src/test/java"));
+            String resolved = Files.readString(classpathFile, StandardCharsets.UTF_8).trim();
+            if (!resolved.isEmpty()) {
+                for (String entry : resolved.split(File.pathSeparator)) {
+                    classpath.add(Path.of(entry));
+                }
+            }
+            classpath.removeIf(path -> !Files.exists(path));
+            sourcepath.removeIf(path -> !Files.isDirectory(path));
+
+            if (context.fileManager != null) {
+                context.fileManager.close();
+            }
+            context.fileManager = compiler.getStandardFileManager(null, Locale.getDefault(), StandardCharsets.UTF_8);
+            context.fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classpath);
+            context.fileManager.setLocationFromPaths(StandardLocation.SOURCE_PATH, sourcepath);
+            context.classpathStamp = stamp;
+            log.debug("模块 {} 的编译类路径: {} 项", graph.selector(module), classpath.size());
+        }
+        return context.fileManager;
+    }
+
+    /**
+     * 类路径文件存在且不比模块和根目录的 pom.xml 旧
+     */
+    private static boolean isFresh(Path classpathFile, Path root, MavenModuleGraph.Module module) throws IOException {
+        if (!Files.isRegularFile(classpathFile)) {
+            return false;
+        }
+        long stamp = Files.getLastModifiedTime(classpathFile).toMillis();
+        for (Path pom : new Path[]{root.resolve("pom.xml"), module.directory().resolve("pom.xml")}) {
+            if (Files.exists(pom) && Files.getLastModifiedTime(pom).toMillis() > stamp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void resolveClasspath(Path root) throws IOException, InterruptedException {
+        MavenLauncher.Mode mode = MavenLauncher.select(root.toFile(), MavenLauncher.Mode.MVN);
+        String command = MavenLauncher.executable(mode)
+                + " -B -q dependency:build-classpath -Dmdep.outputFile=" + CLASSPATH_FILE;
+        log.info("解析编译类路径: {}", command);
+        ProcessExecutor.Result result = ProcessExecutor.execute(ProcessExecutor.Request.builder()
+                .command(command)
+                .directory(root.toFile())
+                .timeoutMillis(RESOLVE_TIMEOUT)
+                .build());
+        if (!result.isSuccess()) {
+            throw new IOException("解析依赖类路径失败 (" + command + "):\n" + OutputCapture.clean(result.output()).trim());
+        }
+    }
+
+    private static String format(Path root, Diagnostic<? extends JavaFileObject> diagnostic) {
+        String location = "";
+        if (diagnostic.getSource() != null) {
+            Path file = Path.of(diagnostic.getSource().toUri());
+            location = (file.startsWith(root) ? root.relativize(file) : file) + ":" + diagnostic.getLineNumber()
+                    + ":" + diagnostic.getColumnNumber() + ": ";
+        }
+        return location + diagnostic.getMessage(Locale.getDefault());
+    }
+
+    /**
+     * 源文件对应的顶层类名
+     */
+    private static String className(Path moduleDir, Path file) {
+        for (String sources : new String[]{"src/main/java", "src/test/java"}) {
+            Path sourceRoot = moduleDir.resolve(sources);
+            if (file.startsWith(sourceRoot)) {
+                String relative = sourceRoot.relativize(file).toString().replace(File.separatorChar, '.');
+                return relative.substring(0, relative.length() - ".java".length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 类名对应的源文件，不存在时返回 null
+     */
+    private static Path sourceFile(Path moduleDir, String className) {
+        String relative = className.replace('.', '/') + ".java";
+        for (String sources : new String[]{"src/main/java", "src/test/java"}) {
+            Path file = moduleDir.resolve(sources).resolve(relative);
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (ModuleContext context : contexts.values()) {
+            try {
+                if (context.fileManager != null) {
+                    context.fileManager.close();
+                }
+            } catch (IOException e) {
+                log.debug("关闭文件管理器失败: {}", e.getMessage());
+            }
+        }
+        contexts.clear();
+    }
+
+    /**
+     * 把编译输出留在内存中并丢弃，不写入 target 目录
+     */
+    private static class MemoryOutput extends ForwardingJavaFileManager<JavaFileManager> {
+
+        MemoryOutput(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return discard(className.replace('.', '/') + kind.extension, kind);
+        }
+
+        @Override
+        public FileObject getFileForOutput(Location location, String packageName, String relativeName,
+                                           FileObject sibling) {
+            // 注解处理器生成的资源文件
+            return discard(packageName.replace('.', '/') + "/" + relativeName, JavaFileObject.Kind.OTHER);
+        }
+
+        private static JavaFileObject discard(String path, JavaFileObject.Kind kind) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + path), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 实时输出分流 - 把子进程输出同时送到界面上实时显示
+ *
+ * 输出行先放入有界队列，由单独的渲染线程按固定间隔取出并交给 {@link Sink} 显示。
+ * 队列满时直接丢弃新行，界面渲染再慢也不会阻塞读取子进程输出的线程
+ */
+@Slf4j
+public final class LiveOutput {
+
+    /**
+     * 队列容量，超出的行只计数不显示
+     */
+    static final int QUEUE_CAPACITY = 2048;
+
+    /**
+     * 两次刷新界面的最小间隔
+     */
+    static final long RENDER_INTERVAL_MILLIS = 100;
+
+    /**
+     * 实时区域显示的最近行数
+     */
+    public static final int VISIBLE_LINES = 6;
+
+    private static volatile Sink sink;
+
+    private LiveOutput() {
+    }
+
+    /**
+     * 实时输出的显示端 (由界面实现)，所有方法都在渲染线程中调用
+     */
+    public interface Sink {
+
+        /**
+         * 开始显示一个命令的输出
+         */
+        void begin(String title);
+
+        /**
+         * 刷新显示最近的若干行
+         */
+        void update(List<String> recentLines, long totalLines);
+
+        /**
+         * 命令结束，折叠显示区域
+         */
+        void end(String title, long totalLines, long droppedLines);
+    }
+
+    /**
+     * 设置显示端，传 null 关闭实时输出
+     */
+    public static void setSink(Sink newSink) {
+        sink = newSink;
+    }
+
+    /**
+     * 为一次命令执行打开输出通道；未设置显示端时返回不做任何事的通道
+     */
+    public static Channel open(String title) {
+        Sink current = sink;
+        if (current == null) {
+            return new Channel(null, title);
+        }
+        Channel channel = new Channel(current, title);
+        channel.start();
+        return channel;
+    }
+
+    /**
+     * 一次命令执行的输出通道
+     */
+    public static final class Channel implements Consumer<String>, AutoCloseable {
+
+        private final Sink sink;
+        private final String title;
+        private final BlockingQueue<String> queue;
+        private final AtomicLong dropped = new AtomicLong();
+        private final Deque<String> recent = new ArrayDeque<>();
+        private long totalLines;
+        private volatile boolean closed;
+        private Thread renderer;
+
+        private Channel(Sink sink, String title) {
+            this.sink = sink;
+            this.title = title;
+            this.queue = sink == null ? null : new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        }
+
+        private void start() {
+            renderer = new Thread(this::render, "live-output");
+            renderer.setDaemon(true);
+            renderer.start();
+        }
+
+        /**
+         * 接收一行输出，从不阻塞
+         */
+        @Override
+        public void accept(String line) {
+            if (queue != null && !closed && !queue.offer(line)) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        /**
+         * 因队列已满未显示的行数
+         */
+        public long getDroppedLines() {
+            return dropped.get();
+        }
+
+        private void render() {
+            try {
+                sink.begin(title);
+                List<String> batch = new ArrayList<>();
+                long lastRender = 0;
+                boolean dirty = false;
+                while (!closed || !queue.isEmpty()) {
+                    String first = queue.poll(RENDER_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch);
+                        for (String line : batch) {
+                            remember(OutputCapture.clean(line));
+                        }
+                        batch.clear();
+                        dirty = true;
+                    }
+                    long now = System.currentTimeMillis();
+                    if (dirty && now - lastRender >= RENDER_INTERVAL_MILLIS) {
+                        sink.update(List.copyOf(recent), totalLines);
+                        lastRender = now;
+                        dirty = false;
+                    }
+                }
+                sink.end(title, totalLines, dropped.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.debug("实时输出显示失败: {}", e.getMessage());
+            }
+        }
+
+        private void remember(String line) {
+            totalLines++;
+            recent.addLast(line);
+            if (recent.size() > VISIBLE_LINES) {
+                recent.removeFirst();
+            }
+        }
+
+        /**
+         * 结束通道，等待剩余输出显示完毕并折叠显示区域
+         */
+        @Override
+        public void close() {
+            if (renderer == null || closed) {
+                return;
+            }
+            closed = true;
+            try {
+                renderer.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.kejicode.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maven 启动方式选择 - 优先使用 mvnd (常驻守护进程) 或项目自带的 ./mvnw，
+ * 并按启动方式统计每次构建的耗时以便比较
+ */
+public final class MavenLauncher {
+
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase().contains("win");
+
+    private static final Map<Mode, LongSummaryStatistics> TIMINGS = new EnumMap<>(Mode.class);
+
+    private MavenLauncher() {
+    }
+
+    /**
+     * Maven 启动方式
+     */
+    public enum Mode {
+        MVND("mvnd"),
+        WRAPPER("mvnw"),
+        MVN("mvn"),
+        EMBEDDED("embedded");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * 按参数值查找启动方式，auto 或无法识别时返回 null
+         */
+        public static Mode fromLabel(String value) {
+            for (Mode mode : values()) {
+                if (mode.label.equalsIgnoreCase(value) || mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 选择启动方式: 指定了可用的方式时使用它，否则按 mvnd、./mvnw、mvn 的顺序选择
+     */
+    public static Mode select(File projectDir, Mode requested) {
+        if (requested == Mode.EMBEDDED) {
+            return mavenHome().isPresent() ? Mode.EMBEDDED : Mode.MVN;
+        }
+        if (requested != null && isAvailable(requested, projectDir)) {
+            return requested;
+        }
+        if (isAvailable(Mode.MVND, projectDir)) {
+            return Mode.MVND;
+        }
+        if (isAvailable(Mode.WRAPPER, projectDir)) {
+            return Mode.WRAPPER;
+        }
+        return Mode.MVN;
+    }
+
+    private static boolean isAvailable(Mode mode, File projectDir) {
+        return switch (mode) {
+            case MVND -> findOnPath("mvnd").isPresent();
+            case WRAPPER -> new File(projectDir, WINDOWS ? "mvnw.cmd" : "mvnw").isFile();
+            case MVN -> true;
+            case EMBEDDED -> mavenHome().isPresent();
+        };
+    }
+
+    /**
+     * 启动方式对应的可执行命令
+     */
+    public static String executable(Mode mode) {
+        return switch (mode) {
+            case MVND -> "mvnd";
+            case WRAPPER -> WINDOWS ? "mvnw.cmd" : "./mvnw";
+            default -> "mvn";
+        };
+    }
+
+    /**
+     * 在 PATH 中查找可执行文件
+     */
+    public static Optional<Path> findOnPath(String name) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return Optional.empty();
+        }
+        String[] candidates = WINDOWS ? new String[]{name + ".cmd", name + ".exe"} : new String[]{name};
+        for (String dir : path.split(File.pathSeparator)) {
+            if (dir.isEmpty()) {
+                continue;
+            }
+            for (String candidate : candidates) {
+                Path file = Path.of(dir, candidate);
+                if (Files.isRegularFile(file) && Files.isExecutable(file)) {
+                    return Optional.of(file);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Maven 安装目录: MAVEN_HOME / M2_HOME，或由 PATH 中的 mvn 推断
+     */
+    public static Optional<Path> mavenHome() {
+        for (String variable : new String[]{"MAVEN_HOME", "M2_HOME"}) {
+            String value = System.getenv(variable);
+            if (value != null && Files.isDirectory(Path.of(value, "lib"))) {
+                return Optional.of(Path.of(value));
+            }
+        }
+        return findOnPath("mvn").flatMap(mvn -> {
+            try {
+                // bin/mvn 可能是符号链接 (sdkman、homebrew 等)
+                Path home = mvn.toRealPath().getParent().getParent();
+                return Files.isDirectory(home.resolve("lib")) ? Optional.of(home) : Optional.empty();
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * 记录一次构建的耗时
+     */
+    public static synchronized void recordTiming(Mode mode, long millis) {
+        TIMINGS.computeIfAbsent(mode, m -> new LongSummaryStatistics()).accept(millis);
+    }
+
+    /**
+     * 各启动方式的耗时统计，如 "mvnd: 3 次, 平均 2.1s; mvn: 1 次, 平均 9.8s"
+     */
+    public static synchronized String describeTimings() {
+        StringBuilder sb = new StringBuilder();
+        TIMINGS.forEach((mode, stats) -> {
+            if (!sb.isEmpty()) {
+                sb.append("; ");
+            }
+            sb.append(String.format("%s: %d 次, 平均 %.1fs", mode.getLabel(), stats.getCount(), stats.getAverage() / 1000.0));
+        });
+        return sb.toString();
+    }
+}
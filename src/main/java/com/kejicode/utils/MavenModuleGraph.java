@@ -0,0 +1,236 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maven 多模块工程的模块图 - 解析 pom.xml 中的 modules 和模块间依赖
+ *
+ * 用于把修改过的文件映射到所属模块，并计算依赖这些模块的下游模块。
+ * 解析结果按所有 pom.xml 的修改时间缓存
+ */
+@Slf4j
+public final class MavenModuleGraph {
+
+    private static final Map<Path, MavenModuleGraph> CACHE = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final List<Module> modules;
+    private final Map<Path, Long> pomStamps;
+
+    /**
+     * 模块
+     *
+     * @param id           groupId:artifactId
+     * @param directory    模块目录 (绝对路径)
+     * @param dependencies 依赖的其他 groupId:artifactId (包括 parent)
+     */
+    public record Module(String id, Path directory, Set<String> dependencies) {
+    }
+
+    private MavenModuleGraph(Path root, List<Module> modules, Map<Path, Long> pomStamps) {
+        this.root = root;
+        this.modules = modules;
+        this.pomStamps = pomStamps;
+    }
+
+    /**
+     * 加载工程的模块图，任一 pom.xml 未修改时复用缓存
+     */
+    public static MavenModuleGraph load(Path root) throws IOException {
+        Path normalized = root.toAbsolutePath().normalize();
+        MavenModuleGraph cached = CACHE.get(normalized);
+        if (cached != null && cached.isFresh()) {
+            return cached;
+        }
+        MavenModuleGraph graph = parse(normalized);
+        CACHE.put(normalized, graph);
+        log.debug("已解析 Maven 模块图 {}: {} 个模块", normalized, graph.modules.size());
+        return graph;
+    }
+
+    private boolean isFresh() {
+        for (Map.Entry<Path, Long> entry : pomStamps.entrySet()) {
+            if (lastModified(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MavenModuleGraph parse(Path root) throws IOException {
+        List<Module> modules = new ArrayList<>();
+        Map<Path, Long> stamps = new LinkedHashMap<>();
+        Deque<Path> pending = new ArrayDeque<>();
+        pending.add(root);
+        Set<Path> seen = new LinkedHashSet<>();
+
+        while (!pending.isEmpty()) {
+            Path dir = pending.removeFirst();
+            if (!seen.add(dir)) {
+                continue;
+            }
+            Path pom = dir.resolve("pom.xml");
+            if (!Files.isRegularFile(pom)) {
+                continue;
+            }
+            stamps.put(pom, lastModified(pom));
+
+            Element project = read(pom);
+            Element parent = child(project, "parent");
+            String groupId = text(project, "groupId");
+            if (groupId == null && parent != null) {
+                groupId = text(parent, "groupId");
+            }
+            String artifactId = text(project, "artifactId");
+
+            Set<String> dependencies = new LinkedHashSet<>();
+            if (parent != null) {
+                dependencies.add(text(parent, "groupId") + ":" + text(parent, "artifactId"));
+            }
+            // 只看 <dependencies>，dependencyManagement 中的声明不构成实际依赖
+            Element dependencyList = child(project, "dependencies");
+            if (dependencyList != null) {
+                for (Element dependency : children(dependencyList, "dependency")) {
+                    String depGroup = text(dependency, "groupId");
+                    if ("${project.groupId}".equals(depGroup) || "${groupId}".equals(depGroup)) {
+                        depGroup = groupId;
+                    }
+                    dependencies.add(depGroup + ":" + text(dependency, "artifactId"));
+                }
+            }
+            modules.add(new Module(groupId + ":" + artifactId, dir, dependencies));
+
+            Element moduleList = child(project, "modules");
+            if (moduleList != null) {
+                for (Element module : children(moduleList, "module")) {
+                    Path moduleDir = dir.resolve(module.getTextContent().trim()).normalize();
+                    // <module> 也可以直接指向 pom 文件
+                    if (moduleDir.getFileName() != null && moduleDir.getFileName().toString().endsWith(".xml")) {
+                        moduleDir = moduleDir.getParent();
+                    }
+                    pending.add(moduleDir);
+                }
+            }
+        }
+        return new MavenModuleGraph(root, List.copyOf(modules), stamps);
+    }
+
+    public List<Module> getModules() {
+        return modules;
+    }
+
+    /**
+     * 文件所属的模块 (目录最深的那个)
+     */
+    public Optional<Module> moduleOf(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        Module best = null;
+        for (Module module : modules) {
+            if (normalized.startsWith(module.directory())
+                    && (best == null || module.directory().getNameCount() > best.directory().getNameCount())) {
+                best = module;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * 是否是根模块 (根 pom 的修改可能影响所有模块)
+     */
+    public boolean isRoot(Module module) {
+        return module.directory().equals(root);
+    }
+
+    /**
+     * 依赖给定模块 (直接或间接) 的其他模块
+     */
+    public Set<Module> dependentsOf(Collection<Module> changed) {
+        Set<String> affected = new LinkedHashSet<>();
+        changed.forEach(module -> affected.add(module.id()));
+        Set<Module> dependents = new LinkedHashSet<>();
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (Module module : modules) {
+                if (!affected.contains(module.id()) && module.dependencies().stream().anyMatch(affected::contains)) {
+                    affected.add(module.id());
+                    dependents.add(module);
+                    grew = true;
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * 用于 -pl 参数的模块路径 (相对于根目录)
+     */
+    public String selector(Module module) {
+        String relative = root.relativize(module.directory()).toString().replace('\\', '/');
+        return relative.isEmpty() ? "." : relative;
+    }
+
+    private static Element read(Path pom) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document document = factory.newDocumentBuilder().parse(pom.toFile());
+            return document.getDocumentElement();
+        } catch (Exception e) {
+            throw new IOException("解析 " + pom + " 失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static Element child(Element parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && name.equals(element.getTagName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && name.equals(element.getTagName())) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element parent, String name) {
+        Element element = child(parent, name);
+        return element != null ? element.getTextContent().trim() : null;
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
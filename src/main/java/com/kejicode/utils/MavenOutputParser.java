@@ -0,0 +1,417 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maven 输出解析器 - 从构建日志中提取简洁的结构化摘要
+ *
+ * 逐行接收输出 (可作为 {@link ProcessExecutor} 的监听器)，提取模块构建状态、
+ * 带文件/行号的编译错误和测试统计；失败的测试从 surefire/failsafe 的 XML 报告读取。
+ * 下载进度和插件日志等噪音全部丢弃
+ */
+@Slf4j
+public class MavenOutputParser implements Consumer<String> {
+
+    private static final int MAX_COMPILER_ERRORS = 30;
+    private static final int MAX_OTHER_ERRORS = 10;
+    private static final int MAX_FAILED_TESTS = 20;
+    private static final int STACK_HEAD_LINES = 5;
+
+    private static final Set<String> LIFECYCLE_PHASES = Set.of(
+        "validate", "compile", "test-compile", "test", "package", "verify", "install", "deploy",
+        "integration-test", "clean");
+
+    private static final Pattern LEVEL = Pattern.compile("^\\[(INFO|WARNING|ERROR)]\\s?(.*)$");
+    private static final Pattern REACTOR_LINE = Pattern.compile(
+        "^(.+?)\\s+\\.+\\s*(SUCCESS|FAILURE|SKIPPED)(?:\\s*\\[\\s*(.+?)\\s*])?$");
+    private static final Pattern COMPILER_ERROR = Pattern.compile(
+        "^(.+\\.(?:java|kt|groovy|scala)):\\[(\\d+)(?:,(\\d+))?]\\s*(.*)$");
+    private static final Pattern TESTS_RUN = Pattern.compile(
+        "^Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)$");
+    /** 插件执行的标题行，如 "--- surefire:3.2.2:test (default-test) @ core ---" */
+    private static final Pattern MOJO_HEADER = Pattern.compile("^--- .+ @ (\\S+) ---$");
+
+    private final Path projectDir;
+
+    private final List<ModuleStatus> modules = new ArrayList<>();
+    private final List<CompilerError> compilerErrors = new ArrayList<>();
+    private final List<String> otherErrors = new ArrayList<>();
+    private String buildResult;
+    private String totalTime;
+    /** 各模块的测试汇总 (同一模块的 surefire/failsafe 累加)，按构建顺序 */
+    private final Map<String, TestCounts> testCounts = new LinkedHashMap<>();
+    private String currentModule = "";
+    private boolean inReactorSummary;
+    private CompilerError lastCompilerError;
+    private int droppedCompilerErrors;
+
+    public MavenOutputParser(Path projectDir) {
+        this.projectDir = projectDir;
+    }
+
+    public record ModuleStatus(String name, String status, String time) {
+    }
+
+    public record CompilerError(String file, int line, int column, String message, List<String> details) {
+    }
+
+    /**
+     * 测试统计
+     */
+    public record TestCounts(int run, int failures, int errors, int skipped) {
+
+        TestCounts plus(TestCounts other) {
+            return new TestCounts(run + other.run, failures + other.failures,
+                errors + other.errors, skipped + other.skipped);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Tests run: %d, Failures: %d, Errors: %d, Skipped: %d", run, failures, errors, skipped);
+        }
+    }
+
+    public record FailedTest(String className, String name, String kind, String message, List<String> stackHead) {
+    }
+
+    /**
+     * 命令是否是生命周期构建 (这类命令输出摘要；dependency:tree 等信息类命令应保留原始输出)
+     */
+    public static boolean isLifecycleBuild(List<String> args) {
+        return args.stream().anyMatch(LIFECYCLE_PHASES::contains);
+    }
+
+    @Override
+    public synchronized void accept(String rawLine) {
+        String line = OutputCapture.clean(rawLine);
+        Matcher level = LEVEL.matcher(line);
+        if (!level.matches()) {
+            if (lastCompilerError != null && line.startsWith("  ")) {
+                addDetail(line.trim());
+            }
+            return;
+        }
+        String severity = level.group(1);
+        String text = level.group(2);
+
+        if (lastCompilerError != null && (text.startsWith("  ") || text.startsWith("\t"))) {
+            addDetail(text.trim());
+            return;
+        }
+        lastCompilerError = null;
+
+        if (text.startsWith("Reactor Summary")) {
+            inReactorSummary = true;
+            modules.clear();
+            return;
+        }
+        if (inReactorSummary) {
+            Matcher reactor = REACTOR_LINE.matcher(text.trim());
+            if (reactor.matches()) {
+                modules.add(new ModuleStatus(reactor.group(1), reactor.group(2), reactor.group(3)));
+                return;
+            }
+            if (text.startsWith("---")) {
+                inReactorSummary = false;
+            }
+        }
+
+        Matcher mojo = MOJO_HEADER.matcher(text.trim());
+        Matcher testsRun = TESTS_RUN.matcher(text.trim());
+        if (mojo.matches()) {
+            currentModule = mojo.group(1);
+        } else if (text.equals("BUILD SUCCESS") || text.equals("BUILD FAILURE")) {
+            buildResult = text;
+        } else if (text.startsWith("Total time:")) {
+            totalTime = text.substring("Total time:".length()).trim();
+        } else if (testsRun.matches()) {
+            // 每个模块每次 surefire/failsafe 执行结束时的汇总,按模块累加 (多模块和 -fae 构建有多条)
+            TestCounts counts = new TestCounts(Integer.parseInt(testsRun.group(1)), Integer.parseInt(testsRun.group(2)),
+                Integer.parseInt(testsRun.group(3)), Integer.parseInt(testsRun.group(4)));
+            testCounts.merge(currentModule, counts, TestCounts::plus);
+        } else if ("ERROR".equals(severity)) {
+            Matcher compiler = COMPILER_ERROR.matcher(text);
+            if (compiler.matches()) {
+                addCompilerError(compiler);
+            } else if (!text.isBlank() && !isErrorNoise(text) && otherErrors.size() < MAX_OTHER_ERRORS) {
+                otherErrors.add(text);
+            }
+        }
+    }
+
+    private void addCompilerError(Matcher compiler) {
+        String file = relativize(compiler.group(1));
+        int line = Integer.parseInt(compiler.group(2));
+        int column = compiler.group(3) != null ? Integer.parseInt(compiler.group(3)) : 0;
+        // maven-compiler-plugin 会在 "COMPILATION ERROR" 段和失败原因中各打印一遍
+        for (CompilerError existing : compilerErrors) {
+            if (existing.file().equals(file) && existing.line() == line && existing.message().equals(compiler.group(4))) {
+                return;
+            }
+        }
+        if (compilerErrors.size() >= MAX_COMPILER_ERRORS) {
+            droppedCompilerErrors++;
+            return;
+        }
+        lastCompilerError = new CompilerError(file, line, column, compiler.group(4), new ArrayList<>());
+        compilerErrors.add(lastCompilerError);
+    }
+
+    private void addDetail(String detail) {
+        if (lastCompilerError.details().size() < 3) {
+            lastCompilerError.details().add(detail);
+        }
+    }
+
+    private static boolean isErrorNoise(String text) {
+        return text.startsWith("-> [Help")
+            || text.startsWith("To see the full stack trace")
+            || text.startsWith("Re-run Maven")
+            || text.startsWith("For more information about the errors")
+            || text.startsWith("[Help ")
+            || text.startsWith("After correcting the problems")
+            || text.startsWith("  mvn <args>")
+            || text.startsWith("COMPILATION ERROR")
+            || text.equals("Failed tests:")
+            || text.equals("Tests in error:")
+            || text.startsWith("Please refer to ");
+    }
+
+    private String relativize(String file) {
+        try {
+            Path path = Path.of(file);
+            return path.isAbsolute() && path.startsWith(projectDir) ? projectDir.relativize(path).toString() : file;
+        } catch (RuntimeException e) {
+            return file;
+        }
+    }
+
+    public synchronized List<ModuleStatus> getModules() {
+        return List.copyOf(modules);
+    }
+
+    public synchronized List<CompilerError> getCompilerErrors() {
+        return List.copyOf(compilerErrors);
+    }
+
+    public synchronized String getBuildResult() {
+        return buildResult;
+    }
+
+    /**
+     * 所有模块的测试统计之和，没有运行测试时返回 null
+     */
+    public synchronized TestCounts getTestTotals() {
+        return testCounts.values().stream().reduce(TestCounts::plus).orElse(null);
+    }
+
+    /**
+     * 读取构建期间生成或更新的测试报告中失败的测试
+     *
+     * @param since 只读取修改时间不早于此时刻的报告 (毫秒)
+     */
+    public List<FailedTest> readFailedTests(long since) {
+        List<Path> reports = new ArrayList<>();
+        try {
+            Files.walkFileTree(projectDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = dir.getFileName() != null ? dir.getFileName().toString() : "";
+                    if (!dir.equals(projectDir) && (name.startsWith(".") || name.equals("node_modules") || name.equals("src"))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (name.equals("target")) {
+                        collectReports(dir.resolve("surefire-reports"), since, reports);
+                        collectReports(dir.resolve("failsafe-reports"), since, reports);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.debug("查找测试报告失败: {}", e.getMessage());
+        }
+
+        List<FailedTest> failed = new ArrayList<>();
+        for (Path report : reports) {
+            parseReport(report, failed);
+            if (failed.size() >= MAX_FAILED_TESTS) {
+                break;
+            }
+        }
+        return failed.size() > MAX_FAILED_TESTS ? failed.subList(0, MAX_FAILED_TESTS) : failed;
+    }
+
+    private static void collectReports(Path dir, long since, List<Path> reports) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (var files = Files.list(dir)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith("TEST-") && name.endsWith(".xml");
+            }).filter(p -> {
+                try {
+                    return Files.getLastModifiedTime(p).toMillis() >= since;
+                } catch (IOException e) {
+                    return false;
+                }
+            }).sorted().forEach(reports::add);
+        } catch (IOException e) {
+            log.debug("读取测试报告目录失败 {}: {}", dir, e.getMessage());
+        }
+    }
+
+    static void parseReport(Path report, List<FailedTest> failed) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document document = builder.parse(report.toFile());
+
+            NodeList testcases = document.getElementsByTagName("testcase");
+            for (int i = 0; i < testcases.getLength(); i++) {
+                Element testcase = (Element) testcases.item(i);
+                for (Node child = testcase.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    if (child instanceof Element problem
+                            && (problem.getTagName().equals("failure") || problem.getTagName().equals("error"))) {
+                        failed.add(new FailedTest(
+                            testcase.getAttribute("classname"),
+                            testcase.getAttribute("name"),
+                            problem.getTagName(),
+                            problem.hasAttribute("message") ? problem.getAttribute("message") : problem.getAttribute("type"),
+                            stackHead(problem.getTextContent())));
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("解析测试报告失败 {}: {}", report, e.getMessage());
+        }
+    }
+
+    private static List<String> stackHead(String stackTrace) {
+        List<String> head = new ArrayList<>();
+        for (String line : stackTrace.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("at ")) {
+                head.add(trimmed);
+                if (head.size() >= STACK_HEAD_LINES) {
+                    break;
+                }
+            }
+        }
+        return head;
+    }
+
+    /**
+     * 生成给模型的摘要
+     *
+     * @param failedTests 失败的测试 (来自 {@link #readFailedTests(long)})
+     */
+    public synchronized String summarize(List<FailedTest> failedTests) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(buildResult != null ? buildResult : "构建未完成");
+        if (totalTime != null) {
+            sb.append(" (").append(totalTime).append(")");
+        }
+        sb.append("\n");
+
+        if (!modules.isEmpty()) {
+            sb.append("\n模块:\n");
+            for (ModuleStatus module : modules) {
+                sb.append("  ").append(module.status()).append("  ").append(module.name());
+                if (module.time() != null) {
+                    sb.append(" [").append(module.time()).append("]");
+                }
+                sb.append("\n");
+            }
+        }
+
+        if (!compilerErrors.isEmpty()) {
+            sb.append("\n编译错误 (").append(compilerErrors.size() + droppedCompilerErrors).append("):\n");
+            for (CompilerError error : compilerErrors) {
+                sb.append("  ").append(error.file()).append(":").append(error.line());
+                if (error.column() > 0) {
+                    sb.append(":").append(error.column());
+                }
+                sb.append(" ").append(error.message()).append("\n");
+                for (String detail : error.details()) {
+                    sb.append("      ").append(detail).append("\n");
+                }
+            }
+            if (droppedCompilerErrors > 0) {
+                sb.append("  ... 另有 ").append(droppedCompilerErrors).append(" 个编译错误未列出\n");
+            }
+        }
+
+        TestCounts totals = getTestTotals();
+        if (totals != null) {
+            sb.append("\n测试: ").append(totals).append("\n");
+            if (testCounts.size() > 1) {
+                for (Map.Entry<String, TestCounts> module : testCounts.entrySet()) {
+                    sb.append("  ").append(module.getKey()).append(": ").append(module.getValue()).append("\n");
+                }
+            }
+        }
+        if (!failedTests.isEmpty()) {
+            sb.append("\n失败的测试 (").append(failedTests.size()).append("):\n");
+            for (FailedTest test : failedTests) {
+                sb.append("  ").append(test.className()).append(".").append(test.name());
+                if ("error".equals(test.kind())) {
+                    sb.append(" [error]");
+                }
+                if (test.message() != null && !test.message().isBlank()) {
+                    sb.append(": ").append(firstLine(test.message()));
+                }
+                sb.append("\n");
+                for (String frame : test.stackHead()) {
+                    sb.append("      ").append(frame).append("\n");
+                }
+            }
+        }
+
+        // 已经有编译错误或失败测试时,其余的 [ERROR] 行大多是同一问题的重复描述
+        if (!otherErrors.isEmpty() && compilerErrors.isEmpty() && failedTests.isEmpty()) {
+            sb.append("\n错误:\n");
+            for (String error : otherErrors) {
+                sb.append("  ").append(error).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String firstLine(String text) {
+        int newline = text.indexOf('\n');
+        String line = newline >= 0 ? text.substring(0, newline) : text;
+        return line.length() > 300 ? line.substring(0, 300) + "..." : line;
+    }
+}
@@ -0,0 +1,165 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * npm 安装戳 - 记录 node_modules 是按哪一版 package.json 和锁文件、以哪些安装选项安装的
+ *
+ * 指纹是 package.json、各锁文件内容和规范化后的安装选项 (如 --omit=dev、--ignore-scripts) 的 SHA-256，
+ * 安装成功后写入 node_modules 中的戳文件。指纹未变化时 node_modules 已是最新，可以跳过重复的安装
+ */
+@Slf4j
+public final class NpmInstallStamp {
+
+    private static final String STAMP_FILE = ".kejicode-install-stamp";
+
+    /** 参与指纹的文件，按固定顺序 */
+    private static final String[] INPUT_FILES = {
+            "package.json", "package-lock.json", "npm-shrinkwrap.json", "pnpm-lock.yaml", "yarn.lock"
+    };
+
+    /** 不影响 node_modules 内容的选项 (输出、审计、缓存策略、只改 package.json 的保存方式) */
+    private static final Set<String> NEUTRAL_FLAGS = Set.of(
+            "--prefer-offline", "--no-audit", "--audit", "--no-fund", "--fund", "--silent", "--quiet",
+            "-s", "-q", "-d", "--verbose", "--no-progress", "--progress",
+            "--save", "--save-dev", "--save-prod", "--save-optional", "--save-exact", "--no-save",
+            "-S", "-D", "-P", "-O", "-E");
+
+    /** 选项前缀 (带值)，同样不影响 node_modules 内容 */
+    private static final List<String> NEUTRAL_PREFIXES = List.of("--loglevel", "--progress=", "--cache=");
+
+    private NpmInstallStamp() {
+    }
+
+    /**
+     * 规范化安装选项: 去掉不影响安装结果的选项，统一别名，排序去重
+     *
+     * @param flags 命令中以 - 开头的参数 (已去掉引号)
+     */
+    public static List<String> normalizeFlags(List<String> flags) {
+        return flags.stream()
+                .filter(flag -> flag.startsWith("-"))
+                .filter(flag -> !NEUTRAL_FLAGS.contains(flag)
+                        && NEUTRAL_PREFIXES.stream().noneMatch(flag::startsWith))
+                .map(flag -> switch (flag) {
+                    case "--production", "--only=prod", "--only=production" -> "--omit=dev";
+                    default -> flag;
+                })
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * 计算项目依赖声明的指纹 (不带安装选项)
+     */
+    public static String fingerprint(File projectDir) throws IOException {
+        return fingerprint(projectDir, List.of());
+    }
+
+    /**
+     * 计算项目依赖声明和安装选项的指纹
+     */
+    public static String fingerprint(File projectDir, List<String> flags) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String name : INPUT_FILES) {
+            Path file = projectDir.toPath().resolve(name);
+            if (Files.isRegularFile(file)) {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file));
+                digest.update((byte) 0);
+            }
+        }
+        for (String flag : normalizeFlags(flags)) {
+            digest.update(flag.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * node_modules 是否与当前的 package.json 和锁文件一致 (不带安装选项)
+     */
+    public static boolean isCurrent(File projectDir) {
+        return isCurrent(projectDir, List.of());
+    }
+
+    /**
+     * node_modules 是否与当前的 package.json 和锁文件一致，且上次安装使用了相同的安装选项
+     */
+    public static boolean isCurrent(File projectDir, List<String> flags) {
+        Path stamp = stampFile(projectDir);
+        if (!Files.isRegularFile(stamp)) {
+            return false;
+        }
+        try {
+            return Files.readString(stamp, StandardCharsets.UTF_8).trim().equals(fingerprint(projectDir, flags));
+        } catch (IOException e) {
+            log.debug("读取安装戳失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 安装成功后记录当前指纹 (不带安装选项)
+     */
+    public static void record(File projectDir) {
+        record(projectDir, List.of());
+    }
+
+    /**
+     * 安装成功后记录当前指纹
+     *
+     * @param flags 本次安装使用的选项
+     */
+    public static void record(File projectDir, List<String> flags) {
+        Path stamp = stampFile(projectDir);
+        if (!Files.isDirectory(stamp.getParent())) {
+            return;
+        }
+        try {
+            Files.writeString(stamp, fingerprint(projectDir, flags), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.debug("写入安装戳失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 使安装戳失效 (如安装失败后)
+     */
+    public static void invalidate(File projectDir) {
+        try {
+            Files.deleteIfExists(stampFile(projectDir));
+        } catch (IOException e) {
+            log.debug("删除安装戳失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 项目是否有 npm 锁文件 (可以使用 npm ci)
+     */
+    public static boolean hasNpmLockfile(File projectDir) {
+        return new File(projectDir, "package-lock.json").isFile() || new File(projectDir, "npm-shrinkwrap.json").isFile();
+    }
+
+    private static Path stampFile(File projectDir) {
+        return projectDir.toPath().resolve("node_modules").resolve(STAMP_FILE);
+    }
+}
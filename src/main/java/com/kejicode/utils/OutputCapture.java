@@ -0,0 +1,193 @@
+package com.kejicode.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Pattern;
+
+/**
+ * 命令输出捕获缓冲区 - 只保留开头和结尾各 N 个字符，内存占用有固定上限
+ *
+ * 同时去除 ANSI 控制序列，并把连续重复的进度条行合并为最后一行，
+ * 减少传给模型的无用输出。进度行只认两种: 被回车覆盖的行，
+ * 以及整行都符合进度条格式的行 (Maven 的 "Progress (1): 12/100 kB"、"[=====>   ] 45%")，
+ * 普通内容里出现的百分比、分数或分隔线不会被合并
+ */
+public class OutputCapture {
+
+    /**
+     * 默认开头/结尾各保留的字符数
+     */
+    public static final int DEFAULT_LIMIT = 24 * 1024;
+
+    /** 单行保留的最大字符数，超出部分截断 */
+    static final int MAX_LINE_LENGTH = 4 * 1024;
+
+    private static final Pattern ANSI = Pattern.compile("\u001B\\[[0-?]*[ -/]*[@-~]|\u001B\\][^\u0007\u001B]*(\u0007|\u001B\\\\)|\u001B[@-Z\\\\-_]");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+    private static final Pattern BAR = Pattern.compile("\\[[#=>█▓▒░■ .-]*\\]");
+    /** 整行匹配的进度条格式 */
+    private static final Pattern PROGRESS = Pattern.compile(
+        "Progress \\(\\d+\\): [\\d.]+(/[\\d.]+)? ?[kKMG]?B.*"
+            + "|\\s*\\[[#=>█▓▒░■ .-]*\\]\\s*\\d{1,3}(\\.\\d+)?\\s*%\\s*"
+            + "|\\s*\\d{1,3}(\\.\\d+)?\\s*%\\s*");
+
+    private final int headLimit;
+    private final int tailLimit;
+    private final boolean verbatim;
+
+    private final StringBuilder head = new StringBuilder();
+    private final Deque<String> tail = new ArrayDeque<>();
+    private int tailChars;
+    private boolean headFull;
+
+    private String pending;
+    private String pendingKey;
+    private boolean pendingProgress;
+    private boolean pendingOverwritten;
+
+    private long totalLines;
+    private long droppedLines;
+    private long collapsedLines;
+
+    public OutputCapture() {
+        this(DEFAULT_LIMIT, DEFAULT_LIMIT);
+    }
+
+    public OutputCapture(int headLimit, int tailLimit) {
+        this(headLimit, tailLimit, false);
+    }
+
+    private OutputCapture(int headLimit, int tailLimit, boolean verbatim) {
+        this.headLimit = headLimit;
+        this.tailLimit = tailLimit;
+        this.verbatim = verbatim;
+    }
+
+    /**
+     * 只做开头/结尾截断的缓冲区: 不合并进度行，不处理回车和控制序列，
+     * 用于 diff、文件内容等必须原样保留的输出
+     */
+    public static OutputCapture verbatim() {
+        return new OutputCapture(DEFAULT_LIMIT, DEFAULT_LIMIT, true);
+    }
+
+    /**
+     * 追加一行输出（不含换行符）
+     *
+     * 以回车结尾的行表示会被下一段覆盖的进度输出 (如下载进度)，与后续同类行合并;
+     * 紧跟在被覆盖行之后的同类行是这组进度的最终状态，也一并合并
+     */
+    public synchronized void accept(String rawLine) {
+        totalLines++;
+        if (verbatim) {
+            commit(truncate(rawLine));
+            return;
+        }
+        String line = clean(rawLine);
+        boolean overwritten = rawLine.indexOf('\r') >= 0;
+        boolean progress = overwritten || PROGRESS.matcher(line).matches();
+
+        // 连续的进度行只有数字不同时（进度条、下载进度等）只保留最新的一行
+        String key = progress || pendingOverwritten ? progressKey(line) : null;
+        if (key != null && pendingProgress && key.equals(pendingKey)) {
+            pending = line;
+            pendingOverwritten = overwritten;
+            collapsedLines++;
+            return;
+        }
+
+        if (pending != null) {
+            commit(pending);
+        }
+        pending = line;
+        pendingKey = key;
+        pendingProgress = progress;
+        pendingOverwritten = overwritten;
+    }
+
+    private static String progressKey(String line) {
+        return BAR.matcher(DIGITS.matcher(line).replaceAll("#")).replaceAll("[]");
+    }
+
+    private void commit(String line) {
+        if (!headFull) {
+            if (head.length() + line.length() + 1 <= headLimit) {
+                head.append(line).append('\n');
+                return;
+            }
+            headFull = true;
+        }
+
+        tail.addLast(line);
+        tailChars += line.length() + 1;
+        while (tailChars > tailLimit && tail.size() > 1) {
+            tailChars -= tail.removeFirst().length() + 1;
+            droppedLines++;
+        }
+    }
+
+    /**
+     * 去除 ANSI 控制序列，回车覆盖的内容只保留最后一段，并截断超长行
+     */
+    public static String clean(String line) {
+        String result = line.indexOf('\u001B') >= 0 ? ANSI.matcher(line).replaceAll("") : line;
+        int carriageReturn = result.lastIndexOf('\r');
+        if (carriageReturn >= 0) {
+            String last = result.substring(carriageReturn + 1);
+            if (last.isEmpty()) {
+                last = result.substring(0, carriageReturn);
+                int previous = last.lastIndexOf('\r');
+                last = previous >= 0 ? last.substring(previous + 1) : last;
+            }
+            result = last;
+        }
+        return truncate(result);
+    }
+
+    private static String truncate(String line) {
+        if (line.length() > MAX_LINE_LENGTH) {
+            return line.substring(0, MAX_LINE_LENGTH) + "... (行过长,已截断)";
+        }
+        return line;
+    }
+
+    /**
+     * 捕获的总行数（包括被省略和合并的行）
+     */
+    public synchronized long getTotalLines() {
+        return totalLines;
+    }
+
+    /**
+     * 因超出上限被省略的行数
+     */
+    public synchronized long getDroppedLines() {
+        return droppedLines;
+    }
+
+    public synchronized boolean isEmpty() {
+        return totalLines == 0;
+    }
+
+    /**
+     * 生成最终输出: 开头部分 + 省略提示 + 结尾部分
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(head.length() + tailChars + 128);
+        sb.append(head);
+        if (droppedLines > 0) {
+            sb.append(String.format("... (输出过长,省略了中间 %d 行) ...\n", droppedLines));
+        }
+        for (String line : tail) {
+            sb.append(line).append('\n');
+        }
+        if (pending != null) {
+            sb.append(pending).append('\n');
+        }
+        if (collapsedLines > 0) {
+            sb.append(String.format("(已合并 %d 行重复的进度输出)\n", collapsedLines));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 输出泵 - 在独立线程中持续读取子进程输出到有界的 {@link OutputCapture}
+ *
+ * 输出读取与等待进程解耦，超时可以在进程仍在输出或管道未关闭时生效，
+ * 超时后仍可取得已读取的部分输出。
+ *
+ * 按字符读入固定大小的缓冲区自行分行 ({@link #readLines}，持久 shell 和后台任务也用它读取输出):
+ * 超长的行在读取时就截断，不会因为没有换行的大量输出占满内存;
+ * 单独的回车 (进度条覆盖同一行) 作为行尾保留给 {@link OutputCapture}，用于合并进度输出
+ */
+@Slf4j
+public class OutputPump {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final OutputCapture capture;
+    private final Consumer<String> listener;
+    private final Thread thread;
+
+    private OutputPump(InputStream input, OutputCapture capture, Consumer<String> listener, String name) {
+        this.capture = capture;
+        this.listener = listener;
+        this.thread = new Thread(() -> pump(input), name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 启动输出泵线程
+     */
+    public static OutputPump start(InputStream input, String name) {
+        return start(input, name, null);
+    }
+
+    /**
+     * 启动输出泵线程，每读到一行同时转发给 listener
+     */
+    public static OutputPump start(InputStream input, String name, Consumer<String> listener) {
+        OutputPump pump = new OutputPump(input, new OutputCapture(), listener, name);
+        pump.thread.start();
+        return pump;
+    }
+
+    /**
+     * 按行接收输出
+     */
+    @FunctionalInterface
+    public interface LineSink {
+
+        /**
+         * @param line        一行输出 (不含行尾，超长部分已截断)
+         * @param overwritten 该行以单独的回车结束，会被下一段输出覆盖
+         */
+        void accept(String line, boolean overwritten);
+    }
+
+    /**
+     * 读取输入流直到结束，按行交给 sink
+     *
+     * 每行最多保留 {@link OutputCapture#MAX_LINE_LENGTH} + 1 个字符，多出的部分读取时直接丢弃，
+     * 多保留的一个字符让 {@link OutputCapture} 能判断行被截断并加上提示
+     */
+    public static void readLines(InputStream input, LineSink sink) throws IOException {
+        int maxLine = OutputCapture.MAX_LINE_LENGTH + 1;
+        StringBuilder line = new StringBuilder();
+        boolean carriageReturn = false;
+        try (Reader reader = new InputStreamReader(input)) {
+            char[] buffer = new char[BUFFER_SIZE];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                for (int i = 0; i < count; i++) {
+                    char c = buffer[i];
+                    if (carriageReturn) {
+                        carriageReturn = false;
+                        if (c == '\n') {
+                            emit(sink, line, false);
+                            continue;
+                        }
+                        emit(sink, line, true);
+                    }
+                    if (c == '\n') {
+                        emit(sink, line, false);
+                    } else if (c == '\r') {
+                        carriageReturn = true;
+                    } else if (line.length() < maxLine) {
+                        line.append(c);
+                    }
+                }
+            }
+            if (carriageReturn || !line.isEmpty()) {
+                emit(sink, line, carriageReturn);
+            }
+        }
+    }
+
+    private static void emit(LineSink sink, StringBuilder line, boolean overwritten) {
+        String text = line.toString();
+        line.setLength(0);
+        sink.accept(text, overwritten);
+    }
+
+    private void pump(InputStream input) {
+        try {
+            readLines(input, this::emit);
+        } catch (IOException e) {
+            // 进程被终止时管道关闭属于正常情况
+            log.debug("读取进程输出结束: {}", e.getMessage());
+        }
+    }
+
+    private void emit(String text, boolean overwritten) {
+        capture.accept(overwritten ? text + "\r" : text);
+        if (listener != null) {
+            forward(text);
+        }
+    }
+
+    private void forward(String line) {
+        try {
+            listener.accept(line);
+        } catch (RuntimeException e) {
+            // 监听器出错不能影响输出读取
+            log.debug("输出监听器处理失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 等待输出读取完毕（管道关闭），返回是否在期限内读完
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        thread.join(Math.max(1, unit.toMillis(timeout)));
+        return !thread.isAlive();
+    }
+
+    /**
+     * 当前已读取的输出
+     */
+    public String output() {
+        return capture.toString();
+    }
+}
@@ -0,0 +1,186 @@
+package com.kejicode.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 补丁应用器 - 在内存中将 hunk 应用到文件行，支持位置偏移和上下文模糊匹配 (fuzz)
+ *
+ * 定位策略与 GNU patch 类似: 先在期望位置附近查找精确匹配，再忽略行尾空白，
+ * 最后逐步丢弃 hunk 首尾的上下文行 (fuzz) 重新查找
+ */
+public final class PatchApplier {
+
+    public static final int DEFAULT_MAX_FUZZ = 2;
+
+    private PatchApplier() {
+    }
+
+    /**
+     * 单个 hunk 的应用结果
+     *
+     * @param index     hunk 序号 (从 1 开始)
+     * @param applied   是否成功定位
+     * @param line      实际应用位置 (从 1 开始)
+     * @param offset    相对补丁声明位置的行偏移
+     * @param fuzz      丢弃的首尾上下文行数
+     * @param loose     是否忽略了行尾空白差异
+     */
+    public record HunkResult(int index, boolean applied, int line, int offset, int fuzz, boolean loose) {
+
+        public String describe() {
+            if (!applied) {
+                return String.format("hunk #%d 失败: 未找到匹配的上下文", index);
+            }
+            StringBuilder sb = new StringBuilder(String.format("hunk #%d 已应用于第 %d 行", index, line));
+            if (offset != 0) {
+                sb.append(String.format(", 偏移 %+d 行", offset));
+            }
+            if (fuzz > 0) {
+                sb.append(", fuzz ").append(fuzz);
+            }
+            if (loose) {
+                sb.append(", 忽略行尾空白");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 文件级应用结果
+     *
+     * @param lines   应用后的行 (仅在全部 hunk 成功时有意义)
+     * @param hunks   每个 hunk 的结果
+     */
+    public record Result(List<String> lines, List<HunkResult> hunks) {
+
+        public boolean isSuccess() {
+            return hunks.stream().allMatch(HunkResult::applied);
+        }
+    }
+
+    /**
+     * 将补丁的所有 hunk 应用到给定的行列表
+     *
+     * @param original 原始文件行 (不含换行符)
+     * @param hunks    要应用的 hunk
+     * @param maxFuzz  允许丢弃的最大首尾上下文行数
+     */
+    public static Result apply(List<String> original, List<UnifiedDiff.Hunk> hunks, int maxFuzz) {
+        List<String> lines = new ArrayList<>(original);
+        List<HunkResult> results = new ArrayList<>();
+
+        // delta: 已应用 hunk 带来的行数变化; floor: 下一个 hunk 不能早于此位置
+        int delta = 0;
+        int floor = 0;
+
+        for (int h = 0; h < hunks.size(); h++) {
+            UnifiedDiff.Hunk hunk = hunks.get(h);
+            List<String> oldLines = hunk.oldLines();
+
+            // 纯插入 hunk 的起始行号表示"在该行之后插入"
+            int declared = oldLines.isEmpty() ? hunk.oldStart() : hunk.oldStart() - 1;
+            int expected = Math.max(floor, declared + delta);
+
+            Location location = null;
+            int previousDrop = -1;
+            for (int fuzz = 0; fuzz <= maxFuzz && location == null; fuzz++) {
+                int dropHead = Math.min(fuzz, hunk.leadingContext());
+                int dropTail = Math.min(fuzz, hunk.trailingContext());
+                List<String> needle = oldLines.subList(dropHead, Math.max(dropHead, oldLines.size() - dropTail));
+                // 没有更多上下文可丢弃,或丢弃后只剩空内容时停止
+                if (dropHead + dropTail == previousDrop || (needle.isEmpty() && !oldLines.isEmpty())) {
+                    break;
+                }
+                previousDrop = dropHead + dropTail;
+
+                int position = search(lines, needle, expected + dropHead, floor, false);
+                boolean loose = false;
+                if (position < 0) {
+                    position = search(lines, needle, expected + dropHead, floor, true);
+                    loose = position >= 0;
+                }
+                if (position >= 0) {
+                    location = new Location(position - dropHead, dropHead, dropTail, fuzz, loose);
+                }
+            }
+
+            if (location == null) {
+                results.add(new HunkResult(h + 1, false, declared + 1, 0, 0, false));
+                continue;
+            }
+
+            int start = location.start() + location.dropHead();
+            int removeCount = oldLines.size() - location.dropHead() - location.dropTail();
+            List<String> replacement = replacement(hunk, lines, start, location);
+
+            List<String> target = lines.subList(start, start + removeCount);
+            target.clear();
+            target.addAll(replacement);
+
+            results.add(new HunkResult(h + 1, true, location.start() + 1,
+                location.start() - declared - delta, location.fuzz(), location.loose()));
+
+            delta += replacement.size() - removeCount;
+            floor = start + replacement.size();
+        }
+
+        return new Result(lines, results);
+    }
+
+    private record Location(int start, int dropHead, int dropTail, int fuzz, boolean loose) {
+    }
+
+    /**
+     * 计算替换匹配区域的新行: 上下文位置保留文件中的原行 (忽略行尾空白匹配时不会用补丁中的上下文覆盖文件)，
+     * 只有新增行取自补丁
+     */
+    private static List<String> replacement(UnifiedDiff.Hunk hunk, List<String> lines, int start, Location location) {
+        List<UnifiedDiff.Line> body = hunk.lines().subList(location.dropHead(),
+            hunk.lines().size() - location.dropTail());
+        List<String> result = new ArrayList<>(body.size());
+        int cursor = start;
+        for (UnifiedDiff.Line line : body) {
+            switch (line.type()) {
+                case CONTEXT -> result.add(lines.get(cursor++));
+                case REMOVE -> cursor++;
+                case ADD -> result.add(line.text());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 以 expected 为中心向两侧查找 needle，返回起始下标，找不到返回 -1
+     */
+    private static int search(List<String> lines, List<String> needle, int expected, int floor, boolean loose) {
+        int last = lines.size() - needle.size();
+        if (last < floor) {
+            return -1;
+        }
+        int center = Math.min(Math.max(expected, floor), last);
+        int maxDistance = Math.max(center - floor, last - center);
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            int before = center - distance;
+            if (before >= floor && matchesAt(lines, needle, before, loose)) {
+                return before;
+            }
+            int after = center + distance;
+            if (distance > 0 && after <= last && matchesAt(lines, needle, after, loose)) {
+                return after;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(List<String> lines, List<String> needle, int at, boolean loose) {
+        for (int i = 0; i < needle.size(); i++) {
+            String actual = lines.get(at + i);
+            String wanted = needle.get(i);
+            if (loose ? !actual.stripTrailing().equals(wanted.stripTrailing()) : !actual.equals(wanted)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
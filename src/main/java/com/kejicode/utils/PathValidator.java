@@ -5,26 +5,67 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 路径验证工具类 - 确保所有文件操作都在工作目录范围内
+ *
+ * 支持多根工作区: 第一个根目录是主工作目录 (相对路径基于它解析)，
+ * 其余根目录中的文件通过绝对路径或 ../ 访问
  */
 @Slf4j
 public class PathValidator {
 
     private static Path workingDirectory;
 
+    /** 所有工作区根目录及其显示标签，主工作目录在最前 */
+    private static Map<Path, String> workspaceRoots = Map.of();
+
     /**
      * 初始化工作目录
      */
     public static void initialize(String workingDir) {
+        initialize(List.of(workingDir));
+    }
+
+    /**
+     * 初始化多根工作区，第一个目录为主工作目录
+     */
+    public static synchronized void initialize(List<String> rootDirs) {
+        if (rootDirs == null || rootDirs.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个工作目录");
+        }
+        Map<Path, String> roots = new LinkedHashMap<>();
+        for (String dir : rootDirs) {
+            Path root = resolveRoot(dir);
+            if (roots.containsKey(root)) {
+                continue;
+            }
+            String name = root.getFileName() != null ? root.getFileName().toString() : root.toString();
+            String label = name;
+            for (int i = 2; roots.containsValue(label); i++) {
+                label = name + "#" + i;
+            }
+            roots.put(root, label);
+        }
+        workspaceRoots = roots;
+        workingDirectory = roots.keySet().iterator().next();
+        log.info("工作目录已设置为: {}", workingDirectory);
+        if (roots.size() > 1) {
+            log.info("工作区根目录: {}", roots.keySet());
+        }
+    }
+
+    private static Path resolveRoot(String dir) {
         try {
-            workingDirectory = Paths.get(workingDir).toRealPath();
-            log.info("工作目录已设置为: {}", workingDirectory);
+            return Paths.get(dir).toRealPath();
         } catch (IOException e) {
             // 如果路径不存在，使用规范化路径
-            workingDirectory = Paths.get(workingDir).toAbsolutePath().normalize();
-            log.info("工作目录已设置为: {} (路径尚不存在)", workingDirectory);
+            log.info("工作目录 {} 尚不存在", dir);
+            return Paths.get(dir).toAbsolutePath().normalize();
         }
     }
 
@@ -40,6 +81,45 @@ public class PathValidator {
         return workingDirectory;
     }
 
+    /**
+     * 获取所有工作区根目录 (主工作目录在最前)
+     */
+    public static List<Path> getWorkspaceRoots() {
+        getWorkingDirectory();
+        return new ArrayList<>(workspaceRoots.keySet());
+    }
+
+    /**
+     * 是否配置了多个工作区根目录
+     */
+    public static boolean isMultiRoot() {
+        getWorkingDirectory();
+        return workspaceRoots.size() > 1;
+    }
+
+    /**
+     * 包含给定路径的工作区根目录 (嵌套时取最深的一个)，不在任何根目录内时返回 null
+     */
+    public static Path rootOf(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        Path best = null;
+        for (Path root : getWorkspaceRoots()) {
+            if (normalized.startsWith(root) && (best == null || root.getNameCount() > best.getNameCount())) {
+                best = root;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 工作区根目录的显示标签 (目录名，重名时追加序号)
+     */
+    public static String rootLabel(Path root) {
+        getWorkingDirectory();
+        String label = workspaceRoots.get(root);
+        return label != null ? label : root.toString();
+    }
+
     /**
      * 验证给定路径是否在工作目录范围内
      *
@@ -67,11 +147,20 @@ public class PathValidator {
             // 规范化路径（移除 . 和 .. 等）
             target = target.normalize();
 
-            // 检查规范化后的路径是否以工作目录开始
-            if (!target.startsWith(workDir)) {
+            // 检查规范化后的路径是否在某个工作区根目录内
+            Path root = rootOf(target);
+            if (root == null) {
                 throw new SecurityException(
                     String.format("拒绝访问: 路径 '%s' 在工作目录 '%s' 之外",
-                        target, workDir)
+                        target, describeRoots())
+                );
+            }
+
+            // 工作目录内的符号链接可能指向外部
+            if (!WorkspaceSandbox.contains(root, target)) {
+                throw new SecurityException(
+                    String.format("拒绝访问: 路径 '%s' 经符号链接指向工作目录 '%s' 之外",
+                        target, root)
                 );
             }
 
@@ -103,8 +192,15 @@ public class PathValidator {
         }
     }
 
+    private static String describeRoots() {
+        List<Path> roots = getWorkspaceRoots();
+        return roots.size() == 1 ? roots.get(0).toString() : roots.toString();
+    }
+
     /**
      * 将绝对路径转换为相对于工作目录的路径（用于显示）
+     *
+     * 其他工作区根目录中的文件保留绝对路径，以便原样传回给工具
      */
     public static String toRelativePath(Path absolutePath) {
         try {
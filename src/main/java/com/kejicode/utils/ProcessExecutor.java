@@ -0,0 +1,167 @@
+package com.kejicode.utils;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 进程执行器 - Git/Maven/Npm 等工具共用的子进程执行逻辑
+ *
+ * 提供执行期限 (超时后终止整个进程树)、同时运行的子进程数量上限、
+ * 环境变量控制、逐行输出回调以及每次调用的耗时统计
+ */
+@Slf4j
+public final class ProcessExecutor {
+
+    /**
+     * 同时运行的子进程上限，避免并行工具调用把机器压垮
+     */
+    public static final int MAX_CONCURRENT = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final long OUTPUT_DRAIN_TIMEOUT = 2000;
+    private static final Semaphore SLOTS = new Semaphore(MAX_CONCURRENT, true);
+
+    private ProcessExecutor() {
+    }
+
+    /**
+     * 执行请求
+     */
+    @Getter
+    @Builder
+    public static class Request {
+        /**
+         * 通过 shell 执行的完整命令行
+         */
+        private final String command;
+        /**
+         * 工作目录
+         */
+        private final File directory;
+        /**
+         * 超时时间 (毫秒)，0 表示不限制
+         */
+        private final long timeoutMillis;
+        /**
+         * 追加或覆盖的环境变量，值为 null 时从子进程环境中移除
+         */
+        @Singular("env")
+        private final Map<String, String> environment;
+        /**
+         * 逐行输出回调 (可选)
+         */
+        private final Consumer<String> listener;
+    }
+
+    /**
+     * 执行结果
+     *
+     * @param exitCode       退出码，超时时为 -1
+     * @param output         合并后的标准输出和错误输出 (有长度上限)
+     * @param timedOut       是否因超时被终止
+     * @param durationMillis 进程运行耗时
+     * @param queuedMillis   等待执行槽位的耗时
+     */
+    public record Result(int exitCode, String output, boolean timedOut, long durationMillis, long queuedMillis) {
+
+        public boolean isSuccess() {
+            return !timedOut && exitCode == 0;
+        }
+
+        /**
+         * 耗时描述，如 "3.2s" 或 "3.2s, 排队 1.0s"
+         */
+        public String describeTiming() {
+            String timing = String.format("%.1fs", durationMillis / 1000.0);
+            if (queuedMillis >= 100) {
+                timing += String.format(", 排队 %.1fs", queuedMillis / 1000.0);
+            }
+            return timing;
+        }
+    }
+
+    /**
+     * 执行命令并等待结束 (或超时)
+     */
+    public static Result execute(Request request) throws IOException, InterruptedException {
+        long queuedAt = System.nanoTime();
+        SLOTS.acquire();
+        try {
+            long startedAt = System.nanoTime();
+            long queuedMillis = TimeUnit.NANOSECONDS.toMillis(startedAt - queuedAt);
+            Result result = run(request, queuedMillis, startedAt);
+            log.info("命令结束: {} (退出码 {}, 耗时 {}ms, 排队 {}ms{})", request.getCommand(), result.exitCode(),
+                result.durationMillis(), result.queuedMillis(), result.timedOut() ? ", 已超时" : "");
+            return result;
+        } finally {
+            SLOTS.release();
+        }
+    }
+
+    private static Result run(Request request, long queuedMillis, long startedAt)
+            throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder();
+        if (System.getProperty("os.name").toLowerCase().contains("win")) {
+            processBuilder.command("cmd.exe", "/c", request.getCommand());
+        } else {
+            processBuilder.command("sh", "-c", request.getCommand());
+        }
+        if (request.getDirectory() != null) {
+            processBuilder.directory(request.getDirectory());
+        }
+        processBuilder.redirectErrorStream(true);
+        // 工具调用是非交互的，子进程等待输入只会一直挂起
+        processBuilder.redirectInput(ProcessBuilder.Redirect.from(nullFile()));
+
+        Map<String, String> env = processBuilder.environment();
+        request.getEnvironment().forEach((name, value) -> {
+            if (value == null) {
+                env.remove(name);
+            } else {
+                env.put(name, value);
+            }
+        });
+
+        Process process = processBuilder.start();
+        OutputPump pump = OutputPump.start(process.getInputStream(), "process-output-" + process.pid(),
+            request.getListener());
+
+        boolean completed;
+        try {
+            if (request.getTimeoutMillis() > 0) {
+                completed = process.waitFor(request.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } else {
+                process.waitFor();
+                completed = true;
+            }
+        } catch (InterruptedException e) {
+            // 调用方被中断 (如取消本轮对话) 时不能留下继续运行的进程树
+            ProcessTrees.destroy(process);
+            log.warn("等待命令时被中断,已终止进程树: {}", request.getCommand());
+            throw e;
+        }
+
+        if (!completed) {
+            ProcessTrees.destroy(process);
+            log.warn("命令执行超时,已终止进程树: {}", request.getCommand());
+        }
+        // 后台子进程可能继续持有管道,只等待有限时间
+        pump.await(OUTPUT_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        int exitCode = completed ? process.exitValue() : -1;
+        return new Result(exitCode, pump.output(), !completed, durationMillis, queuedMillis);
+    }
+
+    private static File nullFile() {
+        return new File(System.getProperty("os.name").toLowerCase().contains("win") ? "NUL" : "/dev/null");
+    }
+}
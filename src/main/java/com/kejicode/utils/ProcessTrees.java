@@ -0,0 +1,46 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * 进程树工具 - 终止进程时连同其所有子孙进程一起终止
+ */
+@Slf4j
+public final class ProcessTrees {
+
+    private ProcessTrees() {
+    }
+
+    /**
+     * 强制终止进程及其所有子孙进程
+     *
+     * 先记录子孙进程再终止父进程，避免子进程被重新挂到 init 后无法找到
+     */
+    public static void destroy(Process process) {
+        List<ProcessHandle> descendants = process.descendants().toList();
+        process.destroyForcibly();
+        for (ProcessHandle handle : descendants) {
+            if (handle.isAlive()) {
+                handle.destroyForcibly();
+            }
+        }
+        log.debug("已终止进程 {} 及 {} 个子进程", process.pid(), descendants.size());
+    }
+
+    /**
+     * 只终止子孙进程，保留进程本身（用于在持久 shell 中中断正在执行的命令）
+     *
+     * @return 被终止的进程数
+     */
+    public static int destroyDescendants(Process process) {
+        List<ProcessHandle> descendants = process.descendants().toList();
+        for (ProcessHandle handle : descendants) {
+            if (handle.isAlive()) {
+                handle.destroyForcibly();
+            }
+        }
+        return descendants.size();
+    }
+}
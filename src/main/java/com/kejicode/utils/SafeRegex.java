@@ -0,0 +1,140 @@
+package com.kejicode.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 安全正则 - 编译结果缓存与灾难性回溯保护
+ *
+ * 编译后的 Pattern 按 (表达式, 标志) 缓存在 LRU 中，重复搜索不再重新编译。
+ * 匹配时把输入包装成计数的 CharSequence: 正则引擎每读取一个字符计一步，
+ * 超过步数或时间预算 (或线程被中断) 时抛出 {@link BudgetExceededException} 终止匹配
+ */
+public final class SafeRegex {
+
+    private static final int MAX_CACHED_PATTERNS = 256;
+
+    /** 每次匹配的基础步数，另按输入长度追加，正常的 O(n^2) 回溯也留有余量 */
+    private static final long BASE_STEPS = 10_000_000L;
+    private static final long STEPS_PER_CHAR = 1_000L;
+
+    /** 每次匹配的时间预算 */
+    private static final long MAX_NANOS = 1_000_000_000L;
+
+    /** 每隔多少步检查一次时钟和中断状态 */
+    private static final int CHECK_INTERVAL = 4096;
+
+    private static final Map<PatternKey, Pattern> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PatternKey, Pattern> eldest) {
+            return size() > MAX_CACHED_PATTERNS;
+        }
+    };
+
+    private SafeRegex() {
+    }
+
+    private record PatternKey(String regex, int flags) {
+    }
+
+    /**
+     * 正则匹配超出步数或时间预算
+     */
+    public static class BudgetExceededException extends RuntimeException {
+        public BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 编译正则表达式，相同表达式和标志直接返回缓存的 Pattern
+     *
+     * @throws PatternSyntaxException 表达式语法错误
+     */
+    public static Pattern compile(String regex, int flags) {
+        PatternKey key = new PatternKey(regex, flags);
+        synchronized (CACHE) {
+            Pattern cached = CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Pattern pattern = Pattern.compile(regex, flags);
+        synchronized (CACHE) {
+            CACHE.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * 包装匹配输入，预算从调用时开始计算
+     *
+     * 每次匹配 (如对一行调用 find，或对整个文件 replaceAll) 都应重新包装
+     */
+    public static CharSequence guard(CharSequence input) {
+        return new GuardedSequence(input, new Budget(BASE_STEPS + STEPS_PER_CHAR * input.length(),
+                System.nanoTime() + MAX_NANOS));
+    }
+
+    private static final class Budget {
+        private final long maxSteps;
+        private final long deadline;
+        private long steps;
+
+        Budget(long maxSteps, long deadline) {
+            this.maxSteps = maxSteps;
+            this.deadline = deadline;
+        }
+
+        void step() {
+            if (++steps % CHECK_INTERVAL != 0) {
+                return;
+            }
+            if (steps > maxSteps) {
+                throw new BudgetExceededException("正则匹配超过 " + maxSteps + " 步");
+            }
+            if (System.nanoTime() > deadline) {
+                throw new BudgetExceededException("正则匹配超过 " + MAX_NANOS / 1_000_000 + "ms");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new BudgetExceededException("正则匹配被中断");
+            }
+        }
+    }
+
+    /**
+     * 计数的 CharSequence，子序列共享同一个预算
+     */
+    private static final class GuardedSequence implements CharSequence {
+        private final CharSequence delegate;
+        private final Budget budget;
+
+        GuardedSequence(CharSequence delegate, Budget budget) {
+            this.delegate = delegate;
+            this.budget = budget;
+        }
+
+        @Override
+        public char charAt(int index) {
+            budget.step();
+            return delegate.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return delegate.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new GuardedSequence(delegate.subSequence(start, end), budget);
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 持久 shell 会话 - 在同一个 bash 进程中依次执行命令
+ *
+ * 环境变量、当前目录和已激活的工具链 (sdkman、nvm、venv 等) 在命令之间保留。
+ * 命令通过 stdin 发送，每条命令后输出唯一的结束标记和退出码用于界定输出。
+ * 命令超时时只终止 shell 的子进程，shell 本身继续可用；shell 意外退出时下次执行自动重建
+ */
+@Slf4j
+public class ShellSession implements AutoCloseable {
+
+    private static final String EOF = "\u0000EOF";
+    private static final long RECOVERY_TIMEOUT = 3000;
+    private static final int QUEUE_CAPACITY = 10000;
+
+    private final File workingDirectory;
+    private Process process;
+    private BufferedWriter stdin;
+    private BlockingQueue<String> lines;
+
+    /**
+     * 命令执行结果
+     *
+     * @param exitCode  退出码，超时或 shell 退出时为 -1
+     * @param output    命令输出 (开头和结尾部分)
+     * @param timedOut  是否超时
+     * @param restarted 执行过程中 shell 是否被重建 (会话状态已丢失)
+     */
+    public record Result(int exitCode, String output, boolean timedOut, boolean restarted) {
+    }
+
+    public ShellSession(File workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * 在会话中执行命令
+     */
+    public Result execute(String command, long timeoutMillis) throws IOException, InterruptedException {
+        return execute(command, timeoutMillis, null);
+    }
+
+    /**
+     * 在会话中执行命令，每读到一行输出同时转发给 listener (可为 null)
+     */
+    public synchronized Result execute(String command, long timeoutMillis, Consumer<String> listener)
+            throws IOException, InterruptedException {
+        boolean restarted = false;
+        if (process == null || !process.isAlive()) {
+            restarted = process != null;
+            start();
+        }
+
+        // 丢弃上一条命令之后由后台任务产生的残留输出
+        lines.clear();
+
+        String marker = "__KEJI_DONE_" + UUID.randomUUID().toString().replace("-", "") + "__";
+        // 命令的 stdin 重定向到 /dev/null,避免命令读走后续的结束标记;
+        // 标记前先换行,保证标记独占一行,不会随命令末尾未换行的超长行一起被截断
+        stdin.write("{ " + command + "\n} < /dev/null 2>&1\n");
+        stdin.write("printf '\\n%s%s\\n' '" + marker + "' \"$?\"\n");
+        stdin.flush();
+
+        OutputCapture output = new OutputCapture();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Integer exitCode = awaitMarker(marker, output, listener, deadline);
+        if (exitCode != null) {
+            return new Result(exitCode, output.toString(), false, restarted);
+        }
+
+        if (process.waitFor(100, TimeUnit.MILLISECONDS)) {
+            // 命令中执行了 exit 等导致 shell 退出,下次执行时重建
+            log.warn("持久 shell 已退出,退出码: {}", process.exitValue());
+            return new Result(process.exitValue(), output.toString(), false, true);
+        }
+
+        // 超时: 只终止正在执行的子进程,等待 shell 输出结束标记
+        int killed = ProcessTrees.destroyDescendants(process);
+        log.warn("持久 shell 命令超时,已终止 {} 个子进程", killed);
+        if (awaitMarker(marker, output, listener, System.currentTimeMillis() + RECOVERY_TIMEOUT) == null) {
+            // shell 本身卡住 (例如未闭合的引号),重建会话
+            log.warn("持久 shell 无响应,重建会话");
+            close();
+            start();
+            restarted = true;
+        }
+        return new Result(-1, output.toString(), true, restarted);
+    }
+
+    /**
+     * 读取输出直到出现结束标记，返回退出码；超时或 shell 退出时返回 null
+     *
+     * 标记前一行由标记前的换行结束: 为空说明命令输出本身以换行结尾，丢弃; 否则是命令末尾未换行的内容
+     */
+    private Integer awaitMarker(String marker, OutputCapture output, Consumer<String> listener, long deadline)
+            throws InterruptedException {
+        String held = null;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            String line = remaining > 0 ? lines.poll(remaining, TimeUnit.MILLISECONDS) : null;
+            // 按引用比较,输出中相同内容的行不会被误判
+            if (line == null || line == EOF) {
+                if (held != null) {
+                    deliver(held, output, listener);
+                }
+                return null;
+            }
+            if (!line.startsWith(marker)) {
+                if (held != null) {
+                    deliver(held, output, listener);
+                }
+                held = line;
+                continue;
+            }
+            if (held != null && !held.isEmpty()) {
+                deliver(held, output, listener);
+            }
+            try {
+                return Integer.parseInt(line.substring(marker.length()).trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static void deliver(String line, OutputCapture output, Consumer<String> listener) {
+        output.accept(line);
+        if (listener != null) {
+            try {
+                listener.accept(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+            } catch (RuntimeException e) {
+                // 监听器出错不能影响命令执行
+                log.debug("输出监听器处理失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void start() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder("bash", "--noprofile", "--norc");
+        builder.directory(workingDirectory);
+        builder.redirectErrorStream(true);
+        process = builder.start();
+        stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        BlockingQueue<String> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        lines = queue;
+        Process current = process;
+        Thread reader = new Thread(() -> {
+            try {
+                // 与一次性命令相同的有界分行: 超长的行读取时截断,被回车覆盖的行带上回车交给 OutputCapture 合并
+                OutputPump.readLines(current.getInputStream(), (line, overwritten) -> {
+                    try {
+                        queue.put(overwritten ? line + "\r" : line);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new UncheckedIOException(new InterruptedIOException("持久 shell 输出读取被中断"));
+                    }
+                });
+            } catch (IOException | UncheckedIOException e) {
+                log.debug("持久 shell 输出结束: {}", e.getMessage());
+            } finally {
+                queue.offer(EOF);
+            }
+        }, "shell-session-" + process.pid());
+        reader.setDaemon(true);
+        reader.start();
+        log.debug("已启动持久 shell 会话, pid: {}", process.pid());
+    }
+
+    /**
+     * shell 进程是否存活
+     */
+    public synchronized boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (process != null && process.isAlive()) {
+            ProcessTrees.destroy(process);
+        }
+        process = null;
+    }
+}
@@ -0,0 +1,72 @@
+package com.kejicode.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 命令行参数拆分 - 按 shell 规则处理空白和单/双引号，不做变量展开
+ */
+public final class ShellWords {
+
+    private ShellWords() {
+    }
+
+    /**
+     * 拆分命令行，引号未闭合时返回 null
+     */
+    public static List<String> split(String command) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        char quote = 0;
+        boolean inToken = false;
+        for (char c : command.trim().toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                current.append(c);
+                inToken = true;
+            }
+        }
+        if (quote != 0) {
+            return null;
+        }
+        if (inToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * 返回第一个词之后的原始文本 (保留引号和转义原样，可直接拼回命令行)，没有更多内容时返回空字符串
+     */
+    public static String remainder(String command) {
+        String trimmed = command.trim();
+        char quote = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (Character.isWhitespace(c)) {
+                return trimmed.substring(i).trim();
+            }
+        }
+        return "";
+    }
+}
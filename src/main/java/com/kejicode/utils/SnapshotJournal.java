@@ -0,0 +1,566 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 文件快照日志 - 在 Write/Edit/ApplyPatch/Replace 修改文件后记录撤销信息，支持无需 git 的撤销
+ *
+ * 每个条目保存修改后内容的哈希和一个反向差量: 修改前后内容按行比较，只保存修改前独有的行，
+ * 其余部分引用修改后的内容，大小与实际修改的行成正比 (修改过于分散时退化为保存首尾修改之间的整段)。差量按 SHA-256 内容寻址、去重并压缩保存在 ~/.kejicode/snapshots/objects 下，
+ * 未被引用的对象按时间和总大小定期清理。
+ *
+ * 撤销时先校验文件当前内容与记录的修改后内容一致，文件在日志之外被改过 (如 Bash 或编辑器) 时拒绝撤销，
+ * 不会覆盖这些修改
+ */
+@Slf4j
+public class SnapshotJournal {
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final long MAX_STORE_BYTES = 256L * 1024 * 1024;
+    private static final long MAX_OBJECT_AGE = TimeUnit.DAYS.toMillis(7);
+    /** 每记录多少次修改检查一次对象存储大小 */
+    private static final int GC_INTERVAL = 100;
+    /** 按行差分时最多处理的差异行数，超出后保存整个修改区间 */
+    private static final int MAX_DIFF_EDITS = 512;
+    private static final int OP_COPY = 0;
+    private static final int OP_LITERAL = 1;
+
+    private static Path storeDirectory;
+    private static int currentTurn = 0;
+    private static int recordsSinceGc = GC_INTERVAL;
+    private static final Deque<Entry> entries = new ArrayDeque<>();
+
+    /**
+     * 日志条目
+     *
+     * @param turn     所属对话轮次
+     * @param path     被修改的文件
+     * @param hash     反向差量对象的哈希，null 表示修改前文件不存在
+     * @param postHash 修改后内容的哈希，null 表示修改删除了文件
+     */
+    public record Entry(int turn, Path path, String hash, String postHash) {
+    }
+
+    /**
+     * 撤销结果
+     *
+     * @param restored 每个被恢复文件的说明
+     * @param failure  撤销中途停止的原因，全部完成时为 null; 未能撤销的条目保留在日志中
+     */
+    public record UndoResult(List<String> restored, String failure) {
+
+        public boolean isComplete() {
+            return failure == null;
+        }
+    }
+
+    /**
+     * 初始化快照存储目录
+     */
+    public static synchronized void initialize(Path directory) {
+        storeDirectory = directory;
+        recordsSinceGc = GC_INTERVAL;
+        log.debug("快照存储目录: {}", directory);
+    }
+
+    private static Path getStoreDirectory() {
+        if (storeDirectory == null) {
+            initialize(Paths.get(System.getProperty("user.home"), ".kejicode", "snapshots"));
+        }
+        return storeDirectory;
+    }
+
+    /**
+     * 开始新的对话轮次
+     */
+    public static synchronized void beginTurn() {
+        currentTurn++;
+    }
+
+    /**
+     * 文件写入成功后记录一次修改（修改后内容从磁盘读取）
+     *
+     * @param preImage 修改前的字节内容，null 表示文件原先不存在
+     */
+    public static void recordWritten(Path path, byte[] preImage) {
+        try {
+            record(path, preImage, Files.exists(path) ? Files.readAllBytes(path) : null);
+        } catch (IOException e) {
+            log.warn("读取快照修改后内容失败 {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 文件写入成功后记录一次修改
+     *
+     * @param preImage  修改前的字节内容，null 表示文件原先不存在
+     * @param postImage 修改后的字节内容，null 表示修改删除了文件
+     */
+    public static synchronized void record(Path path, byte[] preImage, byte[] postImage) {
+        try {
+            String hash = preImage != null ? store(delta(preImage, postImage)) : null;
+            entries.addLast(new Entry(currentTurn, path, hash, postImage != null ? hash(postImage) : null));
+            while (entries.size() > MAX_ENTRIES) {
+                entries.removeFirst();
+            }
+        } catch (IOException e) {
+            // 快照失败不应影响已完成的文件修改
+            log.warn("保存文件快照失败 {}: {}", path, e.getMessage());
+            return;
+        }
+
+        if (++recordsSinceGc > GC_INTERVAL) {
+            recordsSinceGc = 0;
+            try {
+                collectGarbage(MAX_STORE_BYTES, MAX_OBJECT_AGE);
+            } catch (IOException e) {
+                log.debug("清理快照对象失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 撤销最近 count 次修改，遇到无法撤销的条目时停止
+     */
+    public static synchronized UndoResult undo(int count) {
+        List<String> restored = new ArrayList<>();
+        for (int i = 0; i < count && !entries.isEmpty(); i++) {
+            String failure = restoreLast(restored);
+            if (failure != null) {
+                return new UndoResult(restored, failure);
+            }
+        }
+        return new UndoResult(restored, null);
+    }
+
+    /**
+     * 撤销最近一轮对话中的全部修改，遇到无法撤销的条目时停止
+     */
+    public static synchronized UndoResult undoLastTurn() {
+        List<String> restored = new ArrayList<>();
+        if (entries.isEmpty()) {
+            return new UndoResult(restored, null);
+        }
+        int turn = entries.peekLast().turn();
+        while (!entries.isEmpty() && entries.peekLast().turn() == turn) {
+            String failure = restoreLast(restored);
+            if (failure != null) {
+                return new UndoResult(restored, failure);
+            }
+        }
+        return new UndoResult(restored, null);
+    }
+
+    /**
+     * 清空撤销日志（已保存的快照对象保留，可被后续修改复用）
+     */
+    public static synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 可撤销的修改数量
+     */
+    public static synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 恢复最后一个条目，成功后才从日志中移除
+     *
+     * @return 失败原因，成功时为 null
+     */
+    private static String restoreLast(List<String> restored) {
+        Entry entry = entries.peekLast();
+        try {
+            restored.add(restore(entry));
+            entries.removeLast();
+            return null;
+        } catch (IOException e) {
+            log.warn("撤销失败 {}: {}", entry.path(), e.getMessage());
+            return e.getMessage();
+        }
+    }
+
+    private static String restore(Entry entry) throws IOException {
+        Path path = entry.path();
+        String relativePath = PathValidator.toRelativePath(path);
+
+        byte[] current = Files.exists(path) ? Files.readAllBytes(path) : null;
+        if (!Objects.equals(entry.postHash(), current != null ? hash(current) : null)) {
+            throw new IOException("文件在记录之后被其他方式修改过 (如 Bash 命令或外部编辑器),为避免覆盖这些修改已停止撤销: "
+                + relativePath);
+        }
+
+        ChangedFiles.record(path);
+        if (entry.hash() == null) {
+            Files.deleteIfExists(path);
+            return "已删除新建的文件: " + relativePath;
+        }
+        AtomicFiles.write(path, applyDelta(load(entry.hash()), current != null ? current : new byte[0]));
+        return "已恢复: " + relativePath;
+    }
+
+    /**
+     * 计算从修改后内容还原修改前内容的反向差量
+     *
+     * 差量是一串指令: 复制修改后内容的某一段，或写入修改前独有的字节。先去掉公共前缀和后缀，
+     * 中间部分按行做 Myers 差分，多处分散的修改 (如 Replace) 只保存各处被替换的行;
+     * 差异行数超过 {@value #MAX_DIFF_EDITS} 时不再细分，保存整个中间部分
+     *
+     * @param postImage 修改后内容，null 时按空内容处理 (差量即完整的修改前内容)
+     */
+    static byte[] delta(byte[] preImage, byte[] postImage) {
+        byte[] post = postImage != null ? postImage : new byte[0];
+        int limit = Math.min(preImage.length, post.length);
+        int prefix = 0;
+        while (prefix < limit && preImage[prefix] == post[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+            && preImage[preImage.length - 1 - suffix] == post[post.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        DeltaWriter out = new DeltaWriter();
+        out.copy(0, prefix);
+        int[] preLines = lineStarts(preImage, prefix, preImage.length - suffix);
+        int[] postLines = lineStarts(post, prefix, post.length - suffix);
+        int[] matches = matchLines(preImage, preLines, post, postLines);
+        if (matches == null) {
+            out.literal(preImage, prefix, preImage.length - prefix - suffix);
+        } else {
+            for (int i = 0; i < preLines.length - 1; i++) {
+                int j = matches[i];
+                if (j >= 0) {
+                    out.copy(postLines[j], postLines[j + 1] - postLines[j]);
+                } else {
+                    out.literal(preImage, preLines[i], preLines[i + 1] - preLines[i]);
+                }
+            }
+        }
+        out.copy(post.length - suffix, suffix);
+        return out.toByteArray();
+    }
+
+    /**
+     * [from, to) 范围内各行的起始位置，末尾附加 to 作为结束位置
+     */
+    private static int[] lineStarts(byte[] data, int from, int to) {
+        int count = from < to ? 1 : 0;
+        for (int i = from; i < to - 1; i++) {
+            if (data[i] == '\n') {
+                count++;
+            }
+        }
+        int[] starts = new int[count + 1];
+        int line = 0;
+        if (count > 0) {
+            starts[line++] = from;
+        }
+        for (int i = from; i < to - 1; i++) {
+            if (data[i] == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        starts[count] = to;
+        return starts;
+    }
+
+    /**
+     * 按行 Myers 差分，返回修改前每一行对应的修改后行号 (-1 表示修改前独有)；差异过多时返回 null
+     */
+    private static int[] matchLines(byte[] pre, int[] preLines, byte[] post, int[] postLines) {
+        int n = preLines.length - 1;
+        int m = postLines.length - 1;
+        if (n == 0 || m == 0) {
+            return null;
+        }
+        int[] preHashes = lineHashes(pre, preLines);
+        int[] postHashes = lineHashes(post, postLines);
+
+        int max = Math.min(n + m, MAX_DIFF_EDITS);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                    ? v[offset + k + 1]
+                    : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && sameLine(pre, preLines, preHashes, x, post, postLines, postHashes, y)) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    return backtrack(trace, offset, n, m);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int[] backtrack(List<int[]> trace, int offset, int n, int m) {
+        int[] matches = new int[n];
+        Arrays.fill(matches, -1);
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int previousK = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]) ? k + 1 : k - 1;
+            int previousX = v[offset + previousK];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                matches[--x] = --y;
+            }
+            if (d > 0) {
+                x = previousX;
+                y = previousY;
+            }
+        }
+        return matches;
+    }
+
+    private static int[] lineHashes(byte[] data, int[] starts) {
+        int[] hashes = new int[starts.length - 1];
+        for (int i = 0; i < hashes.length; i++) {
+            int hash = 1;
+            for (int p = starts[i]; p < starts[i + 1]; p++) {
+                hash = 31 * hash + data[p];
+            }
+            hashes[i] = hash;
+        }
+        return hashes;
+    }
+
+    private static boolean sameLine(byte[] a, int[] aLines, int[] aHashes, int i,
+                                    byte[] b, int[] bLines, int[] bHashes, int j) {
+        return aHashes[i] == bHashes[j]
+            && Arrays.equals(a, aLines[i], aLines[i + 1], b, bLines[j], bLines[j + 1]);
+    }
+
+    /**
+     * 差量指令的编码: 相邻的复制和相邻的字面字节自动合并
+     */
+    private static final class DeltaWriter {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private final ByteArrayOutputStream literal = new ByteArrayOutputStream();
+        private int copyOffset;
+        private int copyLength;
+
+        void copy(int offset, int length) {
+            if (length == 0) {
+                return;
+            }
+            flushLiteral();
+            if (copyLength > 0 && copyOffset + copyLength == offset) {
+                copyLength += length;
+                return;
+            }
+            flushCopy();
+            copyOffset = offset;
+            copyLength = length;
+        }
+
+        void literal(byte[] data, int offset, int length) {
+            if (length == 0) {
+                return;
+            }
+            flushCopy();
+            literal.write(data, offset, length);
+        }
+
+        byte[] toByteArray() {
+            flushCopy();
+            flushLiteral();
+            return buffer.toByteArray();
+        }
+
+        private void flushCopy() {
+            if (copyLength > 0) {
+                write(OP_COPY, copyOffset, copyLength, null);
+                copyLength = 0;
+            }
+        }
+
+        private void flushLiteral() {
+            if (literal.size() > 0) {
+                write(OP_LITERAL, literal.size(), -1, literal.toByteArray());
+                literal.reset();
+            }
+        }
+
+        private void write(int op, int first, int second, byte[] data) {
+            try {
+                out.writeByte(op);
+                out.writeInt(first);
+                if (data == null) {
+                    out.writeInt(second);
+                } else {
+                    out.write(data);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static byte[] applyDelta(byte[] delta, byte[] current) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(current.length);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta))) {
+            int op;
+            while ((op = in.read()) != -1) {
+                if (op == OP_COPY) {
+                    int offset = in.readInt();
+                    int length = in.readInt();
+                    if (offset < 0 || length < 0 || (long) offset + length > current.length) {
+                        throw new IOException("快照差量与文件当前内容不匹配");
+                    }
+                    result.write(current, offset, length);
+                } else if (op == OP_LITERAL) {
+                    int length = in.readInt();
+                    if (length < 0 || length > in.available()) {
+                        throw new IOException("快照差量已损坏");
+                    }
+                    result.write(in.readNBytes(length));
+                } else {
+                    throw new IOException("快照差量已损坏");
+                }
+            }
+        }
+        return result.toByteArray();
+    }
+
+    private static String store(byte[] content) throws IOException {
+        String hash = hash(content);
+        Path object = objectPath(hash);
+        if (Files.exists(object)) {
+            // 更新修改时间,复用的对象不会被当作过期对象清理
+            Files.setLastModifiedTime(object, FileTime.fromMillis(System.currentTimeMillis()));
+            return hash;
+        }
+
+        Files.createDirectories(object.getParent());
+        Path temp = Files.createTempFile(object.getParent(), hash, ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+            out.write(content);
+        }
+        try {
+            Files.move(temp, object);
+        } catch (IOException e) {
+            // 并发写入同一对象时另一方已成功
+            Files.deleteIfExists(temp);
+            if (!Files.exists(object)) {
+                throw e;
+            }
+        }
+        return hash;
+    }
+
+    private static byte[] load(String hash) throws IOException {
+        Path object = objectPath(hash);
+        if (!Files.exists(object)) {
+            throw new IOException("快照对象不存在: " + hash);
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(object))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * 删除未被日志引用且超过 maxAge 的对象，总大小仍超过 maxBytes 时从最久未使用的未引用对象开始删除
+     */
+    static synchronized void collectGarbage(long maxBytes, long maxAge) throws IOException {
+        Path objects = getStoreDirectory().resolve("objects");
+        if (!Files.isDirectory(objects)) {
+            return;
+        }
+        Set<Path> referenced = new HashSet<>();
+        for (Entry entry : entries) {
+            if (entry.hash() != null) {
+                referenced.add(objectPath(entry.hash()));
+            }
+        }
+
+        record Item(Path path, long lastModified, long size) {
+        }
+        List<Item> candidates = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long total = 0;
+        try (Stream<Path> files = Files.walk(objects, 2)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                long lastModified = attrs.lastModifiedTime().toMillis();
+                if (!referenced.contains(file)) {
+                    if (now - lastModified > maxAge) {
+                        Files.deleteIfExists(file);
+                        continue;
+                    }
+                    candidates.add(new Item(file, lastModified, attrs.size()));
+                }
+                total += attrs.size();
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        candidates.sort(Comparator.comparingLong(Item::lastModified));
+        long target = maxBytes * 3 / 4;
+        for (Item item : candidates) {
+            if (total <= target) {
+                break;
+            }
+            Files.deleteIfExists(item.path());
+            total -= item.size();
+        }
+        log.debug("快照对象已清理到 {} 字节", total);
+    }
+
+    private static Path objectPath(String hash) {
+        return getStoreDirectory().resolve("objects").resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
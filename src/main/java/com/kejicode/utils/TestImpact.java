@@ -0,0 +1,182 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * 测试影响分析 - 根据改动的源文件和类依赖索引，找出需要运行的测试类
+ *
+ * 编译输出落后于源码 (有源文件比对应的类文件新，或从未编译过) 或有类文件无法解析时无法判断影响范围，
+ * 此时返回过期结果，由调用方运行全部测试
+ */
+@Slf4j
+public final class TestImpact {
+
+    private static final String MAIN_SOURCES = "src/main/java";
+    private static final String TEST_SOURCES = "src/test/java";
+
+    private TestImpact() {
+    }
+
+    /**
+     * 分析结果
+     *
+     * @param tests       需要运行的测试类 (简单类名，用于 -Dtest=)
+     * @param staleReason 索引过期的原因，为 null 时结果可用
+     */
+    public record Selection(Set<String> tests, String staleReason) {
+
+        public boolean isStale() {
+            return staleReason != null;
+        }
+    }
+
+    /**
+     * 分析改动影响的测试
+     *
+     * @param projectRoot  Maven 工程根目录
+     * @param changedFiles 改动的文件 (绝对路径)
+     */
+    public static Selection select(Path projectRoot, Collection<Path> changedFiles) throws IOException {
+        MavenModuleGraph graph = MavenModuleGraph.load(projectRoot);
+        Set<Path> changed = new LinkedHashSet<>();
+        changedFiles.forEach(file -> changed.add(file.toAbsolutePath().normalize()));
+
+        // 改动的文件映射为类名; pom.xml 和资源文件的影响无法从类依赖得出
+        Set<String> changedClasses = new LinkedHashSet<>();
+        Set<String> changedTests = new LinkedHashSet<>();
+        for (Path file : changed) {
+            MavenModuleGraph.Module module = graph.moduleOf(file).orElse(null);
+            if (module == null) {
+                continue;
+            }
+            Path relative = module.directory().relativize(file);
+            if (relative.startsWith("target") || !(relative.startsWith("src") || relative.toString().equals("pom.xml"))) {
+                continue;
+            }
+            String className = className(module.directory(), file);
+            if (className == null) {
+                return stale("改动了非 Java 源文件 " + projectRoot.relativize(file));
+            }
+            changedClasses.add(className);
+            if (relative.startsWith(TEST_SOURCES) && isTestClass(className)) {
+                changedTests.add(className);
+            }
+        }
+
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        Set<String> testClasses = new TreeSet<>();
+        for (MavenModuleGraph.Module module : graph.getModules()) {
+            Path dir = module.directory();
+            String reason = checkFresh(dir, MAIN_SOURCES, "target/classes", changed);
+            if (reason == null) {
+                reason = checkFresh(dir, TEST_SOURCES, "target/test-classes", changed);
+            }
+            if (reason != null) {
+                return stale(reason);
+            }
+            ClassDependencyIndex main = ClassDependencyIndex.load(dir.resolve("target/classes"));
+            ClassDependencyIndex tests = ClassDependencyIndex.load(dir.resolve("target/test-classes"));
+            // 有类文件无法解析时依赖关系不完整,可能漏选测试
+            reason = main.staleReason() != null ? main.staleReason() : tests.staleReason();
+            if (reason != null) {
+                return stale(reason);
+            }
+            dependencies.putAll(main.dependencies());
+            dependencies.putAll(tests.dependencies());
+            tests.classNames().stream().filter(TestImpact::isTestClass).forEach(testClasses::add);
+        }
+
+        Set<String> affected = ClassDependencyIndex.affectedBy(dependencies, changedClasses);
+        Set<String> selected = new TreeSet<>();
+        for (String test : testClasses) {
+            if (affected.contains(test)) {
+                selected.add(simpleName(test));
+            }
+        }
+        changedTests.forEach(test -> selected.add(simpleName(test)));
+        log.debug("改动的类 {} 影响 {} 个测试类", changedClasses.size(), selected.size());
+        return new Selection(selected, null);
+    }
+
+    private static Selection stale(String reason) {
+        return new Selection(Set.of(), reason);
+    }
+
+    /**
+     * 检查源码目录中未改动的源文件是否都已编译且类文件不比源文件旧
+     */
+    private static String checkFresh(Path moduleDir, String sources, String classes, Set<Path> changed)
+            throws IOException {
+        Path sourceRoot = moduleDir.resolve(sources);
+        if (!Files.isDirectory(sourceRoot)) {
+            return null;
+        }
+        Path classRoot = moduleDir.resolve(classes);
+        if (!Files.isDirectory(classRoot)) {
+            return moduleDir.getFileName() + "/" + classes + " 不存在,尚未编译";
+        }
+        List<Path> sourceFiles;
+        try (Stream<Path> files = Files.walk(sourceRoot)) {
+            sourceFiles = files.filter(p -> p.toString().endsWith(".java")).toList();
+        }
+        for (Path source : sourceFiles) {
+            String name = source.getFileName().toString();
+            if (changed.contains(source) || name.equals("package-info.java") || name.equals("module-info.java")) {
+                continue;
+            }
+            String relative = sourceRoot.relativize(source).toString();
+            Path classFile = classRoot.resolve(relative.substring(0, relative.length() - ".java".length()) + ".class");
+            if (!Files.exists(classFile)
+                    || Files.getLastModifiedTime(classFile).compareTo(Files.getLastModifiedTime(source)) < 0) {
+                return "类文件落后于 " + moduleDir.getFileName() + "/" + sources + "/" + relative;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 源文件对应的顶层类名，不在 src/main/java 或 src/test/java 下的 .java 文件返回 null
+     */
+    private static String className(Path moduleDir, Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".java")) {
+            return null;
+        }
+        for (String sources : new String[]{MAIN_SOURCES, TEST_SOURCES}) {
+            Path root = moduleDir.resolve(sources);
+            if (file.startsWith(root)) {
+                List<String> parts = new ArrayList<>();
+                root.relativize(file).forEach(part -> parts.add(part.toString()));
+                String joined = String.join(".", parts);
+                return joined.substring(0, joined.length() - ".java".length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * surefire 默认包含的测试类: Test*, *Test, *Tests, *TestCase
+     */
+    static boolean isTestClass(String className) {
+        String simple = simpleName(className);
+        return simple.startsWith("Test") || simple.endsWith("Test") || simple.endsWith("Tests")
+                || simple.endsWith("TestCase");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
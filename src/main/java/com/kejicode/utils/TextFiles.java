@@ -0,0 +1,420 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文本文件编解码 - 自动识别文件编码并按原编码写回
+ *
+ * 编码按 BOM、UTF-16 的零字节分布、UTF-8 合法性依次判断，都不符合时视为 GB18030 (兼容 GBK)，
+ * 仍无法解码时退回 ISO-8859-1 保证字节原样往返。只检查文件开头的 {@link #SNIFF_BYTES} 字节，
+ * 结果按文件版本 (inode、大小、修改时间) 缓存，读取时在同一个流上检测并解码
+ */
+@Slf4j
+public final class TextFiles {
+
+    /** 编码检测读取的字节数 */
+    static final int SNIFF_BYTES = 64 * 1024;
+
+    private static final int MAX_CACHE_ENTRIES = 10000;
+
+    /** GB18030 是 GBK 的超集，能解码所有 GBK 文件 */
+    private static final Charset GB18030 = Charset.forName("GB18030");
+
+    private static final Map<Path, CachedEncoding> CACHE = new ConcurrentHashMap<>();
+
+    private TextFiles() {
+    }
+
+    /**
+     * 文件编码
+     *
+     * @param charset   字符集
+     * @param bomLength 文件开头 BOM 的字节数 (没有 BOM 时为 0)
+     * @param binary    是否像二进制文件 (含有零字节且不是 UTF-16)
+     */
+    public record Encoding(Charset charset, int bomLength, boolean binary) {
+
+        public boolean hasBom() {
+            return bomLength > 0;
+        }
+
+        /**
+         * 显示用的编码名称，如 "UTF-8 (BOM)"
+         */
+        public String describe() {
+            return charset.name() + (hasBom() ? " (BOM)" : "");
+        }
+    }
+
+    /**
+     * 完整读取的文本
+     *
+     * @param content  解码后的内容 (不含 BOM，保留原换行符)
+     * @param encoding 文件编码
+     * @param bytes    文件原始字节
+     */
+    public record Text(String content, Encoding encoding, byte[] bytes) {
+
+        /**
+         * 文件使用的换行符，以第一个换行为准，没有换行时为 "\n"
+         */
+        public String lineSeparator() {
+            return detectLineSeparator(content);
+        }
+    }
+
+    /**
+     * 带编码信息的 Reader
+     */
+    public static final class TextReader extends BufferedReader {
+
+        private final Encoding encoding;
+
+        private TextReader(InputStreamReader in, Encoding encoding) {
+            super(in);
+            this.encoding = encoding;
+        }
+
+        public Encoding getEncoding() {
+            return encoding;
+        }
+    }
+
+    private record CachedEncoding(Object fileKey, long size, long lastModified, Encoding encoding) {
+    }
+
+    /**
+     * 检测文件编码 (文件未变化时直接使用缓存)
+     */
+    public static Encoding detect(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        Encoding cached = cached(path, attrs);
+        if (cached != null) {
+            return cached;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] head = in.readNBytes(SNIFF_BYTES);
+            return remember(path, attrs, sniff(head, head.length, head.length < SNIFF_BYTES));
+        }
+    }
+
+    /**
+     * 打开按检测到的编码解码的 Reader
+     *
+     * 检测和解码共用一个输入流，只读一遍文件; 开头之后出现的非法字节替换为 U+FFFD，不会抛出异常
+     */
+    public static TextReader newReader(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path), SNIFF_BYTES);
+        try {
+            Encoding encoding = cached(path, attrs);
+            if (encoding == null) {
+                in.mark(SNIFF_BYTES);
+                byte[] head = in.readNBytes(SNIFF_BYTES);
+                in.reset();
+                encoding = remember(path, attrs, sniff(head, head.length, head.length < SNIFF_BYTES));
+            }
+            in.skipNBytes(encoding.bomLength());
+            CharsetDecoder decoder = encoding.charset().newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            return new TextReader(new InputStreamReader(in, decoder), encoding);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 完整读取文本文件，解码严格校验，保留原始字节以便撤销
+     *
+     * 只读取一次文件; 开头检测为 UTF-8 但后面出现非法字节时，在同一份字节上按全文重新检测
+     */
+    public static Text read(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        byte[] bytes = Files.readAllBytes(path);
+        Encoding encoding = cached(path, attrs);
+        if (encoding == null) {
+            encoding = sniff(bytes, Math.min(bytes.length, SNIFF_BYTES), bytes.length <= SNIFF_BYTES);
+        }
+        String content;
+        try {
+            content = decodeStrict(bytes, encoding);
+        } catch (CharacterCodingException e) {
+            encoding = sniff(bytes, bytes.length, true);
+            content = decodeStrict(bytes, encoding);
+        }
+        remember(path, attrs, encoding);
+        return new Text(content, encoding, bytes);
+    }
+
+    /**
+     * 按原编码编码文本，原文件有 BOM 时一并写出
+     *
+     * @throws CharacterCodingException 文本包含该编码无法表示的字符
+     */
+    public static byte[] encode(String content, Encoding encoding) throws CharacterCodingException {
+        CharsetEncoder encoder = encoding.charset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer body = encoder.encode(CharBuffer.wrap(content));
+        byte[] bom = bomFor(encoding);
+        byte[] data = new byte[bom.length + body.remaining()];
+        System.arraycopy(bom, 0, data, 0, bom.length);
+        body.get(data, bom.length, body.remaining());
+        return data;
+    }
+
+    /**
+     * 创建按原编码写出的 Writer，原文件有 BOM 时先写出 BOM
+     *
+     * 遇到该编码无法表示的字符时抛出 {@link CharacterCodingException}
+     */
+    public static Writer newWriter(OutputStream out, Encoding encoding) throws IOException {
+        out.write(bomFor(encoding));
+        CharsetEncoder encoder = encoding.charset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        return new OutputStreamWriter(out, encoder);
+    }
+
+    /**
+     * 文本使用的换行符，以第一个换行为准，没有换行时为 "\n"
+     */
+    public static String detectLineSeparator(String content) {
+        int newline = content.indexOf('\n');
+        if (newline > 0 && content.charAt(newline - 1) == '\r') {
+            return "\r\n";
+        }
+        if (newline < 0 && content.indexOf('\r') >= 0) {
+            return "\r";
+        }
+        return "\n";
+    }
+
+    /**
+     * 清除编码缓存
+     */
+    public static void invalidate() {
+        CACHE.clear();
+    }
+
+    /**
+     * 根据文件开头的字节判断编码
+     *
+     * @param length   有效字节数
+     * @param complete 是否已包含整个文件 (为 false 时末尾被截断的多字节序列不算非法)
+     */
+    static Encoding sniff(byte[] data, int length, boolean complete) {
+        if (startsWith(data, length, 0xEF, 0xBB, 0xBF)) {
+            return new Encoding(StandardCharsets.UTF_8, 3, false);
+        }
+        if (startsWith(data, length, 0xFF, 0xFE)) {
+            return new Encoding(StandardCharsets.UTF_16LE, 2, false);
+        }
+        if (startsWith(data, length, 0xFE, 0xFF)) {
+            return new Encoding(StandardCharsets.UTF_16BE, 2, false);
+        }
+
+        Charset utf16 = sniffUtf16(data, length);
+        if (utf16 != null) {
+            return new Encoding(utf16, 0, false);
+        }
+        boolean binary = indexOfNul(data, length) >= 0;
+
+        if (isValidUtf8(data, length, complete)) {
+            return new Encoding(StandardCharsets.UTF_8, 0, binary);
+        }
+        if (decodes(data, length, complete, GB18030)) {
+            return new Encoding(GB18030, 0, binary);
+        }
+        return new Encoding(StandardCharsets.ISO_8859_1, 0, binary);
+    }
+
+    /**
+     * 没有 BOM 的 UTF-16: ASCII 为主的文本中，每两个字节就有一个零字节，且集中在奇数或偶数位置
+     */
+    private static Charset sniffUtf16(byte[] data, int length) {
+        int pairs = length / 2;
+        if (pairs < 2) {
+            return null;
+        }
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i + 1 < length; i += 2) {
+            if (data[i] == 0) {
+                evenZeros++;
+            }
+            if (data[i + 1] == 0) {
+                oddZeros++;
+            }
+        }
+        if (oddZeros > pairs * 0.4 && evenZeros < pairs * 0.05) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (evenZeros > pairs * 0.4 && oddZeros < pairs * 0.05) {
+            return StandardCharsets.UTF_16BE;
+        }
+        return null;
+    }
+
+    /**
+     * 手工校验 UTF-8 序列，避免为检测创建解码器和字符缓冲区
+     */
+    static boolean isValidUtf8(byte[] data, int length, boolean complete) {
+        int i = 0;
+        while (i < length) {
+            int b = data[i] & 0xFF;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+            int extra;
+            int min;
+            if (b >= 0xC2 && b <= 0xDF) {
+                extra = 1;
+                min = 0x80;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                extra = 2;
+                min = 0x800;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                extra = 3;
+                min = 0x10000;
+            } else {
+                return false;
+            }
+            if (i + extra >= length) {
+                // 序列被截断: 只有在检测的是文件开头一段时才允许
+                if (complete) {
+                    return false;
+                }
+                for (int j = i + 1; j < length; j++) {
+                    if ((data[j] & 0xC0) != 0x80) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            int codePoint = b & (0x3F >> extra);
+            for (int j = 1; j <= extra; j++) {
+                int next = data[i + j] & 0xFF;
+                if ((next & 0xC0) != 0x80) {
+                    return false;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3F);
+            }
+            if (codePoint < min || codePoint > 0x10FFFF || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+                return false;
+            }
+            i += extra + 1;
+        }
+        return true;
+    }
+
+    private static boolean decodes(byte[] data, int length, boolean complete, Charset charset) {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = ByteBuffer.wrap(data, 0, length);
+        CharBuffer out = CharBuffer.allocate(4096);
+        while (true) {
+            CoderResult result = decoder.decode(in, out, complete);
+            if (result.isError()) {
+                return false;
+            }
+            if (result.isUnderflow()) {
+                return !complete || !decoder.flush(out.clear()).isError();
+            }
+            out.clear();
+        }
+    }
+
+    private static String decodeStrict(byte[] bytes, Encoding encoding) throws CharacterCodingException {
+        CharsetDecoder decoder = encoding.charset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        int offset = encoding.bomLength();
+        return decoder.decode(ByteBuffer.wrap(bytes, offset, bytes.length - offset)).toString();
+    }
+
+    private static byte[] bomFor(Encoding encoding) {
+        if (!encoding.hasBom()) {
+            return new byte[0];
+        }
+        Charset charset = encoding.charset();
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        }
+        if (StandardCharsets.UTF_16LE.equals(charset)) {
+            return new byte[]{(byte) 0xFF, (byte) 0xFE};
+        }
+        if (StandardCharsets.UTF_16BE.equals(charset)) {
+            return new byte[]{(byte) 0xFE, (byte) 0xFF};
+        }
+        return new byte[0];
+    }
+
+    private static boolean startsWith(byte[] data, int length, int... prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfNul(byte[] data, int length) {
+        for (int i = 0; i < length; i++) {
+            if (data[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Encoding cached(Path path, BasicFileAttributes attrs) {
+        CachedEncoding entry = CACHE.get(path);
+        if (entry != null && entry.size() == attrs.size()
+                && entry.lastModified() == attrs.lastModifiedTime().toMillis()
+                && Objects.equals(entry.fileKey(), attrs.fileKey())) {
+            return entry.encoding();
+        }
+        return null;
+    }
+
+    private static Encoding remember(Path path, BasicFileAttributes attrs, Encoding encoding) {
+        if (CACHE.size() >= MAX_CACHE_ENTRIES) {
+            CACHE.clear();
+        }
+        CACHE.put(path, new CachedEncoding(attrs.fileKey(), attrs.size(), attrs.lastModifiedTime().toMillis(), encoding));
+        log.trace("文件编码 {}: {}", path, encoding.describe());
+        return encoding;
+    }
+}
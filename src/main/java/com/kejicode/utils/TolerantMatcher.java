@@ -0,0 +1,155 @@
+package com.kejicode.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 容错匹配器 - 忽略空白、缩进和换行符差异查找字符串
+ *
+ * 将连续空白（含 \r\n）折叠为单个空格后进行匹配，匹配结果映射回原文中的精确偏移。
+ * 仍然要求匹配唯一，避免误改。
+ */
+public final class TolerantMatcher {
+
+    private TolerantMatcher() {
+    }
+
+    /**
+     * 容错匹配结果
+     *
+     * @param count          折叠空白后的匹配次数
+     * @param span           唯一匹配时对应原文的区间，否则为 null
+     * @param normalizations 实际应用的规范化说明
+     */
+    public record Result(int count, EditEngine.Span span, List<String> normalizations) {
+
+        public boolean isUnique() {
+            return count == 1 && span != null;
+        }
+    }
+
+    /**
+     * 在 content 中容错查找 target
+     */
+    public static Result find(String content, String target) {
+        Projection text = project(content);
+        String needle = project(target).text().trim();
+        if (needle.isEmpty()) {
+            return new Result(0, null, List.of());
+        }
+
+        String haystack = text.text();
+        int first = haystack.indexOf(needle);
+        if (first == -1) {
+            return new Result(0, null, List.of());
+        }
+        int count = 0;
+        for (int i = first; i != -1; i = haystack.indexOf(needle, i + needle.length())) {
+            count++;
+        }
+        if (count > 1) {
+            return new Result(count, null, List.of());
+        }
+
+        // 折叠后的首尾字符一定是非空白字符，直接映射回原文偏移
+        int start = text.offsets()[first];
+        int end = text.offsets()[first + needle.length() - 1] + 1;
+
+        // target 自带首尾空白时，把原文对应的缩进/行尾一并纳入替换范围
+        String leading = target.substring(0, target.length() - target.stripLeading().length());
+        String trailing = target.substring(target.stripTrailing().length());
+        if (!leading.isEmpty()) {
+            start = extendBackward(content, start, leading.indexOf('\n') >= 0);
+        }
+        if (!trailing.isEmpty()) {
+            end = extendForward(content, end, trailing.indexOf('\n') >= 0);
+        }
+
+        String matched = content.substring(start, end);
+        return new Result(1, new EditEngine.Span(start, end), describe(matched, target));
+    }
+
+    /**
+     * 如果文件使用 CRLF 换行而替换文本只使用 LF，则转换为 CRLF
+     */
+    public static String adaptLineEndings(String content, String replacement) {
+        if (content.contains("\r\n") && replacement.indexOf('\n') >= 0 && replacement.indexOf('\r') < 0) {
+            return replacement.replace("\n", "\r\n");
+        }
+        return replacement;
+    }
+
+    private static List<String> describe(String matched, String target) {
+        List<String> normalizations = new ArrayList<>();
+        if (matched.indexOf('\r') >= 0 && target.indexOf('\r') < 0) {
+            normalizations.add("换行符 (CRLF → LF)");
+        }
+        if (!matched.replace("\r", "").equals(target.replace("\r", ""))) {
+            normalizations.add("空白与缩进差异");
+        }
+        return normalizations;
+    }
+
+    private static int extendBackward(String content, int start, boolean includeLineBreak) {
+        while (start > 0 && isHorizontalSpace(content.charAt(start - 1))) {
+            start--;
+        }
+        if (includeLineBreak && start > 0 && content.charAt(start - 1) == '\n') {
+            start--;
+            if (start > 0 && content.charAt(start - 1) == '\r') {
+                start--;
+            }
+        } else if (includeLineBreak && start > 0 && content.charAt(start - 1) == '\r') {
+            start--;
+        }
+        return start;
+    }
+
+    private static int extendForward(String content, int end, boolean includeLineBreak) {
+        while (end < content.length() && isHorizontalSpace(content.charAt(end))) {
+            end++;
+        }
+        if (includeLineBreak && end < content.length()) {
+            if (content.charAt(end) == '\r') {
+                end++;
+                if (end < content.length() && content.charAt(end) == '\n') {
+                    end++;
+                }
+            } else if (content.charAt(end) == '\n') {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isHorizontalSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * 折叠空白后的文本以及每个字符在原文中的偏移
+     */
+    private record Projection(String text, int[] offsets) {
+    }
+
+    private static Projection project(String source) {
+        StringBuilder text = new StringBuilder(source.length());
+        int[] offsets = new int[source.length()];
+        boolean inWhitespace = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (!inWhitespace) {
+                    offsets[text.length()] = i;
+                    text.append(' ');
+                    inWhitespace = true;
+                }
+            } else {
+                offsets[text.length()] = i;
+                text.append(c);
+                inWhitespace = false;
+            }
+        }
+        return new Projection(text.toString(), offsets);
+    }
+}
@@ -0,0 +1,233 @@
+package com.kejicode.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 统一差异格式 (unified diff) 解析器
+ *
+ * 对模型生成的补丁做了宽松处理: 忽略 hunk 头中可能不准确的行数，以实际内容行为准
+ */
+public final class UnifiedDiff {
+
+    public static final String DEV_NULL = "/dev/null";
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*$");
+
+    private UnifiedDiff() {
+    }
+
+    /**
+     * 单个文件的补丁
+     */
+    public record FilePatch(String oldPath, String newPath, List<Hunk> hunks) {
+
+        public boolean isCreate() {
+            return DEV_NULL.equals(oldPath);
+        }
+
+        public boolean isDelete() {
+            return DEV_NULL.equals(newPath);
+        }
+
+        /**
+         * 补丁作用的目标路径
+         */
+        public String targetPath() {
+            return isDelete() ? oldPath : newPath;
+        }
+    }
+
+    /**
+     * 补丁中的一个 hunk
+     *
+     * @param oldStart          原文件起始行号 (从 1 开始)
+     * @param lines             hunk 内容行
+     * @param noNewlineAtEndOld 原文件末尾无换行
+     * @param noNewlineAtEndNew 新文件末尾无换行
+     */
+    public record Hunk(int oldStart, List<Line> lines, boolean noNewlineAtEndOld, boolean noNewlineAtEndNew) {
+
+        /**
+         * 应用前的行 (上下文 + 删除行)
+         */
+        public List<String> oldLines() {
+            List<String> result = new ArrayList<>();
+            for (Line line : lines) {
+                if (line.type() != LineType.ADD) {
+                    result.add(line.text());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 应用后的行 (上下文 + 新增行)
+         */
+        public List<String> newLines() {
+            List<String> result = new ArrayList<>();
+            for (Line line : lines) {
+                if (line.type() != LineType.REMOVE) {
+                    result.add(line.text());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * hunk 开头连续的上下文行数
+         */
+        public int leadingContext() {
+            int count = 0;
+            while (count < lines.size() && lines.get(count).type() == LineType.CONTEXT) {
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * hunk 末尾连续的上下文行数
+         */
+        public int trailingContext() {
+            int count = 0;
+            while (count < lines.size() && lines.get(lines.size() - 1 - count).type() == LineType.CONTEXT) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    public enum LineType {
+        CONTEXT, ADD, REMOVE
+    }
+
+    public record Line(LineType type, String text) {
+    }
+
+    /**
+     * 解析补丁文本
+     *
+     * @throws IllegalArgumentException 补丁格式无效
+     */
+    public static List<FilePatch> parse(String patch) {
+        String[] rows = patch.replace("\r\n", "\n").split("\n", -1);
+        List<FilePatch> files = new ArrayList<>();
+
+        int i = 0;
+        while (i < rows.length) {
+            if (!(rows[i].startsWith("--- ") && i + 1 < rows.length && rows[i + 1].startsWith("+++ "))) {
+                // 跳过 diff --git / index / mode 等头部信息
+                i++;
+                continue;
+            }
+
+            String oldPath = parsePath(rows[i].substring(4), "a/");
+            String newPath = parsePath(rows[i + 1].substring(4), "b/");
+            i += 2;
+
+            List<Hunk> hunks = new ArrayList<>();
+            while (i < rows.length && !isFileHeader(rows, i)) {
+                Matcher header = HUNK_HEADER.matcher(rows[i]);
+                if (!header.matches()) {
+                    if (rows[i].startsWith("diff ")) {
+                        break;
+                    }
+                    i++;
+                    continue;
+                }
+                i++;
+
+                int oldStart = Integer.parseInt(header.group(1));
+                List<Line> lines = new ArrayList<>();
+                boolean noNewlineOld = false;
+                boolean noNewlineNew = false;
+                LineType lastType = null;
+
+                while (i < rows.length && !isFileHeader(rows, i) && !rows[i].startsWith("@@")
+                        && !rows[i].startsWith("diff ")) {
+                    String row = rows[i];
+                    if (row.startsWith("\\")) {
+                        // "\ No newline at end of file" 作用于前一行
+                        if (lastType == LineType.REMOVE) {
+                            noNewlineOld = true;
+                        } else if (lastType == LineType.ADD) {
+                            noNewlineNew = true;
+                        } else {
+                            noNewlineOld = true;
+                            noNewlineNew = true;
+                        }
+                    } else if (row.isEmpty()) {
+                        // 部分工具会去掉空上下文行的前导空格
+                        lines.add(new Line(LineType.CONTEXT, ""));
+                        lastType = LineType.CONTEXT;
+                    } else {
+                        char marker = row.charAt(0);
+                        LineType type = switch (marker) {
+                            case ' ' -> LineType.CONTEXT;
+                            case '+' -> LineType.ADD;
+                            case '-' -> LineType.REMOVE;
+                            default -> null;
+                        };
+                        if (type == null) {
+                            break;
+                        }
+                        lines.add(new Line(type, row.substring(1)));
+                        lastType = type;
+                    }
+                    i++;
+                }
+
+                // 去掉补丁末尾多余的空行
+                while (!lines.isEmpty() && lines.get(lines.size() - 1).type() == LineType.CONTEXT
+                        && lines.get(lines.size() - 1).text().isEmpty() && isBlankTail(rows, i)) {
+                    lines.remove(lines.size() - 1);
+                }
+
+                if (lines.isEmpty()) {
+                    throw new IllegalArgumentException("空的 hunk: " + header.group());
+                }
+                hunks.add(new Hunk(oldStart, lines, noNewlineOld, noNewlineNew));
+            }
+
+            if (hunks.isEmpty()) {
+                throw new IllegalArgumentException("文件补丁中没有 hunk: " + (DEV_NULL.equals(newPath) ? oldPath : newPath));
+            }
+            files.add(new FilePatch(oldPath, newPath, hunks));
+        }
+
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("未找到有效的文件补丁 (需要 '--- ' 与 '+++ ' 文件头)");
+        }
+        return files;
+    }
+
+    private static boolean isFileHeader(String[] rows, int i) {
+        return rows[i].startsWith("--- ") && i + 1 < rows.length && rows[i + 1].startsWith("+++ ");
+    }
+
+    /**
+     * 当前 hunk 之后是否只剩空行或下一个补丁头
+     */
+    private static boolean isBlankTail(String[] rows, int from) {
+        return from >= rows.length || isFileHeader(rows, from) || rows[from].startsWith("@@")
+            || rows[from].startsWith("diff ");
+    }
+
+    private static String parsePath(String raw, String prefix) {
+        String path = raw;
+        int tab = path.indexOf('\t');
+        if (tab >= 0) {
+            path = path.substring(0, tab);
+        }
+        path = path.trim();
+        if (path.startsWith("\"") && path.endsWith("\"") && path.length() >= 2) {
+            path = path.substring(1, path.length() - 1);
+        }
+        if (path.startsWith(prefix)) {
+            path = path.substring(prefix.length());
+        }
+        return path;
+    }
+}
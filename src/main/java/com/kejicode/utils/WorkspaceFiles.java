@@ -0,0 +1,106 @@
+package com.kejicode.utils;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 工作区文件枚举 - 按 glob 和文件类型过滤列出某个根目录下的文件
+ *
+ * Git 仓库直接读取索引，不遍历文件系统; 其他目录遍历时跳过隐藏目录和常见的构建输出目录。
+ * 符号链接只在解析后仍位于根目录内时列出
+ */
+public final class WorkspaceFiles {
+
+    private WorkspaceFiles() {
+    }
+
+    /**
+     * 列出 basePath 下通过过滤的文件
+     *
+     * @param root             basePath 所在的工作区根目录
+     * @param globMatcher      相对 basePath 的 glob 过滤 (可为 null)
+     * @param typeFilter       文件类型过滤，如 java、ts (可为 null)
+     * @param includeUntracked Git 仓库中是否包括未跟踪且未被忽略的文件
+     */
+    public static List<Path> list(Path root, Path basePath, PathMatcher globMatcher, String typeFilter,
+                                  boolean includeUntracked) throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        if (GitIndexReader.isRepositoryRoot(root)) {
+            // Git 仓库直接从索引取得文件列表,不遍历文件系统
+            Predicate<Path> sandbox = WorkspaceSandbox.listedFileFilter(root);
+            for (Path file : GitIndexReader.listFiles(root, basePath, includeUntracked)) {
+                if (globMatcher != null && !globMatcher.matches(basePath.relativize(file))) {
+                    continue;
+                }
+                if (typeFilter != null && !matchesType(file, typeFilter)) {
+                    continue;
+                }
+                if (sandbox.test(file)) {
+                    files.add(file);
+                }
+            }
+            return files;
+        }
+
+        Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // 指向工作目录外的符号链接不访问
+                if (!WorkspaceSandbox.allowsEntry(root, file, attrs)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (globMatcher != null && !globMatcher.matches(basePath.relativize(file))) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (typeFilter != null && !matchesType(file, typeFilter)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String dirName = dir.getFileName() != null ? dir.getFileName().toString() : "";
+                if (dirName.startsWith(".") || dirName.equals("node_modules") ||
+                    dirName.equals("target") || dirName.equals("build")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // 出错时继续
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * 文件是否属于给定类型
+     */
+    public static boolean matchesType(Path file, String type) {
+        String fileName = file.getFileName().toString();
+        return switch (type.toLowerCase()) {
+            case "java" -> fileName.endsWith(".java");
+            case "js" -> fileName.endsWith(".js");
+            case "ts" -> fileName.endsWith(".ts");
+            case "py" -> fileName.endsWith(".py");
+            case "xml" -> fileName.endsWith(".xml");
+            case "json" -> fileName.endsWith(".json");
+            case "yaml", "yml" -> fileName.endsWith(".yaml") || fileName.endsWith(".yml");
+            default -> false;
+        };
+    }
+}
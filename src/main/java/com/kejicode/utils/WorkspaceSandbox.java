@@ -0,0 +1,98 @@
+package com.kejicode.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 工作区沙箱 - 按真实路径 (解析符号链接后) 判断文件是否在工作目录内
+ *
+ * 真实路径沿父目录链逐级求得: 普通目录的真实路径是父目录的真实路径加上自身名称，
+ * 只有遇到符号链接时才解析链接目标。每次检查都重新读取路径上每一级的属性 (不跟随链接)，
+ * 任何一级被替换成符号链接都会立即生效，不依赖可能过期的缓存。
+ * 遍历目录树时不跟随符号链接，普通文件继承已校验目录的结论，只有符号链接需要单独解析目标;
+ * 文件列表 (如 git 索引) 用 {@link #listedFileFilter} 让同一目录下的文件共用一次目录校验
+ */
+@Slf4j
+public final class WorkspaceSandbox {
+
+    private WorkspaceSandbox() {
+    }
+
+    /**
+     * 路径解析符号链接后是否仍在 root 内 (root 应为真实路径)
+     *
+     * 路径不存在时按最深的已存在上级目录判断，便于检查将要创建的文件
+     */
+    public static boolean contains(Path root, Path path) {
+        try {
+            return realPath(root, path.toAbsolutePath().normalize()).startsWith(root);
+        } catch (IOException e) {
+            // 悬空的符号链接等无法解析的路径
+            log.debug("无法解析真实路径 {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 目录遍历中的条目是否可以访问
+     *
+     * 要求遍历不跟随符号链接 (Files.walkFileTree 的默认行为) 且起点已通过 {@link #contains} 校验，
+     * 这样普通文件一定在工作区内，不需要任何系统调用
+     *
+     * @param attrs 遍历时得到的属性 (未跟随链接)
+     */
+    public static boolean allowsEntry(Path root, Path entry, BasicFileAttributes attrs) {
+        return !attrs.isSymbolicLink() || contains(root, entry);
+    }
+
+    /**
+     * 从文件列表 (如 git 索引) 得到的文件是否可以访问
+     *
+     * 文件本身和它的每一级上级目录都可能是符号链接，按完整路径校验
+     */
+    public static boolean allowsListedFile(Path root, Path file) {
+        return contains(root, file);
+    }
+
+    /**
+     * 为一次文件列表创建过滤器: 普通文件按所在目录校验，同一目录下的文件只校验一次
+     */
+    public static Predicate<Path> listedFileFilter(Path root) {
+        Map<Path, Boolean> directories = new HashMap<>();
+        return file -> {
+            if (Files.isSymbolicLink(file)) {
+                return contains(root, file);
+            }
+            Path parent = file.toAbsolutePath().normalize().getParent();
+            return parent == null || directories.computeIfAbsent(parent, dir -> contains(root, dir));
+        };
+    }
+
+    private static Path realPath(Path root, Path path) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            // 尚不存在: 解析已存在的上级目录后拼上剩余部分
+            Path parent = path.getParent();
+            return parent == null ? path : realPath(root, parent).resolve(path.getFileName());
+        }
+
+        if (attrs.isSymbolicLink()) {
+            return path.toRealPath();
+        }
+        if (path.equals(root)) {
+            return root;
+        }
+        Path parent = path.getParent();
+        return parent == null ? path : realPath(root, parent).resolve(path.getFileName());
+    }
+}
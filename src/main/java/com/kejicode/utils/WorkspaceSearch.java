@@ -0,0 +1,106 @@
+package com.kejicode.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多根工作区搜索 - 在各个工作区根目录上并发执行同一个搜索
+ *
+ * 每个根目录独立使用自己的 Git 索引缓存和忽略规则，结果按根目录的配置顺序返回
+ */
+public final class WorkspaceSearch {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())), runnable -> {
+                Thread thread = new Thread(runnable, "workspace-search-" + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private WorkspaceSearch() {
+    }
+
+    /**
+     * 在单个根目录上执行的搜索
+     */
+    @FunctionalInterface
+    public interface RootSearch<T> {
+        /**
+         * @param root 搜索起点所在的工作区根目录
+         * @param base 搜索起点 (根目录本身或其中的子路径)
+         */
+        List<T> search(Path root, Path base) throws IOException;
+    }
+
+    /**
+     * 单个根目录的搜索结果
+     */
+    public record RootResult<T>(Path root, List<T> items) {
+    }
+
+    /**
+     * 确定搜索范围: 指定了路径时只搜索该路径，否则搜索全部存在的工作区根目录
+     */
+    public static List<Path> bases(Path explicitPath) {
+        if (explicitPath != null) {
+            return List.of(explicitPath);
+        }
+        return PathValidator.getWorkspaceRoots().stream().filter(Files::isDirectory).toList();
+    }
+
+    /**
+     * 在每个起点上执行搜索，多个起点时并发执行
+     */
+    public static <T> List<RootResult<T>> run(List<Path> bases, RootSearch<T> search) throws IOException {
+        if (bases.size() == 1) {
+            Path base = bases.get(0);
+            Path root = rootOrSelf(base);
+            return List.of(new RootResult<>(root, search.search(root, base)));
+        }
+
+        List<CompletableFuture<RootResult<T>>> futures = new ArrayList<>();
+        for (Path base : bases) {
+            Path root = rootOrSelf(base);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new RootResult<>(root, search.search(root, base));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, EXECUTOR));
+        }
+
+        List<RootResult<T>> results = new ArrayList<>();
+        for (CompletableFuture<RootResult<T>> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private static Path rootOrSelf(Path base) {
+        Path root = PathValidator.rootOf(base);
+        return root != null ? root : base;
+    }
+}
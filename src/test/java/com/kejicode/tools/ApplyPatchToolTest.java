@@ -0,0 +1,189 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SnapshotJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApplyPatchToolTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ApplyPatchTool tool;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        PathValidator.initialize(tempDir.toString());
+        SnapshotJournal.initialize(tempDir.resolve(".snapshots"));
+        tool = new ApplyPatchTool();
+    }
+
+    private ToolResult apply(String patch) throws Exception {
+        return tool.execute(MAPPER.writeValueAsString(Map.of("patch", patch)));
+    }
+
+    @Test
+    void testApplyWithLineOffset() throws Exception {
+        Path file = tempDir.resolve("Main.java");
+        Files.writeString(file, "// header\n// more\nclass Main {\n    int a = 1;\n}\n");
+
+        ToolResult result = apply("""
+            --- a/Main.java
+            +++ b/Main.java
+            @@ -1,3 +1,3 @@
+             class Main {
+            -    int a = 1;
+            +    int a = 2;
+             }
+            """);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals("// header\n// more\nclass Main {\n    int a = 2;\n}\n", Files.readString(file));
+        assertTrue(result.getOutput().contains("偏移 +2"));
+    }
+
+    @Test
+    void testMultipleFilesAndCreate() throws Exception {
+        Path existing = tempDir.resolve("a.txt");
+        Files.writeString(existing, "one\r\ntwo\r\nthree\r\n");
+
+        ToolResult result = apply("""
+            --- a/a.txt
+            +++ b/a.txt
+            @@ -1,3 +1,3 @@
+             one
+            -two
+            +TWO
+             three
+            --- /dev/null
+            +++ b/sub/new.txt
+            @@ -0,0 +1,2 @@
+            +hello
+            +world
+            """);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals("one\r\nTWO\r\nthree\r\n", Files.readString(existing));
+        assertEquals("hello\nworld\n", Files.readString(tempDir.resolve("sub/new.txt")));
+    }
+
+    @Test
+    void testFuzzDropsMismatchedContext() throws Exception {
+        Path file = tempDir.resolve("f.txt");
+        Files.writeString(file, "alpha\nbeta\ngamma\ndelta\n");
+
+        ToolResult result = apply("""
+            --- a/f.txt
+            +++ b/f.txt
+            @@ -1,4 +1,4 @@
+             ALPHA
+             beta
+            -gamma
+            +GAMMA
+             delta
+            """);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals("alpha\nbeta\nGAMMA\ndelta\n", Files.readString(file));
+        assertTrue(result.getOutput().contains("fuzz 1"));
+    }
+
+    @Test
+    void testFailedHunkLeavesAllFilesUnchanged() throws Exception {
+        Path first = tempDir.resolve("first.txt");
+        Path second = tempDir.resolve("second.txt");
+        Files.writeString(first, "a\nb\nc\n");
+        Files.writeString(second, "x\ny\nz\n");
+
+        ToolResult result = apply("""
+            --- a/first.txt
+            +++ b/first.txt
+            @@ -1,3 +1,3 @@
+             a
+            -b
+            +B
+             c
+            --- a/second.txt
+            +++ b/second.txt
+            @@ -1,3 +1,3 @@
+             x
+            -not-there
+            +Y
+             z
+            """);
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().contains("hunk #1 失败"));
+        assertEquals("a\nb\nc\n", Files.readString(first));
+        assertEquals("x\ny\nz\n", Files.readString(second));
+    }
+
+    @Test
+    void testLooseMatchKeepsOriginalContextLines() throws Exception {
+        Path file = tempDir.resolve("w.txt");
+        Files.writeString(file, "keep  \nold\ntail\t\n");
+
+        ToolResult result = apply("""
+            --- a/w.txt
+            +++ b/w.txt
+            @@ -1,3 +1,3 @@
+             keep
+            -old
+            +new
+             tail
+            """);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals("keep  \nnew\ntail\t\n", Files.readString(file));
+        assertTrue(result.getOutput().contains("忽略行尾空白"));
+    }
+
+    @Test
+    void testPreservesEncodingAndCanBeUndone() throws Exception {
+        Charset gbk = Charset.forName("GBK");
+        Path file = tempDir.resolve("gbk.txt");
+        byte[] original = "// 注释\nint a = 1;\n".getBytes(gbk);
+        Files.write(file, original);
+
+        ToolResult result = apply("""
+            --- a/gbk.txt
+            +++ b/gbk.txt
+            @@ -1,2 +1,2 @@
+             // 注释
+            -int a = 1;
+            +int a = 2; // 修改
+            """);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals("// 注释\nint a = 2; // 修改\n", new String(Files.readAllBytes(file), gbk));
+
+        SnapshotJournal.undo(1);
+        assertArrayEquals(original, Files.readAllBytes(file));
+    }
+
+    @Test
+    void testRejectsPathOutsideWorkingDirectory() throws Exception {
+        ToolResult result = apply("""
+            --- a/../outside.txt
+            +++ b/../outside.txt
+            @@ -1 +1 @@
+            -a
+            +b
+            """);
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().contains("安全错误"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.kejicode.tools;
+
+import com.kejicode.utils.BackgroundJobs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class BashToolTest {
+
+    private BackgroundJobs jobs;
+    private BashTool tool;
+
+    @BeforeEach
+    void setUp() {
+        jobs = new BackgroundJobs();
+        tool = new BashTool(jobs);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tool.close();
+        jobs.close();
+    }
+
+    @Test
+    void testSimpleCommand() throws Exception {
+        ToolResult result = tool.execute("{\"command\":\"echo hello\"}");
+
+        assertTrue(result.isSuccess());
+        assertEquals("hello\n", result.getOutput());
+    }
+
+    @Test
+    void testTimeoutWithContinuousOutputReturnsPartialOutput() throws Exception {
+        long start = System.currentTimeMillis();
+        ToolResult result = tool.execute(
+            "{\"command\":\"while true; do echo tick; sleep 0.1; done\",\"timeout\":500}");
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().contains("超时"));
+        assertTrue(result.getError().contains("tick"));
+        assertTrue(elapsed < 5000, "timeout should fire while output is still streaming");
+    }
+
+    @Test
+    void testTimeoutKillsChildProcessHoldingPipe() throws Exception {
+        long start = System.currentTimeMillis();
+        ToolResult result = tool.execute("{\"command\":\"sleep 30 | cat\",\"timeout\":300}");
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertFalse(result.isSuccess());
+        assertTrue(elapsed < 5000);
+    }
+
+    @Test
+    void testPersistentSessionKeepsEnvironmentAndDirectory() throws Exception {
+        assertTrue(tool.execute("{\"command\":\"export KEJI_TEST=42; cd /tmp\",\"persistent\":true}").isSuccess());
+
+        ToolResult result = tool.execute("{\"command\":\"echo $KEJI_TEST; pwd\",\"persistent\":true}");
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getOutput().startsWith("42\n"));
+        assertTrue(result.getOutput().contains("/tmp"));
+    }
+
+    @Test
+    void testPersistentSessionSurvivesTimeout() throws Exception {
+        tool.execute("{\"command\":\"export KEJI_TEST=kept\",\"persistent\":true}");
+
+        ToolResult timedOut = tool.execute("{\"command\":\"sleep 30\",\"persistent\":true,\"timeout\":300}");
+        assertFalse(timedOut.isSuccess());
+        assertTrue(timedOut.getError().contains("超时"));
+
+        ToolResult result = tool.execute("{\"command\":\"echo $KEJI_TEST\",\"persistent\":true}");
+        assertEquals("kept\n", result.getOutput());
+    }
+
+    @Test
+    void testPersistentSessionRecoversAfterExit() throws Exception {
+        tool.execute("{\"command\":\"exit 0\",\"persistent\":true}");
+
+        ToolResult result = tool.execute("{\"command\":\"printf ok\",\"persistent\":true}");
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getOutput().startsWith("ok"));
+    }
+
+    @Test
+    void testPersistentSessionBoundsHugeLines() throws Exception {
+        // 1MB 没有换行的输出,结束标记仍能识别
+        ToolResult result = tool.execute(
+            "{\"command\":\"head -c 1048576 /dev/zero | tr '\\\\0' x; (exit 7)\",\"persistent\":true}");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().contains("退出码 7"));
+        assertTrue(result.getError().contains("行过长,已截断"));
+        assertTrue(result.getError().length() < 10 * 1024);
+
+        ToolResult next = tool.execute("{\"command\":\"printf 'a\\\\n\\\\nb'\",\"persistent\":true}");
+        assertEquals("a\n\nb\n", next.getOutput());
+    }
+
+    @Test
+    void testNonZeroExitCode() throws Exception {
+        ToolResult result = tool.execute("{\"command\":\"echo oops; exit 3\"}");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().contains("3"));
+        assertTrue(result.getError().contains("oops"));
+    }
+
+    @Test
+    void testBackgroundCommandReturnsImmediatelyAndOutputIsIncremental() throws Exception {
+        long start = System.currentTimeMillis();
+        ToolResult started = tool.execute(
+            "{\"command\":\"echo first; sleep 0.5; echo second\",\"run_in_background\":true}");
+        assertTrue(started.isSuccess());
+        assertTrue(started.getOutput().contains("bg-1"));
+        assertTrue(System.currentTimeMillis() - start < 400);
+
+        BackgroundJobs.Job job = jobs.get("bg-1");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        BackgroundJobs.Chunk first = job.read(0, 6);
+        assertEquals("first\n", first.output());
+        BackgroundJobs.Chunk rest = job.read(first.nextOffset(), 1024);
+        assertEquals("second\n", rest.output());
+
+        ToolResult status = new BashOutputTool(jobs).execute("{\"id\":\"bg-1\",\"offset\":" + rest.nextOffset() + "}");
+        assertTrue(status.getOutput().contains("退出码 0"));
+        assertTrue(status.getOutput().contains("无新输出"));
+    }
+
+    @Test
+    void testKillBashStopsBackgroundCommand() throws Exception {
+        tool.execute("{\"command\":\"sleep 30\",\"run_in_background\":true}");
+        BackgroundJobs.Job job = jobs.get("bg-1");
+        assertTrue(job.isRunning());
+
+        ToolResult killed = new KillBashTool(jobs).execute("{\"id\":\"bg-1\"}");
+
+        assertTrue(killed.isSuccess());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(job.isRunning());
+        assertEquals("已终止", job.status());
+    }
+}
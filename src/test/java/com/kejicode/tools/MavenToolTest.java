@@ -0,0 +1,58 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.MavenLauncher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MavenToolTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private MavenTool tool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(tempDir.resolve("pom.xml"), """
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>test</groupId>
+              <artifactId>demo</artifactId>
+              <version>1.0</version>
+              <packaging>pom</packaging>
+            </project>
+            """);
+        tool = new MavenTool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tool.close();
+    }
+
+    @Test
+    void testEmbeddedModeRunsBuildInProcess() throws Exception {
+        assumeTrue(MavenLauncher.mavenHome().isPresent(), "Maven installation not found");
+
+        String params = MAPPER.writeValueAsString(Map.of(
+            "command", "-B -o validate", "working_directory", tempDir.toString(), "mode", "embedded"));
+        ToolResult first = tool.execute(params);
+        ToolResult second = tool.execute(params);
+
+        assertTrue(first.isSuccess(), first.getError());
+        assertTrue(first.getOutput().contains("启动方式: embedded"));
+        assertTrue(second.getOutput().contains("BUILD SUCCESS"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SnapshotJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplaceToolTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ReplaceTool tool;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PathValidator.initialize(tempDir.toString());
+        SnapshotJournal.initialize(tempDir.resolve(".snapshots"));
+        tool = new ReplaceTool();
+
+        Files.createDirectories(tempDir.resolve("src"));
+        Files.writeString(tempDir.resolve("src/OrderDao.java"), "class OrderDao {\n    OrderDao() {}\n}\n");
+        Files.writeString(tempDir.resolve("src/OrderService.java"), "class OrderService {\n    OrderDao dao;\n}\n");
+        Files.writeString(tempDir.resolve("src/notes.txt"), "OrderDao\n");
+    }
+
+    private ToolResult replace(Object... keyValues) throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            params.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return tool.execute(MAPPER.writeValueAsString(params));
+    }
+
+    @Test
+    void testDryRunReportsCountsWithoutWriting() throws Exception {
+        ToolResult result = replace("pattern", "\\bOrderDao\\b", "replacement", "OrderRepository",
+            "type", "java", "dry_run", true);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertTrue(result.getOutput().contains("将在 2 个文件中替换 3 处"));
+        assertTrue(result.getOutput().contains("OrderDao.java: 2 处"));
+        assertTrue(result.getOutput().contains("OrderService.java: 1 处"));
+        assertTrue(Files.readString(tempDir.resolve("src/OrderDao.java")).contains("class OrderDao"));
+    }
+
+    @Test
+    void testNestedRootsCountEachFileOnce() throws Exception {
+        PathValidator.initialize(List.of(tempDir.toString(), tempDir.resolve("src").toString()));
+
+        ToolResult result = replace("pattern", "\\bOrderDao\\b", "replacement", "OrderRepository", "type", "java");
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertTrue(result.getOutput().contains("已在 2 个文件中替换 3 处"), result.getOutput());
+        assertEquals("class OrderService {\n    OrderRepository dao;\n}\n",
+            Files.readString(tempDir.resolve("src/OrderService.java")));
+    }
+
+    @Test
+    void testApplyRewritesAllFilesAndCanBeUndone() throws Exception {
+        ToolResult result = replace("pattern", "Order(Dao)", "replacement", "Order$1Impl", "glob", "**/*.java");
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals("class OrderDaoImpl {\n    OrderDaoImpl() {}\n}\n",
+            Files.readString(tempDir.resolve("src/OrderDao.java")));
+        assertEquals("class OrderService {\n    OrderDaoImpl dao;\n}\n",
+            Files.readString(tempDir.resolve("src/OrderService.java")));
+        assertEquals("OrderDao\n", Files.readString(tempDir.resolve("src/notes.txt")));
+
+        SnapshotJournal.undo(2);
+        assertEquals("class OrderService {\n    OrderDao dao;\n}\n",
+            Files.readString(tempDir.resolve("src/OrderService.java")));
+    }
+
+    @Test
+    void testLiteralReplacementKeepsEncodingAndLineEndings() throws Exception {
+        Charset gbk = Charset.forName("GBK");
+        Path file = tempDir.resolve("src/Price.java");
+        Files.write(file, "// 价格\r\nlong price = $amount;\r\n".getBytes(gbk));
+
+        ToolResult result = replace("pattern", "$amount", "replacement", "$total * 2", "literal", true,
+            "path", "src/Price.java");
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals("// 价格\r\nlong price = $total * 2;\r\n", new String(Files.readAllBytes(file), gbk));
+    }
+
+    @Test
+    void testInvalidReplacementLeavesAllFilesUnchanged() throws Exception {
+        ToolResult result = replace("pattern", "OrderDao", "replacement", "$2", "type", "java");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError().contains("所有文件保持不变"));
+        assertTrue(Files.readString(tempDir.resolve("src/OrderDao.java")).contains("class OrderDao {"));
+        assertTrue(Files.readString(tempDir.resolve("src/OrderService.java")).contains("OrderDao dao"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.kejicode.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kejicode.utils.PathValidator;
+import com.kejicode.utils.SnapshotJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteFileToolTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private WriteFileTool tool;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        PathValidator.initialize(tempDir.toString());
+        SnapshotJournal.initialize(tempDir.resolve(".snapshots"));
+        tool = new WriteFileTool();
+    }
+
+    private ToolResult write(String path, String content) throws Exception {
+        return tool.execute(MAPPER.writeValueAsString(Map.of("file_path", path, "content", content)));
+    }
+
+    @Test
+    void testWriteCreatesParentDirectories() throws Exception {
+        ToolResult result = write("a/b/c.txt", "hello");
+
+        assertTrue(result.isSuccess());
+        assertEquals("hello", Files.readString(tempDir.resolve("a/b/c.txt")));
+    }
+
+    @Test
+    void testUnchangedContentIsNotRewritten() throws Exception {
+        Path file = tempDir.resolve("same.txt");
+        Files.writeString(file, "unchanged");
+        FileTime old = FileTime.fromMillis(1_000_000_000L);
+        Files.setLastModifiedTime(file, old);
+
+        ToolResult result = write("same.txt", "unchanged");
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getOutput().contains("未变化"));
+        assertEquals(old, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    void testChangedContentIsReplaced() throws Exception {
+        Path file = tempDir.resolve("changed.txt");
+        Files.writeString(file, "before");
+
+        ToolResult result = write("changed.txt", "after!");
+
+        assertTrue(result.isSuccess());
+        assertEquals("after!", Files.readString(file));
+        try (var stream = Files.list(tempDir)) {
+            assertTrue(stream.noneMatch(p -> p.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+}
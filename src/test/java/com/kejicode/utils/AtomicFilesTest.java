@@ -0,0 +1,64 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWriteThroughSymlinkKeepsLink() throws Exception {
+        Path real = Files.createDirectories(tempDir.resolve("real")).resolve("config.txt");
+        Files.writeString(real, "old");
+        Path link = Files.createSymbolicLink(tempDir.resolve("config.txt"), real);
+
+        AtomicFiles.write(link, "new".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals("new", Files.readString(real));
+        try (var files = Files.list(real.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testWriteAllThroughSymlinkedDirectory() throws Exception {
+        Path realDir = Files.createDirectories(tempDir.resolve("shared"));
+        Path linkDir = Files.createSymbolicLink(tempDir.resolve("linked"), realDir);
+        Files.writeString(realDir.resolve("a.txt"), "a");
+
+        Map<Path, byte[]> changes = new LinkedHashMap<>();
+        changes.put(linkDir.resolve("a.txt"), "A".getBytes(StandardCharsets.UTF_8));
+        changes.put(linkDir.resolve("b.txt"), "B".getBytes(StandardCharsets.UTF_8));
+        AtomicFiles.writeAll(changes);
+
+        assertTrue(Files.isSymbolicLink(linkDir));
+        assertEquals("A", Files.readString(realDir.resolve("a.txt")));
+        assertEquals("B", Files.readString(realDir.resolve("b.txt")));
+    }
+
+    @Test
+    void testWriteKeepsHardLinks() throws Exception {
+        Path original = tempDir.resolve("original.txt");
+        Files.writeString(original, "old");
+        Path hardLink = Files.createLink(tempDir.resolve("alias.txt"), original);
+
+        AtomicFiles.write(hardLink, "new".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("new", Files.readString(original));
+        assertEquals(2, Files.getAttribute(original, "unix:nlink"));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(2, files.count());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class BackgroundJobsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final BackgroundJobs jobs = new BackgroundJobs();
+
+    @AfterEach
+    void tearDown() {
+        jobs.close();
+    }
+
+    private BackgroundJobs.Job startAndWait(String command) throws Exception {
+        BackgroundJobs.Job job = jobs.start(command, tempDir.toFile());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(job.isFinished());
+        return job;
+    }
+
+    @Test
+    void testRollingBufferKeepsLatestOutput() throws Exception {
+        // 约 2MB 输出,超过 1MB 上限
+        BackgroundJobs.Job job = startAndWait("seq 1 300000");
+
+        BackgroundJobs.Chunk first = job.read(0, 64);
+        assertTrue(first.skipped() > 0);
+        assertEquals(64, first.output().length());
+
+        BackgroundJobs.Chunk all = job.read(first.nextOffset(), Integer.MAX_VALUE);
+        assertTrue(all.output().endsWith("299999\n300000\n"));
+        assertEquals(0, all.skipped());
+        assertEquals(all.nextOffset(), job.read(all.nextOffset(), 10).nextOffset());
+    }
+
+    @Test
+    void testHugeLineIsTruncatedWhileReading() throws Exception {
+        // 8MB 没有换行的输出
+        BackgroundJobs.Job job = startAndWait("head -c 8388608 /dev/zero | tr '\\0' x; echo; echo end");
+
+        String output = job.read(0, Integer.MAX_VALUE).output();
+        assertTrue(output.contains("行过长,已截断"));
+        assertTrue(output.endsWith("\nend\n"));
+        assertTrue(output.length() < 10 * 1024);
+    }
+
+    @Test
+    void testDrainedJobsAreEvictedOnNextStart() throws Exception {
+        BackgroundJobs.Job unread = startAndWait("echo unread");
+        BackgroundJobs.Job read = startAndWait("echo read");
+        read.read(0, 1024);
+
+        startAndWait("true");
+
+        assertNull(jobs.get(read.getId()));
+        assertSame(unread, jobs.get(unread.getId()));
+    }
+
+    @Test
+    void testFinishedJobsAreCapped() throws Exception {
+        for (int i = 0; i < BackgroundJobs.MAX_FINISHED_JOBS + 5; i++) {
+            startAndWait("echo " + i);
+        }
+        startAndWait("true");
+
+        assertTrue(jobs.list().size() <= BackgroundJobs.MAX_FINISHED_JOBS + 1);
+        assertNull(jobs.get("bg-1"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.kejicode.utils;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangedFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Git git;
+    private Path root;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = tempDir.toRealPath();
+        git = Git.init().setDirectory(root.toFile()).setInitialBranch("main").call();
+        Files.writeString(root.resolve("a.txt"), "one\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("first").setAuthor("Tester", "tester@example.com")
+            .setCommitter("Tester", "tester@example.com").call();
+        ChangedFiles.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ChangedFiles.clear();
+        InProcessGit.clear();
+        git.close();
+    }
+
+    @Test
+    void testBuiltWorkTreeChangesAreNotCollectedAgain() throws Exception {
+        Path file = root.resolve("a.txt");
+        Files.writeString(file, "two\n");
+        assertEquals(Set.of(file), ChangedFiles.collect(root));
+
+        ChangedFiles.markBuilt(Set.of(file));
+        assertEquals(Set.of(), ChangedFiles.collect(root));
+
+        Files.writeString(file, "three\n");
+        assertEquals(Set.of(file), ChangedFiles.collect(root));
+    }
+
+    @Test
+    void testRecordedFileIsCollectedDespiteBaseline() throws Exception {
+        Path file = root.resolve("a.txt");
+        Files.writeString(file, "two\n");
+        ChangedFiles.markBuilt(ChangedFiles.collect(root));
+
+        ChangedFiles.record(file);
+
+        assertEquals(Set.of(file), ChangedFiles.collect(root));
+    }
+}
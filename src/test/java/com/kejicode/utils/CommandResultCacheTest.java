@@ -0,0 +1,90 @@
+package com.kejicode.utils;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path project;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        CommandResultCache.initialize(tempDir.resolve("cache"));
+        project = Files.createDirectories(tempDir.resolve("project"));
+    }
+
+    @Test
+    void testOnlyAllowlistedCommandsHaveKeys() throws Exception {
+        Files.writeString(project.resolve("pom.xml"), "<project><groupId>g</groupId><artifactId>a</artifactId></project>");
+
+        assertNotNull(CommandResultCache.key("mvn", project.toFile(), "dependency:tree -Dverbose"));
+        assertNull(CommandResultCache.key("mvn", project.toFile(), "clean install"));
+        assertNull(CommandResultCache.key("mvn", project.toFile(), "dependency:tree -DoutputFile=tree.txt"));
+        // find 的结果取决于整个目录树,计算指纹的开销与 find 本身相当,不缓存
+        assertNull(CommandResultCache.keyForShell(project.toFile(), "find . -name \"*.java\" -type f"));
+        assertNull(CommandResultCache.keyForShell(project.toFile(), "find . -name \"*.tmp\" -delete"));
+        assertNull(CommandResultCache.keyForShell(project.toFile(), "git log | head"));
+        assertNull(CommandResultCache.keyForShell(project.toFile(), "rm -rf target"));
+    }
+
+    @Test
+    void testKeyChangesWithDeclaredInputs() throws Exception {
+        Path pom = project.resolve("pom.xml");
+        Files.writeString(pom, "<project><groupId>g</groupId><artifactId>a</artifactId></project>");
+        CommandResultCache.Key before = CommandResultCache.key("mvn", project.toFile(), "dependency:tree");
+        CommandResultCache.put(before, "mvn dependency:tree", project.toFile(), "g:a:jar:1.0");
+
+        assertEquals("g:a:jar:1.0", CommandResultCache.get(
+                CommandResultCache.key("mvn", project.toFile(), "dependency:tree")).output());
+
+        Files.writeString(pom, "<project><groupId>g</groupId><artifactId>a</artifactId><version>2</version></project>");
+        Files.setLastModifiedTime(pom, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        CommandResultCache.Key after = CommandResultCache.key("mvn", project.toFile(), "dependency:tree");
+        assertNotEquals(before, after);
+        assertNull(CommandResultCache.get(after));
+    }
+
+    @Test
+    void testGitIndexObjectNamesTrackTheIndex() throws Exception {
+        try (Git git = Git.init().setDirectory(project.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(project.resolve("a.txt"), "one");
+            git.add().addFilepattern("a.txt").call();
+            git.commit().setMessage("init").setAuthor("dev", "dev@example.com")
+                .setCommitter("dev", "dev@example.com").call();
+
+            CommandResultCache.Key staged = CommandResultCache.key("git", project.toFile(), "show :a.txt");
+            CommandResultCache.Key committed = CommandResultCache.key("git", project.toFile(), "show HEAD:a.txt");
+            assertNotNull(staged);
+
+            Files.writeString(project.resolve("a.txt"), "two, staged");
+            git.add().addFilepattern("a.txt").call();
+            Files.setLastModifiedTime(project.resolve(".git/index"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+            assertNotEquals(staged, CommandResultCache.key("git", project.toFile(), "show :a.txt"));
+            assertEquals(committed, CommandResultCache.key("git", project.toFile(), "show HEAD:a.txt"));
+        } finally {
+            InProcessGit.clear();
+        }
+    }
+
+    @Test
+    void testExpiredEntryIsDropped() throws Exception {
+        CommandResultCache.Key key = new CommandResultCache.Key("abc", 0);
+        CommandResultCache.put(key, "git log", project.toFile(), "output");
+        Thread.sleep(5);
+
+        assertNull(CommandResultCache.get(key));
+        assertFalse(Files.exists(tempDir.resolve("cache/abc.json")));
+    }
+}
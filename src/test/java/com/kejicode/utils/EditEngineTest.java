@@ -0,0 +1,55 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditEngineTest {
+
+    @Test
+    void testFindCountsAllButCollectsFirst() {
+        EditEngine.Matches matches = EditEngine.find("foo bar foo baz foo", "foo", false);
+
+        assertEquals(3, matches.count());
+        assertEquals(1, matches.spans().size());
+        assertEquals(0, matches.spans().get(0).start());
+    }
+
+    @Test
+    void testFindNoMatch() {
+        EditEngine.Matches matches = EditEngine.find("Hello World", "Goodbye", true);
+
+        assertTrue(matches.isEmpty());
+        assertTrue(matches.spans().isEmpty());
+    }
+
+    @Test
+    void testFindRejectsEmptyTarget() {
+        assertThrows(IllegalArgumentException.class, () -> EditEngine.find("abc", "", true));
+    }
+
+    @Test
+    void testWriteReplacesAllSpans() throws Exception {
+        String content = "foo bar foo baz foo";
+        EditEngine.Matches matches = EditEngine.find(content, "foo", true);
+
+        StringWriter out = new StringWriter();
+        EditEngine.write(content, matches.spans(), "qux", out);
+
+        assertEquals("qux bar qux baz qux", out.toString());
+    }
+
+    @Test
+    void testWriteNonOverlappingScan() throws Exception {
+        String content = "aaaa";
+        EditEngine.Matches matches = EditEngine.find(content, "aa", true);
+
+        StringWriter out = new StringWriter();
+        EditEngine.write(content, matches.spans(), "b", out);
+
+        assertEquals(2, matches.count());
+        assertEquals("bb", out.toString());
+    }
+}
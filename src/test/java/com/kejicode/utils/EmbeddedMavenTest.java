@@ -0,0 +1,102 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedMavenTest {
+
+    /** 替身 MavenCli: 向 System.out 输出，参数为 sleep 时忽略中断继续运行 */
+    private static final String FAKE_CLI = """
+            package org.apache.maven.cli;
+
+            public class MavenCli {
+                public int doMain(String[] args, String dir, java.io.PrintStream out, java.io.PrintStream err) {
+                    System.out.println("building with " + System.getProperty("maven.home"));
+                    if (args.length > 0 && args[0].equals("sleep")) {
+                        long end = System.currentTimeMillis() + 1500;
+                        while (System.currentTimeMillis() < end) {
+                            try {
+                                Thread.sleep(20);
+                            } catch (InterruptedException e) {
+                                // Maven 同样不响应中断
+                            }
+                        }
+                        System.out.println("late output");
+                    }
+                    return 0;
+                }
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path mavenHome;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path src = Files.createDirectories(tempDir.resolve("src/org/apache/maven/cli"));
+        Files.writeString(src.resolve("MavenCli.java"), FAKE_CLI);
+        Path classes = Files.createDirectories(tempDir.resolve("classes"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null,
+            "-encoding", "UTF-8", "-d", classes.toString(), src.resolve("MavenCli.java").toString()));
+
+        mavenHome = tempDir.resolve("maven");
+        Path lib = Files.createDirectories(mavenHome.resolve("lib"));
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(lib.resolve("maven-embedder.jar")))) {
+            jar.putNextEntry(new JarEntry("org/apache/maven/cli/MavenCli.class"));
+            Files.copy(classes.resolve("org/apache/maven/cli/MavenCli.class"), (OutputStream) jar);
+            jar.closeEntry();
+        }
+    }
+
+    @Test
+    void testCapturesBuildOutputAndRestoresProperties() throws Exception {
+        System.clearProperty("maven.home");
+        try (EmbeddedMaven maven = new EmbeddedMaven(mavenHome)) {
+            ProcessExecutor.Result result = maven.execute(List.of("verify"), tempDir.toFile(), 10_000, null);
+
+            assertEquals(0, result.exitCode());
+            assertTrue(result.output().contains("building with " + mavenHome));
+            assertNull(System.getProperty("maven.home"));
+            assertNull(System.getProperty("maven.conf"));
+            assertTrue(maven.isUsable());
+            assertFalse(maven.isRunning());
+        }
+    }
+
+    @Test
+    void testTimedOutBuildIsDetachedUntilItEnds() throws Exception {
+        EmbeddedMaven maven = new EmbeddedMaven(mavenHome);
+        ProcessExecutor.Result result = maven.execute(List.of("sleep"), tempDir.toFile(), 200, null);
+
+        assertTrue(result.timedOut());
+        assertFalse(maven.isUsable());
+        assertTrue(maven.isRunning());
+        assertThrows(IllegalStateException.class,
+            () -> maven.execute(List.of("verify"), tempDir.toFile(), 1000, null));
+
+        // 关闭时构建仍在运行,类加载器延后到构建线程结束再释放
+        maven.close();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (maven.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(maven.isRunning());
+        assertFalse(result.output().contains("late output"));
+        assertNull(System.getProperty("maven.multiModuleProjectDirectory"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GitIndexReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(git("init", "-q") == 0, "git is not available");
+        Files.createDirectories(tempDir.resolve("src/main/java/com/example"));
+        Files.writeString(tempDir.resolve("src/main/java/com/example/App.java"), "class App {}\n");
+        Files.writeString(tempDir.resolve("src/main/java/com/example/Util.java"), "class Util {}\n");
+        Files.writeString(tempDir.resolve("README.md"), "# readme\n");
+        Files.createDirectories(tempDir.resolve("docs"));
+        Files.writeString(tempDir.resolve("docs/notes.txt"), "notes\n");
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\n");
+        git("add", ".");
+    }
+
+    private int git(String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+        try {
+            return new ProcessBuilder(command).directory(tempDir.toFile())
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start().waitFor();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static final List<String> EXPECTED = List.of(
+        ".gitignore", "README.md", "docs/notes.txt",
+        "src/main/java/com/example/App.java", "src/main/java/com/example/Util.java");
+
+    @Test
+    void testReadsVersion2Index() throws Exception {
+        assertEquals(EXPECTED, GitIndexReader.trackedFiles(tempDir));
+    }
+
+    @Test
+    void testReadsVersion4PrefixCompressedIndex() throws Exception {
+        assertEquals(0, git("update-index", "--index-version", "4"));
+
+        assertEquals(EXPECTED, GitIndexReader.trackedFiles(tempDir));
+    }
+
+    @Test
+    void testVersion3SkipsSkipWorktreeEntries() throws Exception {
+        assertEquals(0, git("update-index", "--skip-worktree", "README.md"));
+
+        List<String> files = GitIndexReader.trackedFiles(tempDir);
+        assertFalse(files.contains("README.md"));
+        assertTrue(files.contains("src/main/java/com/example/Util.java"));
+    }
+
+    @Test
+    void testUntrackedFilesRespectGitignore() throws Exception {
+        Files.writeString(tempDir.resolve("new.txt"), "new\n");
+        Files.writeString(tempDir.resolve("debug.log"), "ignored\n");
+
+        List<Path> files = GitIndexReader.listFiles(tempDir, tempDir.resolve("src"), false);
+        assertEquals(2, files.size());
+
+        List<Path> withUntracked = GitIndexReader.listFiles(tempDir, tempDir, true);
+        assertTrue(withUntracked.contains(tempDir.resolve("new.txt")));
+        assertFalse(withUntracked.contains(tempDir.resolve("debug.log")));
+    }
+}
@@ -0,0 +1,91 @@
+package com.kejicode.utils;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InProcessGitTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Git git;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(tempDir.toFile()).setInitialBranch("main").call();
+        Files.writeString(tempDir.resolve("a.txt"), "one\ntwo\n");
+        commit("first commit");
+    }
+
+    @AfterEach
+    void tearDown() {
+        InProcessGit.clear();
+        git.close();
+    }
+
+    private void commit(String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage(message).setAuthor("Tester", "tester@example.com")
+            .setCommitter("Tester", "tester@example.com").call();
+    }
+
+    private String run(String command) {
+        return InProcessGit.execute(tempDir.toFile(), command);
+    }
+
+    @Test
+    void testStatusAndDiffAgainstWorkTree() throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "one\nTWO\n");
+        Files.writeString(tempDir.resolve("new.txt"), "x\n");
+
+        assertEquals(" M a.txt\n?? new.txt\n", run("status --short"));
+        String diff = run("diff");
+        assertTrue(diff.contains("-two\n+TWO\n"));
+        assertEquals("", run("diff --cached"));
+    }
+
+    @Test
+    void testLogCacheIsInvalidatedByNewCommit() throws Exception {
+        assertTrue(run("log --oneline -n 5").endsWith(" first commit\n"));
+
+        Files.writeString(tempDir.resolve("b.txt"), "b\n");
+        commit("second commit");
+
+        String log = run("log --oneline -n 5");
+        assertTrue(log.contains(" second commit\n"));
+        assertTrue(log.contains(" first commit\n"));
+        assertEquals(1, run("log -1 --oneline").lines().count());
+    }
+
+    @Test
+    void testShowAndBlame() throws Exception {
+        assertEquals("one\ntwo\n", run("show HEAD:a.txt"));
+        assertTrue(run("show").contains("Author: Tester <tester@example.com>"));
+        assertTrue(run("blame a.txt").contains("(Tester "));
+    }
+
+    @Test
+    void testUnsupportedCommandsFallBack() {
+        assertNull(run("commit -m 'x'"));
+        assertNull(run("log --stat"));
+        assertNull(run("status | head"));
+    }
+
+    @Test
+    void testContentResemblingProgressIsNotCollapsed() throws Exception {
+        String content = "10%\n20%\n30%\nProgress (1): 1/3 kB\nProgress (1): 2/3 kB\n";
+        Files.writeString(tempDir.resolve("a.txt"), content);
+        commit("percentages");
+
+        assertEquals(content, run("show HEAD:a.txt"));
+        assertTrue(run("show").contains("+10%\n+20%\n+30%\n"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JavaCompileCheckerTest {
+
+    @TempDir
+    Path project;
+
+    private final JavaCompileChecker checker = new JavaCompileChecker();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        write("pom.xml", "<project><groupId>demo</groupId><artifactId>demo</artifactId></project>");
+        write("src/main/java/demo/Util.java", "package demo; public class Util { public static int one() { return 1; } }");
+        write("src/main/java/demo/Service.java",
+                "package demo; public class Service { public int run() { return Util.one(); } }");
+
+        Path classes = Files.createDirectories(project.resolve("target/classes"));
+        List<String> args = new ArrayList<>(List.of("-d", classes.toString()));
+        args.add(project.resolve("src/main/java/demo/Util.java").toString());
+        args.add(project.resolve("src/main/java/demo/Service.java").toString());
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, args.toArray(new String[0])));
+        // 已解析过的 (空) 依赖类路径，测试中不运行 Maven
+        Files.writeString(project.resolve("target/kejicode.classpath"), "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        checker.close();
+    }
+
+    @Test
+    void testValidEditCompiles() throws Exception {
+        Path util = write("src/main/java/demo/Util.java",
+                "package demo; public class Util { public static int one() { return 2 - 1; } }");
+
+        JavaCompileChecker.Report report = checker.check(project, Set.of(util), true, false);
+
+        assertTrue(report.isSuccess(), report.errors().toString());
+        assertEquals(2, report.sources());
+        assertEquals(1, report.dependents());
+        assertFalse(Files.exists(project.resolve("demo")), "编译输出不应写入磁盘");
+    }
+
+    @Test
+    void testBrokenSignatureReportedInDependent() throws Exception {
+        Path util = write("src/main/java/demo/Util.java",
+                "package demo; public class Util { public static String one() { return \"1\"; } }");
+
+        JavaCompileChecker.Report report = checker.check(project, Set.of(util), true, false);
+
+        assertFalse(report.isSuccess());
+        assertTrue(report.errors().get(0).startsWith("src/main/java/demo/Service.java:1:"), report.errors().toString());
+    }
+
+    private Path write(String relative, String content) throws Exception {
+        Path file = project.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        return file;
+    }
+}
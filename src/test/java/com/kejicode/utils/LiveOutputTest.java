@@ -0,0 +1,70 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveOutputTest {
+
+    @AfterEach
+    void tearDown() {
+        LiveOutput.setSink(null);
+    }
+
+    @Test
+    void testChannelWithoutSinkIsNoOp() {
+        try (LiveOutput.Channel channel = LiveOutput.open("noop")) {
+            channel.accept("ignored");
+            assertEquals(0, channel.getDroppedLines());
+        }
+    }
+
+    @Test
+    void testSlowSinkDoesNotBlockProducer() {
+        AtomicLong shown = new AtomicLong();
+        AtomicLong dropped = new AtomicLong();
+        AtomicReference<List<String>> lastUpdate = new AtomicReference<>();
+        LiveOutput.setSink(new LiveOutput.Sink() {
+            @Override
+            public void begin(String title) {
+            }
+
+            @Override
+            public void update(List<String> recentLines, long totalLines) {
+                lastUpdate.set(recentLines);
+                sleep(200);
+            }
+
+            @Override
+            public void end(String title, long totalLines, long droppedLines) {
+                shown.set(totalLines);
+                dropped.set(droppedLines);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        try (LiveOutput.Channel channel = LiveOutput.open("flood")) {
+            for (int i = 0; i < 100_000; i++) {
+                channel.accept("line " + i);
+            }
+            assertTrue(System.currentTimeMillis() - start < 1000, "producer must never wait for rendering");
+        }
+
+        assertEquals(100_000, shown.get() + dropped.get());
+        assertTrue(dropped.get() > 0);
+        assertTrue(lastUpdate.get().size() <= LiveOutput.VISIBLE_LINES);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MavenModuleGraphTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        writePom(tempDir, """
+            <project>
+              <groupId>com.example</groupId>
+              <artifactId>parent</artifactId>
+              <modules>
+                <module>core</module>
+                <module>web</module>
+                <module>tools/cli</module>
+              </modules>
+            </project>
+            """);
+        writePom(tempDir.resolve("core"), module("core", ""));
+        writePom(tempDir.resolve("web"), module("web", dependency("core")));
+        writePom(tempDir.resolve("tools/cli"), module("cli", dependency("web")));
+    }
+
+    @Test
+    void testMapsFilesToDeepestModule() throws Exception {
+        MavenModuleGraph graph = MavenModuleGraph.load(tempDir);
+
+        assertEquals(4, graph.getModules().size());
+        MavenModuleGraph.Module module = graph.moduleOf(tempDir.resolve("tools/cli/src/main/java/Main.java")).orElseThrow();
+        assertEquals("com.example:cli", module.id());
+        assertEquals("tools/cli", graph.selector(module));
+        assertTrue(graph.isRoot(graph.moduleOf(tempDir.resolve("pom.xml")).orElseThrow()));
+    }
+
+    @Test
+    void testDependentsAreTransitive() throws Exception {
+        MavenModuleGraph graph = MavenModuleGraph.load(tempDir);
+        MavenModuleGraph.Module core = graph.moduleOf(tempDir.resolve("core/pom.xml")).orElseThrow();
+
+        Set<String> dependents = graph.dependentsOf(List.of(core)).stream()
+                .map(graph::selector)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("web", "tools/cli"), dependents);
+    }
+
+    @Test
+    void testReloadsWhenPomChanges() throws Exception {
+        MavenModuleGraph first = MavenModuleGraph.load(tempDir);
+        assertSame(first, MavenModuleGraph.load(tempDir));
+
+        Path cliPom = writePom(tempDir.resolve("tools/cli"), module("cli", dependency("core")));
+        Files.setLastModifiedTime(cliPom, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        MavenModuleGraph second = MavenModuleGraph.load(tempDir);
+        assertNotSame(first, second);
+        MavenModuleGraph.Module web = second.moduleOf(tempDir.resolve("web")).orElseThrow();
+        assertTrue(second.dependentsOf(List.of(web)).isEmpty());
+    }
+
+    private static String module(String artifactId, String dependencies) {
+        return """
+            <project>
+              <parent>
+                <groupId>com.example</groupId>
+                <artifactId>parent</artifactId>
+              </parent>
+              <artifactId>%s</artifactId>
+              <dependencies>%s</dependencies>
+            </project>
+            """.formatted(artifactId, dependencies);
+    }
+
+    private static String dependency(String artifactId) {
+        return "<dependency><groupId>${project.groupId}</groupId><artifactId>" + artifactId + "</artifactId></dependency>";
+    }
+
+    private static Path writePom(Path dir, String content) throws Exception {
+        Files.createDirectories(dir);
+        return Files.writeString(dir.resolve("pom.xml"), content);
+    }
+}
@@ -0,0 +1,118 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MavenOutputParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MavenOutputParser feed(String log) {
+        MavenOutputParser parser = new MavenOutputParser(tempDir);
+        log.lines().forEach(parser);
+        return parser;
+    }
+
+    @Test
+    void testExtractsReactorSummaryAndCompilerErrors() {
+        String file = tempDir.resolve("core/src/main/java/Foo.java").toString();
+        MavenOutputParser parser = feed("""
+            [INFO] Scanning for projects...
+            Downloading from central: https://repo.maven.apache.org/maven2/org/foo/1.0/foo-1.0.pom
+            Progress (1): 4.1/12 kB
+            [INFO] --- compiler:3.11.0:compile (default-compile) @ core ---
+            [ERROR] COMPILATION ERROR :\s
+            [ERROR] %1$s:[12,9] cannot find symbol
+              symbol:   variable count
+              location: class Foo
+            [INFO] 1 error
+            [INFO] Reactor Summary for parent 1.0:
+            [INFO]\s
+            [INFO] parent ............................................. SUCCESS [  0.210 s]
+            [INFO] core ............................................... FAILURE [  1.532 s]
+            [INFO] web ................................................ SKIPPED
+            [INFO] ------------------------------------------------------------------------
+            [INFO] BUILD FAILURE
+            [INFO] ------------------------------------------------------------------------
+            [INFO] Total time:  2.345 s
+            [ERROR] Failed to execute goal org.apache.maven.plugins:maven-compiler-plugin:3.11.0:compile
+            [ERROR] %1$s:[12,9] cannot find symbol
+            [ERROR]   symbol:   variable count
+            [ERROR] -> [Help 1]
+            """.formatted(file));
+
+        assertEquals("BUILD FAILURE", parser.getBuildResult());
+        assertEquals(3, parser.getModules().size());
+        assertEquals("FAILURE", parser.getModules().get(1).status());
+        assertEquals(1, parser.getCompilerErrors().size());
+
+        String summary = parser.summarize(List.of());
+        assertTrue(summary.contains(Path.of("core/src/main/java/Foo.java") + ":12:9 cannot find symbol"));
+        assertTrue(summary.contains("symbol:   variable count"));
+        assertFalse(summary.contains("Downloading"));
+        assertFalse(summary.contains("Help 1"));
+    }
+
+    @Test
+    void testReadsFailedTestsFromSurefireReports() throws Exception {
+        Path reports = Files.createDirectories(tempDir.resolve("core/target/surefire-reports"));
+        Files.writeString(reports.resolve("TEST-com.example.FooTest.xml"), """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <testsuite name="com.example.FooTest" tests="2" failures="1" errors="0">
+              <testcase name="passes" classname="com.example.FooTest" time="0.001"/>
+              <testcase name="addsNumbers" classname="com.example.FooTest" time="0.002">
+                <failure message="expected: &lt;3&gt; but was: &lt;4&gt;" type="org.opentest4j.AssertionFailedError">org.opentest4j.AssertionFailedError: expected: &lt;3&gt; but was: &lt;4&gt;
+            	at org.junit.jupiter.api.AssertionUtils.fail(AssertionUtils.java:55)
+            	at com.example.FooTest.addsNumbers(FooTest.java:17)
+            </failure>
+              </testcase>
+            </testsuite>
+            """);
+        MavenOutputParser parser = feed("""
+            [ERROR] Tests run: 2, Failures: 1, Errors: 0, Skipped: 0
+            [INFO] BUILD FAILURE
+            """);
+
+        List<MavenOutputParser.FailedTest> failed = parser.readFailedTests(0);
+
+        assertEquals(1, failed.size());
+        assertEquals("addsNumbers", failed.get(0).name());
+        String summary = parser.summarize(failed);
+        assertTrue(summary.contains("com.example.FooTest.addsNumbers: expected: <3> but was: <4>"));
+        assertTrue(summary.contains("at com.example.FooTest.addsNumbers(FooTest.java:17)"));
+        assertTrue(summary.contains("测试: Tests run: 2, Failures: 1, Errors: 0, Skipped: 0"));
+    }
+
+    @Test
+    void testSumsTestResultsAcrossModules() {
+        MavenOutputParser parser = feed("""
+            [INFO] --- surefire:3.2.2:test (default-test) @ core ---
+            [INFO] Tests run: 3, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.1 s -- in com.example.CoreTest
+            [INFO] Tests run: 3, Failures: 0, Errors: 0, Skipped: 0
+            [INFO] --- surefire:3.2.2:test (default-test) @ web ---
+            [ERROR] Tests run: 5, Failures: 1, Errors: 1, Skipped: 1
+            [INFO] --- failsafe:3.2.2:integration-test (default) @ web ---
+            [INFO] Tests run: 2, Failures: 0, Errors: 0, Skipped: 0
+            [INFO] BUILD FAILURE
+            """);
+
+        assertEquals(new MavenOutputParser.TestCounts(10, 1, 1, 1), parser.getTestTotals());
+        String summary = parser.summarize(List.of());
+        assertTrue(summary.contains("测试: Tests run: 10, Failures: 1, Errors: 1, Skipped: 1"));
+        assertTrue(summary.contains("core: Tests run: 3, Failures: 0, Errors: 0, Skipped: 0"));
+        assertTrue(summary.contains("web: Tests run: 7, Failures: 1, Errors: 1, Skipped: 1"));
+    }
+
+    @Test
+    void testOnlyLifecycleBuildsAreSummarized() {
+        assertTrue(MavenOutputParser.isLifecycleBuild(List.of("clean", "test", "-q")));
+        assertFalse(MavenOutputParser.isLifecycleBuild(List.of("dependency:tree")));
+    }
+}
@@ -0,0 +1,72 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NpmInstallStampTest {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void testStampTracksPackageAndLockfiles() throws Exception {
+        Files.writeString(project.resolve("package.json"), "{\"name\": \"demo\"}");
+        Files.writeString(project.resolve("package-lock.json"), "{\"lockfileVersion\": 3}");
+        assertTrue(NpmInstallStamp.hasNpmLockfile(project.toFile()));
+
+        // 没有 node_modules 时不记录
+        NpmInstallStamp.record(project.toFile());
+        assertFalse(NpmInstallStamp.isCurrent(project.toFile()));
+
+        Files.createDirectories(project.resolve("node_modules"));
+        NpmInstallStamp.record(project.toFile());
+        assertTrue(NpmInstallStamp.isCurrent(project.toFile()));
+
+        Files.writeString(project.resolve("package-lock.json"), "{\"lockfileVersion\": 3, \"packages\": {}}");
+        assertFalse(NpmInstallStamp.isCurrent(project.toFile()));
+
+        NpmInstallStamp.record(project.toFile());
+        Files.writeString(project.resolve("yarn.lock"), "# yarn lockfile v1");
+        assertFalse(NpmInstallStamp.isCurrent(project.toFile()));
+    }
+
+    @Test
+    void testInvalidate() throws Exception {
+        Files.writeString(project.resolve("package.json"), "{}");
+        Files.createDirectories(project.resolve("node_modules"));
+        NpmInstallStamp.record(project.toFile());
+        assertTrue(NpmInstallStamp.isCurrent(project.toFile()));
+
+        NpmInstallStamp.invalidate(project.toFile());
+        assertFalse(NpmInstallStamp.isCurrent(project.toFile()));
+    }
+
+    @Test
+    void testStampTracksInstallFlags() throws Exception {
+        Files.writeString(project.resolve("package.json"), "{}");
+        Files.createDirectories(project.resolve("node_modules"));
+
+        NpmInstallStamp.record(project.toFile(), List.of("--omit=dev", "--ignore-scripts"));
+        assertFalse(NpmInstallStamp.isCurrent(project.toFile()));
+        assertFalse(NpmInstallStamp.isCurrent(project.toFile(), List.of("--omit=dev")));
+        assertTrue(NpmInstallStamp.isCurrent(project.toFile(),
+            List.of("--ignore-scripts", "--production", "--no-audit", "--prefer-offline")));
+
+        NpmInstallStamp.record(project.toFile(), List.of("--no-fund"));
+        assertTrue(NpmInstallStamp.isCurrent(project.toFile()));
+    }
+
+    @Test
+    void testRemainderKeepsQuoting() {
+        assertEquals("--registry \"http://mirror/a b\" --omit=dev",
+            ShellWords.remainder("  ci --registry \"http://mirror/a b\" --omit=dev "));
+        assertEquals("", ShellWords.remainder("install"));
+        assertEquals("-x", ShellWords.remainder("'in stall' -x"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputCaptureTest {
+
+    @Test
+    void testKeepsHeadAndTailWithinLimit() {
+        OutputCapture capture = new OutputCapture(100, 100);
+        for (int i = 0; i < 10_000; i++) {
+            capture.accept("line " + i);
+        }
+
+        String output = capture.toString();
+        assertTrue(output.startsWith("line 0\n"));
+        assertTrue(output.endsWith("line 9999\n"));
+        assertTrue(output.contains("省略了中间"));
+        assertTrue(capture.getDroppedLines() > 9000);
+        assertEquals(10_000, capture.getTotalLines());
+        assertTrue(output.length() < 400);
+    }
+
+    @Test
+    void testStripsAnsiCodes() {
+        OutputCapture capture = new OutputCapture();
+        capture.accept("\u001B[1;31mERROR\u001B[0m something failed");
+
+        assertEquals("ERROR something failed\n", capture.toString());
+    }
+
+    @Test
+    void testCollapsesProgressLines() {
+        OutputCapture capture = new OutputCapture();
+        capture.accept("start");
+        for (int i = 0; i <= 100; i += 10) {
+            capture.accept("Progress (1): " + i + "/100 kB");
+        }
+        capture.accept("done");
+
+        String output = capture.toString();
+        assertTrue(output.contains("start\nProgress (1): 100/100 kB\ndone\n"));
+        assertFalse(output.contains("50/100"));
+        assertTrue(output.contains("已合并 10 行"));
+    }
+
+    @Test
+    void testNumberedLinesAreNotCollapsed() {
+        OutputCapture capture = new OutputCapture();
+        capture.accept("1");
+        capture.accept("2");
+        capture.accept("3");
+
+        assertEquals("1\n2\n3\n", capture.toString());
+    }
+
+    @Test
+    void testContentResemblingProgressIsKept() {
+        OutputCapture capture = new OutputCapture();
+        String[] lines = {
+            "+### Step 1/2/3", "+### Step 2/2/3",
+            "x = 10%", "x = 20%",
+            "// ====== 1/2", "// ====== 2/2",
+            "[1/3] compiling", "[2/3] compiling"
+        };
+        for (String line : lines) {
+            capture.accept(line);
+        }
+
+        assertEquals(String.join("\n", lines) + "\n", capture.toString());
+    }
+
+    @Test
+    void testCollapsesWholeLineProgressBar() {
+        OutputCapture capture = new OutputCapture();
+        capture.accept("[==>       ] 20%");
+        capture.accept("[=====>    ] 50%");
+        capture.accept("[==========] 100%");
+
+        assertEquals("[==========] 100%\n(已合并 2 行重复的进度输出)\n", capture.toString());
+    }
+
+    @Test
+    void testVerbatimOnlyTruncates() {
+        OutputCapture capture = OutputCapture.verbatim();
+        capture.accept("10%");
+        capture.accept("20%");
+        capture.accept("a\rb");
+
+        assertEquals("10%\n20%\na\rb\n", capture.toString());
+    }
+
+    @Test
+    void testCarriageReturnKeepsLastSegment() {
+        assertEquals("100%", OutputCapture.clean("10%\r50%\r100%"));
+    }
+
+    @Test
+    void testPumpTruncatesHugeLinesWhileReading() throws Exception {
+        // 16MB 没有换行的输出,最后才换行
+        long size = 16L * 1024 * 1024;
+        InputStream input = new InputStream() {
+            private long position;
+
+            @Override
+            public int read() {
+                long current = position++;
+                return current < size ? 'x' : current == size ? '\n' : -1;
+            }
+        };
+
+        OutputPump pump = OutputPump.start(input, "test-pump");
+        assertTrue(pump.await(30, TimeUnit.SECONDS));
+        String output = pump.output();
+        assertTrue(output.contains("行过长,已截断"));
+        assertTrue(output.length() < 5 * 1024);
+    }
+
+    @Test
+    void testPumpCollapsesCarriageReturnProgress() throws Exception {
+        String raw = "start\r\nDownloading 10%\rDownloading 50%\rDownloading 100%\r\ndone\n";
+        OutputPump pump = OutputPump.start(new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)), "test-pump");
+        assertTrue(pump.await(5, TimeUnit.SECONDS));
+
+        assertEquals("start\nDownloading 100%\ndone\n(已合并 2 行重复的进度输出)\n", pump.output());
+    }
+}
@@ -0,0 +1,84 @@
+package com.kejicode.utils;
+
+import com.kejicode.tools.GlobTool;
+import com.kejicode.tools.GrepTool;
+import com.kejicode.tools.ToolResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathValidatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path orders;
+    private Path users;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        orders = Files.createDirectories(tempDir.resolve("orders")).toRealPath();
+        users = Files.createDirectories(tempDir.resolve("users")).toRealPath();
+        Files.createDirectories(tempDir.resolve("outside"));
+        Files.writeString(orders.resolve("OrderService.java"), "class OrderService { // TODO\n}");
+        Files.writeString(users.resolve("UserService.java"), "class UserService { // TODO\n}");
+        PathValidator.initialize(List.of(orders.toString(), users.toString()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        PathValidator.initialize(System.getProperty("user.dir"));
+    }
+
+    @Test
+    void testPathsInAnyRootAreAllowed() {
+        assertEquals(orders, PathValidator.getWorkingDirectory());
+        assertEquals(List.of(orders, users), PathValidator.getWorkspaceRoots());
+
+        assertEquals(orders.resolve("OrderService.java"), PathValidator.validateAndNormalize("OrderService.java"));
+        assertEquals(users.resolve("UserService.java"),
+            PathValidator.validateAndNormalize(users.resolve("UserService.java").toString()));
+        assertEquals(users.resolve("UserService.java"), PathValidator.validateAndNormalize("../users/UserService.java"));
+        assertThrows(SecurityException.class, () -> PathValidator.validateAndNormalize("../outside/x.txt"));
+
+        assertEquals(users, PathValidator.rootOf(users.resolve("src/A.java")));
+        assertNull(PathValidator.rootOf(tempDir.resolve("outside")));
+    }
+
+    @Test
+    void testDisplayPathsAndLabels() {
+        assertEquals("OrderService.java", PathValidator.toRelativePath(orders.resolve("OrderService.java")));
+        assertEquals(users.resolve("UserService.java").toString(),
+            PathValidator.toRelativePath(users.resolve("UserService.java")));
+        assertEquals("orders", PathValidator.rootLabel(orders));
+        assertEquals("users", PathValidator.rootLabel(users));
+    }
+
+    @Test
+    void testSearchToolsCoverAllRoots() throws Exception {
+        ToolResult glob = new GlobTool().execute("{\"pattern\": \"*.java\"}");
+        assertTrue(glob.isSuccess());
+        assertTrue(glob.getOutput().contains("找到 2 个"));
+        assertTrue(glob.getOutput().contains("[orders]"));
+        assertTrue(glob.getOutput().contains("[users]"));
+        assertTrue(glob.getOutput().contains(users.resolve("UserService.java").toString()));
+
+        ToolResult grep = new GrepTool().execute("{\"pattern\": \"TODO\", \"output_mode\": \"count\"}");
+        assertTrue(grep.isSuccess());
+        assertTrue(grep.getOutput().indexOf("[orders]") < grep.getOutput().indexOf("[users]"));
+        assertTrue(grep.getOutput().contains("OrderService.java: 1"));
+
+        // 指定路径时只搜索该路径
+        ToolResult scoped = new GlobTool().execute(
+            "{\"pattern\": \"*.java\", \"path\": \"" + users.toString().replace("\\", "\\\\") + "\"}");
+        assertTrue(scoped.getOutput().contains("找到 1 个"));
+        assertFalse(scoped.getOutput().contains("[users]"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class ProcessExecutorTest {
+
+    @Test
+    void testStreamsLinesAndAppliesEnvironment() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        ProcessExecutor.Result result = ProcessExecutor.execute(ProcessExecutor.Request.builder()
+            .command("echo $KEJI_VALUE; echo done")
+            .env("KEJI_VALUE", "from-env")
+            .timeoutMillis(5000)
+            .listener(lines::add)
+            .build());
+
+        assertTrue(result.isSuccess());
+        assertEquals("from-env\ndone\n", result.output());
+        assertEquals(List.of("from-env", "done"), lines);
+        assertTrue(result.durationMillis() >= 0);
+    }
+
+    @Test
+    void testTimeoutKillsProcessTree() throws Exception {
+        long start = System.currentTimeMillis();
+
+        ProcessExecutor.Result result = ProcessExecutor.execute(ProcessExecutor.Request.builder()
+            .command("echo started; sleep 30 | cat")
+            .timeoutMillis(300)
+            .build());
+
+        assertTrue(result.timedOut());
+        assertFalse(result.isSuccess());
+        assertEquals("started\n", result.output());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    void testInterruptKillsProcessTree(@TempDir Path tempDir) throws Exception {
+        Path pidFile = tempDir.resolve("pid");
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                ProcessExecutor.execute(ProcessExecutor.Request.builder()
+                    .command("sleep 30 & echo $! > " + pidFile + "; wait")
+                    .build());
+            } catch (Exception e) {
+                thrown.set(e);
+            }
+        });
+        caller.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Files.exists(pidFile) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        long pid = Long.parseLong(Files.readString(pidFile).trim());
+        caller.interrupt();
+        caller.join(5000);
+
+        assertInstanceOf(InterruptedException.class, thrown.get());
+        ProcessHandle child = ProcessHandle.of(pid).orElse(null);
+        if (child != null) {
+            child.onExit().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testNonZeroExitCode() throws Exception {
+        ProcessExecutor.Result result = ProcessExecutor.execute(ProcessExecutor.Request.builder()
+            .command("exit 4")
+            .build());
+
+        assertFalse(result.timedOut());
+        assertEquals(4, result.exitCode());
+    }
+}
@@ -0,0 +1,67 @@
+package com.kejicode.utils;
+
+import com.kejicode.tools.GrepTool;
+import com.kejicode.tools.ToolResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SafeRegexTest {
+
+    private static final String EVIL = "(.*a){12}x";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCompiledPatternsAreCached() {
+        Pattern first = SafeRegex.compile("TODO\\s+\\w+", 0);
+        assertSame(first, SafeRegex.compile("TODO\\s+\\w+", 0));
+        assertNotSame(first, SafeRegex.compile("TODO\\s+\\w+", Pattern.CASE_INSENSITIVE));
+    }
+
+    @Test
+    void testGuardedMatchingBehavesLikePlainMatching() {
+        Pattern pattern = SafeRegex.compile("(\\w+)@(\\w+)\\.com", 0);
+        var matcher = pattern.matcher(SafeRegex.guard("mail: dev@kejicode.com"));
+        assertTrue(matcher.find());
+        assertEquals("kejicode", matcher.group(2));
+        assertEquals("x dev@kejicode.com", pattern.matcher(SafeRegex.guard("x a@b.com")).replaceAll("dev@kejicode.com"));
+    }
+
+    @Test
+    void testCatastrophicBacktrackingIsStopped() {
+        Pattern pattern = SafeRegex.compile(EVIL, 0);
+        CharSequence input = SafeRegex.guard("a".repeat(30));
+        long start = System.nanoTime();
+        assertThrows(SafeRegex.BudgetExceededException.class, () -> pattern.matcher(input).find());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+
+    @Test
+    void testGrepSkipsOffendingFilesAndFailsFast() throws Exception {
+        PathValidator.initialize(tempDir.toString());
+        Files.writeString(tempDir.resolve("ok.txt"), "b\n");
+        Files.writeString(tempDir.resolve("slow1.txt"), "a".repeat(30) + "\n");
+
+        ToolResult single = new GrepTool().execute("{\"pattern\": \"" + EVIL + "\"}");
+        assertTrue(single.isSuccess());
+        assertTrue(single.getOutput().contains("已跳过 1 个文件"));
+        assertTrue(single.getOutput().contains("slow1.txt"));
+
+        Files.writeString(tempDir.resolve("slow2.txt"), "a".repeat(30) + "\n");
+        Files.writeString(tempDir.resolve("slow3.txt"), "a".repeat(30) + "\n");
+        ToolResult aborted = new GrepTool().execute("{\"pattern\": \"" + EVIL + "\"}");
+        assertFalse(aborted.isSuccess());
+        assertTrue(aborted.getError().contains("灾难性回溯"));
+
+        ToolResult invalid = new GrepTool().execute("{\"pattern\": \"(unclosed\"}");
+        assertFalse(invalid.isSuccess());
+        assertTrue(invalid.getError().contains("正则表达式无效"));
+    }
+}
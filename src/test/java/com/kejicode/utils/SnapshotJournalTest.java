@@ -0,0 +1,183 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PathValidator.initialize(tempDir.toString());
+        SnapshotJournal.initialize(tempDir.resolve(".store"));
+        SnapshotJournal.clear();
+        SnapshotJournal.beginTurn();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testUndoLastTurnRestoresAndDeletes() throws Exception {
+        Path existing = tempDir.resolve("a.txt");
+        Path created = tempDir.resolve("b.txt");
+        Files.writeString(existing, "original");
+
+        Files.writeString(existing, "first edit");
+        SnapshotJournal.recordWritten(existing, bytes("original"));
+        Files.writeString(existing, "second edit");
+        SnapshotJournal.recordWritten(existing, bytes("first edit"));
+        Files.writeString(created, "new file");
+        SnapshotJournal.recordWritten(created, null);
+
+        SnapshotJournal.UndoResult result = SnapshotJournal.undoLastTurn();
+
+        assertTrue(result.isComplete(), result.failure());
+        assertEquals(3, result.restored().size());
+        assertEquals("original", Files.readString(existing));
+        assertFalse(Files.exists(created));
+    }
+
+    @Test
+    void testUndoCountAndDeduplicatedStore() throws Exception {
+        Path file = tempDir.resolve("c.txt");
+        Files.writeString(file, "changed");
+        byte[] content = bytes("same");
+
+        SnapshotJournal.record(file, content, bytes("changed"));
+        SnapshotJournal.record(file, content, bytes("changed"));
+
+        String hash = SnapshotJournal.hash(SnapshotJournal.delta(content, bytes("changed")));
+        assertTrue(Files.exists(tempDir.resolve(".store/objects").resolve(hash.substring(0, 2)).resolve(hash.substring(2))));
+
+        SnapshotJournal.undo(1);
+        assertEquals("same", Files.readString(file));
+        assertEquals(1, SnapshotJournal.size());
+    }
+
+    @Test
+    void testDeltaStoresOnlyChangedRegion() throws Exception {
+        Path file = tempDir.resolve("big.txt");
+        String head = "x".repeat(100_000);
+        String tail = "y".repeat(100_000);
+        byte[] before = bytes(head + "old" + tail);
+        byte[] after = bytes(head + "new value" + tail);
+        Files.write(file, after);
+
+        assertTrue(SnapshotJournal.delta(before, after).length < 32);
+        SnapshotJournal.record(file, before, after);
+
+        assertTrue(SnapshotJournal.undo(1).isComplete());
+        assertArrayEquals(before, Files.readAllBytes(file));
+    }
+
+    @Test
+    void testDeltaOfScatteredEditsStoresOnlyChangedLines() throws Exception {
+        Path file = tempDir.resolve("scattered.txt");
+        StringBuilder before = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            before.append("line ").append(i).append(" OrderDao\n");
+        }
+        String beforeText = before.toString();
+        // 第一行和最后一行被替换,修改区间跨越整个文件
+        String afterText = beforeText.replaceFirst("line 0 OrderDao", "line 0 OrderRepository")
+            .replace("line 9999 OrderDao", "line 9999 OrderRepository");
+        Files.writeString(file, afterText);
+
+        assertTrue(SnapshotJournal.delta(bytes(beforeText), bytes(afterText)).length < 128);
+        SnapshotJournal.record(file, bytes(beforeText), bytes(afterText));
+
+        assertTrue(SnapshotJournal.undo(1).isComplete());
+        assertEquals(beforeText, Files.readString(file));
+    }
+
+    @Test
+    void testDeltaRoundTripsInsertionsAndDeletions() throws Exception {
+        Path file = tempDir.resolve("mixed.txt");
+        String[][] cases = {
+            {"a\nb\nc\nd\n", "a\nx\nc\ny\nz\n"},
+            {"a\r\nb\r\nc\r\n", "b\r\n"},
+            {"a\nb", "c\na\nb\nd"},
+            {"same\n", ""},
+            {"", "new\n"},
+            {"a\nb\nc\n", "c\nb\na\n"}
+        };
+        for (String[] change : cases) {
+            Files.writeString(file, change[1]);
+            SnapshotJournal.record(file, bytes(change[0]), bytes(change[1]));
+
+            assertTrue(SnapshotJournal.undo(1).isComplete());
+            assertEquals(change[0], Files.readString(file));
+        }
+    }
+
+    @Test
+    void testRestoresDeletedFile() throws Exception {
+        Path file = tempDir.resolve("gone.txt");
+        SnapshotJournal.record(file, bytes("keep me"), null);
+
+        assertTrue(SnapshotJournal.undo(1).isComplete());
+        assertEquals("keep me", Files.readString(file));
+    }
+
+    @Test
+    void testRefusesWhenFileChangedOutsideJournal() throws Exception {
+        Path first = tempDir.resolve("first.txt");
+        Path second = tempDir.resolve("second.txt");
+        Files.writeString(first, "v2");
+        SnapshotJournal.record(first, bytes("v1"), bytes("v2"));
+        Files.writeString(second, "b2");
+        SnapshotJournal.record(second, bytes("b1"), bytes("b2"));
+
+        // 例如 Bash 命令或外部编辑器再次修改了文件
+        Files.writeString(first, "v3 from bash");
+
+        SnapshotJournal.UndoResult result = SnapshotJournal.undoLastTurn();
+
+        assertFalse(result.isComplete());
+        assertTrue(result.failure().contains("first.txt"));
+        assertEquals(List.of("已恢复: second.txt"), result.restored());
+        assertEquals("b1", Files.readString(second));
+        assertEquals("v3 from bash", Files.readString(first));
+        assertEquals(1, SnapshotJournal.size());
+    }
+
+    @Test
+    void testGarbageCollectionKeepsReferencedObjects() throws Exception {
+        Path file = tempDir.resolve("gc.txt");
+        Files.writeString(file, "post");
+        SnapshotJournal.record(file, bytes("stale"), bytes("post"));
+        Path stale = objectFor(bytes("stale"), bytes("post"));
+        SnapshotJournal.clear();
+        SnapshotJournal.record(file, bytes("live"), bytes("post"));
+        Path live = objectFor(bytes("live"), bytes("post"));
+
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(stale, old);
+        Files.setLastModifiedTime(live, old);
+
+        SnapshotJournal.collectGarbage(Long.MAX_VALUE, 1000);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(live));
+        assertTrue(SnapshotJournal.undo(1).isComplete());
+        assertEquals("live", Files.readString(file));
+    }
+
+    private Path objectFor(byte[] pre, byte[] post) {
+        String hash = SnapshotJournal.hash(SnapshotJournal.delta(pre, post));
+        return tempDir.resolve(".store/objects").resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+}
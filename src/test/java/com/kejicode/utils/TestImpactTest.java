@@ -0,0 +1,97 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestImpactTest {
+
+    @TempDir
+    Path project;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(project.resolve("pom.xml"),
+                "<project><groupId>demo</groupId><artifactId>demo</artifactId></project>");
+        write("src/main/java/demo/Util.java", "package demo; public class Util { public static int one() { return 1; } }");
+        write("src/main/java/demo/Service.java",
+                "package demo; public class Service { public int run() { return Util.one(); } }");
+        write("src/main/java/demo/Other.java", "package demo; public class Other { }");
+        write("src/test/java/demo/ServiceTest.java",
+                "package demo; public class ServiceTest { Service service = new Service(); }");
+        write("src/test/java/demo/OtherTest.java",
+                "package demo; public class OtherTest { Other other = new Other(); }");
+        compile("src/main/java", "target/classes", project.resolve("target/classes"));
+        compile("src/test/java", "target/test-classes", project.resolve("target/classes"));
+    }
+
+    @Test
+    void testSelectsTransitiveDependents() throws Exception {
+        TestImpact.Selection selection = TestImpact.select(project,
+                List.of(project.resolve("src/main/java/demo/Util.java")));
+
+        assertFalse(selection.isStale());
+        assertEquals(Set.of("ServiceTest"), selection.tests());
+    }
+
+    @Test
+    void testChangedResourceFallsBackToFullSuite() throws Exception {
+        write("src/main/resources/app.properties", "a=1");
+
+        TestImpact.Selection selection = TestImpact.select(project,
+                List.of(project.resolve("src/main/resources/app.properties")));
+
+        assertTrue(selection.isStale());
+    }
+
+    @Test
+    void testUntrackedSourceEditMakesIndexStale() throws Exception {
+        Path other = project.resolve("src/main/java/demo/Other.java");
+        Files.setLastModifiedTime(other, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+        TestImpact.Selection selection = TestImpact.select(project,
+                List.of(project.resolve("src/main/java/demo/Util.java")));
+
+        assertTrue(selection.isStale());
+        assertTrue(selection.staleReason().contains("Other.java"));
+    }
+
+    @Test
+    void testUnparseableClassFileMakesIndexStale() throws Exception {
+        Files.write(project.resolve("target/classes/demo/Other.class"), new byte[]{1, 2, 3});
+
+        TestImpact.Selection selection = TestImpact.select(project,
+                List.of(project.resolve("src/main/java/demo/Util.java")));
+
+        assertTrue(selection.isStale());
+        assertTrue(selection.staleReason().contains("Other.class"));
+    }
+
+    private void write(String relative, String content) throws Exception {
+        Path file = project.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+    }
+
+    private void compile(String sources, String output, Path classpath) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Path outDir = Files.createDirectories(project.resolve(output));
+        List<String> args = new ArrayList<>(List.of("-d", outDir.toString(), "-cp", classpath.toString()));
+        try (var files = Files.walk(project.resolve(sources))) {
+            files.filter(p -> p.toString().endsWith(".java")).forEach(p -> args.add(p.toString()));
+        }
+        assertEquals(0, compiler.run(null, null, null, args.toArray(new String[0])));
+    }
+}
@@ -0,0 +1,101 @@
+package com.kejicode.utils;
+
+import com.kejicode.tools.EditFileTool;
+import com.kejicode.tools.GrepTool;
+import com.kejicode.tools.ReadFileTool;
+import com.kejicode.tools.ToolResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextFilesTest {
+
+    private static final Charset GBK = Charset.forName("GBK");
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        PathValidator.initialize(tempDir.toString());
+        TextFiles.invalidate();
+    }
+
+    @Test
+    void testSniffCharsets() {
+        byte[] utf8 = "你好, world".getBytes(StandardCharsets.UTF_8);
+        assertEquals(StandardCharsets.UTF_8, TextFiles.sniff(utf8, utf8.length, true).charset());
+
+        byte[] gbk = "// 订单服务\nclass OrderService {}".getBytes(GBK);
+        assertEquals("GB18030", TextFiles.sniff(gbk, gbk.length, true).charset().name());
+
+        byte[] utf16 = "class A {}\n".getBytes(StandardCharsets.UTF_16LE);
+        TextFiles.Encoding encoding = TextFiles.sniff(utf16, utf16.length, true);
+        assertEquals(StandardCharsets.UTF_16LE, encoding.charset());
+        assertFalse(encoding.binary());
+
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a'};
+        assertEquals(3, TextFiles.sniff(bom, bom.length, true).bomLength());
+
+        byte[] binary = {'P', 'K', 3, 4, 0, 0, 0, 1, 2, 3, 0, 0, 'x'};
+        assertTrue(TextFiles.sniff(binary, binary.length, true).binary());
+    }
+
+    @Test
+    void testTruncatedUtf8SequenceAtSniffBoundary() {
+        byte[] text = "中文".getBytes(StandardCharsets.UTF_8);
+        // 检测窗口在多字节字符中间截断
+        assertTrue(TextFiles.isValidUtf8(text, text.length - 1, false));
+        assertFalse(TextFiles.isValidUtf8(text, text.length - 1, true));
+    }
+
+    @Test
+    void testReaderDecodesDetectedCharset() throws Exception {
+        Path file = tempDir.resolve("Utf16.java");
+        byte[] body = "line one\r\nline two\r\n".getBytes(StandardCharsets.UTF_16BE);
+        byte[] data = new byte[body.length + 2];
+        data[0] = (byte) 0xFE;
+        data[1] = (byte) 0xFF;
+        System.arraycopy(body, 0, data, 2, body.length);
+        Files.write(file, data);
+
+        try (BufferedReader reader = TextFiles.newReader(file)) {
+            assertEquals("line one", reader.readLine());
+            assertEquals("line two", reader.readLine());
+            assertNull(reader.readLine());
+        }
+
+        ToolResult read = new ReadFileTool().execute("{\"file_path\": \"Utf16.java\"}");
+        assertTrue(read.getOutput().contains("line two"));
+    }
+
+    @Test
+    void testEditPreservesEncodingBomAndLineEndings() throws Exception {
+        Path file = tempDir.resolve("Order.java");
+        Files.write(file, "// 订单\r\nclass Order {\r\n    int a;\r\n}\r\n".getBytes(GBK));
+
+        ToolResult grep = new GrepTool().execute("{\"pattern\": \"订单\", \"output_mode\": \"count\"}");
+        assertTrue(grep.getOutput().contains("Order.java: 1"));
+
+        ToolResult edit = new EditFileTool().execute(
+            "{\"file_path\": \"Order.java\", \"old_string\": \"class Order {\\n    int a;\", "
+                + "\"new_string\": \"class Order {\\n    // 数量\\n    int a;\"}");
+        assertTrue(edit.isSuccess(), edit.getError());
+        assertEquals("// 订单\r\nclass Order {\r\n    // 数量\r\n    int a;\r\n}\r\n",
+            new String(Files.readAllBytes(file), GBK));
+
+        Path bomFile = tempDir.resolve("Bom.txt");
+        Files.write(bomFile, new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'o', 'l', 'd'});
+        assertTrue(new EditFileTool().execute(
+            "{\"file_path\": \"Bom.txt\", \"old_string\": \"old\", \"new_string\": \"new\"}").isSuccess());
+        assertArrayEquals(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'n', 'e', 'w'}, Files.readAllBytes(bomFile));
+    }
+}
@@ -0,0 +1,53 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TolerantMatcherTest {
+
+    @Test
+    void testMatchesAcrossCrlf() {
+        String content = "line one\r\nline two\r\nline three\r\n";
+
+        TolerantMatcher.Result result = TolerantMatcher.find(content, "line one\nline two");
+
+        assertTrue(result.isUnique());
+        assertEquals("line one\r\nline two", content.substring(result.span().start(), result.span().end()));
+        assertTrue(result.normalizations().stream().anyMatch(n -> n.contains("CRLF")));
+    }
+
+    @Test
+    void testIndentationIsReplacedWhenTargetHasLeadingWhitespace() {
+        String content = "class A {\n\tint x;\n}\n";
+
+        TolerantMatcher.Result result = TolerantMatcher.find(content, "    int x;");
+
+        assertTrue(result.isUnique());
+        assertEquals("\tint x;", content.substring(result.span().start(), result.span().end()));
+        assertFalse(result.normalizations().isEmpty());
+    }
+
+    @Test
+    void testAmbiguousMatchIsNotUnique() {
+        String content = "foo  bar\nfoo bar\n";
+
+        TolerantMatcher.Result result = TolerantMatcher.find(content, "foo\tbar");
+
+        assertEquals(2, result.count());
+        assertFalse(result.isUnique());
+    }
+
+    @Test
+    void testDoesNotJoinWords() {
+        TolerantMatcher.Result result = TolerantMatcher.find("foobar", "foo bar");
+
+        assertEquals(0, result.count());
+    }
+
+    @Test
+    void testAdaptLineEndings() {
+        assertEquals("a\r\nb", TolerantMatcher.adaptLineEndings("x\r\ny", "a\nb"));
+        assertEquals("a\nb", TolerantMatcher.adaptLineEndings("x\ny", "a\nb"));
+    }
+}
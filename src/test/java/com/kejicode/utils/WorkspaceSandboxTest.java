@@ -0,0 +1,89 @@
+package com.kejicode.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkspaceSandboxTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path root;
+    private Path outside;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = Files.createDirectories(tempDir.resolve("workspace")).toRealPath();
+        outside = Files.createDirectories(tempDir.resolve("outside")).toRealPath();
+        Files.createDirectories(root.resolve("src"));
+        Files.writeString(root.resolve("src/App.java"), "class App {}");
+        Files.writeString(outside.resolve("secret.txt"), "secret");
+    }
+
+    @Test
+    void testRegularAndMissingPathsInsideWorkspace() {
+        assertTrue(WorkspaceSandbox.contains(root, root.resolve("src/App.java")));
+        assertTrue(WorkspaceSandbox.contains(root, root.resolve("src/new/File.java")));
+    }
+
+    @Test
+    void testSymlinksPointingOutsideAreRejected() throws Exception {
+        Path fileLink = Files.createSymbolicLink(root.resolve("secret.txt"), outside.resolve("secret.txt"));
+        Path dirLink = Files.createSymbolicLink(root.resolve("escape"), outside);
+        Path innerLink = Files.createSymbolicLink(root.resolve("app"), root.resolve("src/App.java"));
+
+        assertFalse(WorkspaceSandbox.contains(root, fileLink));
+        assertFalse(WorkspaceSandbox.contains(root, dirLink.resolve("secret.txt")));
+        assertFalse(WorkspaceSandbox.contains(root, dirLink.resolve("new.txt")));
+        assertTrue(WorkspaceSandbox.contains(root, innerLink));
+
+        BasicFileAttributes attrs = Files.readAttributes(fileLink, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        assertFalse(WorkspaceSandbox.allowsEntry(root, fileLink, attrs));
+        assertFalse(WorkspaceSandbox.allowsListedFile(root, fileLink));
+        assertTrue(WorkspaceSandbox.allowsListedFile(root, root.resolve("src/App.java")));
+    }
+
+    @Test
+    void testCacheInvalidatedWhenLinkIsRetargeted() throws Exception {
+        Path link = Files.createSymbolicLink(root.resolve("lib"), root.resolve("src"));
+        assertTrue(WorkspaceSandbox.contains(root, link.resolve("App.java")));
+
+        Files.delete(link);
+        Files.createSymbolicLink(root.resolve("lib"), outside);
+
+        assertFalse(WorkspaceSandbox.contains(root, link.resolve("secret.txt")));
+    }
+
+    @Test
+    void testListedFileUnderSymlinkedDirectoryIsRejected() throws Exception {
+        Files.createSymbolicLink(root.resolve("sub"), outside);
+        Path listed = root.resolve("sub/secret.txt");
+
+        assertFalse(WorkspaceSandbox.allowsListedFile(root, listed));
+        assertFalse(WorkspaceSandbox.listedFileFilter(root).test(listed));
+        assertTrue(WorkspaceSandbox.listedFileFilter(root).test(root.resolve("src/App.java")));
+    }
+
+    @Test
+    void testMovedAncestorReplacedBySymlinkIsDetected() throws Exception {
+        Path nested = Files.createDirectories(root.resolve("a/b"));
+        Files.writeString(nested.resolve("c.txt"), "c");
+        assertTrue(WorkspaceSandbox.contains(root, nested.resolve("c.txt")));
+
+        // a 被移出工作区,原位置换成指向新位置的符号链接; a/b 的 inode 和修改时间都不变
+        Path moved = outside.resolve("a");
+        Files.move(root.resolve("a"), moved);
+        Files.createSymbolicLink(root.resolve("a"), moved);
+
+        assertFalse(WorkspaceSandbox.contains(root, nested.resolve("c.txt")));
+        assertFalse(WorkspaceSandbox.contains(root, nested));
+    }
+}